@@ -11,6 +11,8 @@
 package teo.isgci.appl;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.net.URL;
 import java.io.*;
 import org.xml.sax.XMLReader;
@@ -19,6 +21,7 @@ import org.xml.sax.SAXException;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.graph.*;
 import gnu.getopt.Getopt;
+import teo.isgci.grapht.BitClosure;
 import teo.isgci.grapht.GAlg;
 import teo.isgci.xml.*;
 import teo.isgci.smallgraph.*;
@@ -28,6 +31,9 @@ public class FindISG{
     
     private static Vector graphs, families, configurations, grammars;
     private static Hashtable results;
+    private static Map<String,Graph> forms; // Canonical form -> graph
+    // Canonical form of a new subgraph -> that of its complement
+    private static ConcurrentHashMap<String,String> coForms;
     private static SimpleDirectedGraph<Graph,DefaultEdge> resultGraph;
     
     private static int usg; // Running number for unknown subgraphs
@@ -45,6 +51,13 @@ public class FindISG{
 
     private static int verbose = 0;
 
+    private static int threads = 1;    // Number of threads to use
+
+    /** A piece of work for forAll */
+    private interface Task {
+        public void run(int i);
+    }
+
     public static void main(String args[]) throws IOException,
             InterruptedException {
         boolean transitivelyClosed = false;
@@ -57,16 +70,23 @@ public class FindISG{
         configurations = new Vector();
         grammars = new Vector();
         results = new Hashtable();
+        forms = new ConcurrentHashMap<String,Graph>();
+        coForms = new ConcurrentHashMap<String,String>();
         resultGraph = new SimpleDirectedGraph<Graph,DefaultEdge>(
                 DefaultEdge.class);
         usg=0;
 
-        Getopt opts = new Getopt("FindISG", args, "ctv");
+        Getopt opts = new Getopt("FindISG", args, "cj:tv");
         while ((c = opts.getopt()) != -1) {
             switch (c) {
                 case 'c':
                     noComplements = true;
                     break;
+                case 'j':
+                    threads = Integer.parseInt(opts.getOptarg());
+                    if (threads <= 0)
+                        threads = Runtime.getRuntime().availableProcessors();
+                    break;
                 case 't':
                     transitivelyClosed = true;
                     break;
@@ -115,10 +135,7 @@ public class FindISG{
         }
 
         t1=System.currentTimeMillis();
-        
-        for (int i=0; i<graphs.size(); i++)
-            getSubs((Graph)graphs.elementAt(i));
-        
+        findSubs();
         t2=System.currentTimeMillis();
 
         if (verbose != 0) {
@@ -136,18 +153,28 @@ public class FindISG{
         }
 
         t1=System.currentTimeMillis();
-        for (int i = 0; i < configurations.size(); i++)
-            for (int j = 0; j < graphs.size(); j++) {
+        final Graph[][] induced = new Graph[configurations.size()][];
+        forAll(configurations.size(), new Task() {
+            public void run(int i) {
                 Configuration C = (Configuration) configurations.elementAt(i);
-                Graph g = (Graph) graphs.elementAt(j);
+                List<Graph> res = new ArrayList<Graph>();
+                for (int j = 0; j < graphs.size(); j++) {
+                    Graph g = (Graph) graphs.elementAt(j);
 
-                if (!g.getName().startsWith("USG") && C.isInducedSubgraph(g)) {
-/*                    System.err.print("  XXXX " + g.getName()
+                    if (!g.getName().startsWith("USG") &&
+                            C.isInducedSubgraph(g)) {
+/*                        System.err.print("  XXXX " + g.getName()
                                     + " ist in allen Repräsentanten von "
                                     + C.getName() + " enthalten \n");*/
-                    C.addInduced(g);
+                        res.add(g);
+                    }
                 }
+                induced[i] = res.toArray(new Graph[res.size()]);
             }
+        });
+        for (int i = 0; i < configurations.size(); i++)
+            for (Graph g : induced[i])
+                ((Configuration) configurations.elementAt(i)).addInduced(g);
 
         t2=System.currentTimeMillis();
 
@@ -206,6 +233,7 @@ public class FindISG{
         System.err.println(
             "Usage: FindISG [opts] input.xml out.xml\n"+
             "   -c: don't handle complements\n"+
+            "   -j n: use n threads (0: one per processor)\n"+
             "   -t: create transitively closed out.dig\n"+
             "   -v: be verbose\n");
         System.exit(1);
@@ -237,54 +265,118 @@ public class FindISG{
     }
    
 
+    /**
+     * Call task.run(i) for i = 0..n-1, using the -j number of threads.
+     * The tasks must not depend on each other.
+     */
+    private static void forAll(final int n, final Task task) {
+        if (threads <= 1  ||  n <= 1) {
+            for (int i = 0; i < n; i++)
+                task.run(i);
+            return;
+        }
+
+        final AtomicInteger next = new AtomicInteger();
+        List<Callable<Object> > workers = new ArrayList<Callable<Object> >();
+        for (int t = 0; t < threads; t++) {
+            workers.add(new Callable<Object>() {
+                public Object call() {
+                    int i;
+                    while ((i = next.getAndIncrement()) < n)
+                        task.run(i);
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Object> f : pool.invokeAll(workers))
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
     /**
      * Create a list of direct subgraphs for each graph and check
      * to which graph these subgraphs are isomorph.
      * If no isomorph graphs are found, add the subgraph to the list
-     * of graphs.
+     * of graphs, so its subgraphs are determined as well.
+     * This is done in rounds: the subgraphs of the graphs added in the
+     * previous round and their canonical forms are computed in parallel,
+     * then they are looked up in graph order by getSubs. So the new graphs
+     * are named and added in the same order regardless of the number of
+     * threads.
      */
-    public static void getSubs(Graph graph)
-    {
-        /* /null/ ist kein Graph und Bottom-Graph auch ignorieren */
-        if (graph == null || graph.getBottom())
-            return;
+    private static void findSubs() {
+        int from = 0;
+        while (from < graphs.size()) {
+            final int start = from;
+            final int to = graphs.size();
+            final Graph[][] subs = new Graph[to - from][];
+            final String[][] subForms = new String[to - from][];
+
+            forAll(to - from, new Task() {
+                public void run(int i) {
+                    Graph graph = (Graph) graphs.elementAt(start + i);
+                    /* /null/ ist kein Graph und Bottom-Graph auch
+                     * ignorieren */
+                    if (graph == null || graph.getBottom())
+                        return;
+                    int cnt = graph.countNodes();
+                    // dont check graphs with 3 or less nodes
+                    if (cnt < minCnt)
+                        return;
+
+                    subs[i] = new Graph[cnt];
+                    subForms[i] = new String[cnt];
+                    for (int j = 0; j < cnt; j++) {
+                        Graph g1 = new Graph(graph);
+                        g1.delNode(j);
+                        String form = g1.getCanonicalForm();
+                        subForms[i][j] = form;
+                        if (forms.get(form) != null)
+                            continue;
+                        subs[i][j] = g1;
+                        if (coForms.get(form) == null)
+                            coForms.putIfAbsent(form, ((Graph) new Graph(g1).
+                                    makeComplement()).getCanonicalForm());
+                    }
+                }
+            });
 
-/*        System.out.println("bestimme Teilgraphen von " + graph.getName()
-                + " (" + graph.countNodes() + " Knoten)"); */
-        
-        int i,j,cnt=graph.countNodes();
-        // dont check graphs with 3 or less nodes
-        if(cnt<minCnt) return;
-        
-        Graph g1,g2;
-        Vector candidate=new Vector(),result=new Vector();
-        boolean found;
-        
-        // since vector names is sorted by number of nodes ...
-        /* XXX was bitteschön ist sortiert????? */
-        for(i=graphs.size()-1;i>=0;i--){
-            g1=(Graph)graphs.elementAt(i);
-            if (!g1.getBottom() && g1.countNodes() == cnt - 1
-                    && g1.countEdges() <= graph.countEdges())
-                candidate.addElement(g1);
+            for (int i = 0; i < to - from; i++)
+                if (subs[i] != null)
+                    getSubs((Graph) graphs.elementAt(from + i), subs[i],
+                            subForms[i]);
+            from = to;
         }
+    }
+
+
+    /**
+     * Record the direct subgraphs of graph, given with their canonical
+     * forms. Subgraphs that are not isomorphic to a known graph are added
+     * as USG. Entries of subs may be null if their form was known already.
+     */
+    private static void getSubs(Graph graph, Graph[] subs, String[] subForms)
+    {
+        Graph g2;
+        Vector result=new Vector();
         
-        g2=null; // must be initialized due to javac
-        for(i=0;i<cnt;i++){
-            g1=new Graph(graph);
-            g1.delNode(i);
-            found=false;
-            for(j=candidate.size()-1;j>=0;j--){
-                g2=(Graph)candidate.elementAt(j);
-                if(g1.isIsomorphic(g2)){
-                    found=true;
-                    break;
-                }
-            }
-            if(!found){
-                addUSG(g1, graphs, USG);
-                candidate.addElement(g1);
-                g2=g1; // pretend g2 was found in previous loop
+        for(int i=0;i<subs.length;i++){
+            g2=forms.get(subForms[i]);
+            if(g2==null){
+                g2=subs[i];
+                addUSG(g2, subForms[i], coForms.get(subForms[i]), graphs,
+                        forms, USG);
             }
             if(result.indexOf(g2)<0)
                 result.addElement(g2);
@@ -325,14 +417,13 @@ public class FindISG{
                 System.err.println("Don't know how to handle "+ g.getName());
         }
         
-        for (i=0; i<graphs.size(); i++)
-            for (j=i+1; j<graphs.size(); j++)
-                if (((Graph)graphs.elementAt(i)).
-                        isIsomorphic((Graph)graphs.elementAt(j)))
-                    System.err.println("Mistake!!! "+
-                        ((Graph)graphs.elementAt(i)).getName()+
-                        " isomorphic to "+
-                        ((Graph)graphs.elementAt(j)).getName());
+        for (i=0; i<graphs.size(); i++) {
+            Graph old = addForm((Graph)graphs.elementAt(i), forms);
+            if (old != null)
+                System.err.println("Mistake!!! "+ old.getName()+
+                    " isomorphic to "+
+                    ((Graph)graphs.elementAt(i)).getName());
+        }
         
         for (ci = 0; ci < configurations.size(); ci++) {
             Configuration c = (Configuration) configurations.elementAt(ci);
@@ -344,15 +435,15 @@ public class FindISG{
                                + " hat zuviele Repraesentanten!!\n");
                 continue;
             }
-contConf:   for (i=0; i<contained.size(); i++) {
-                for (j=0; j<graphs.size(); j++)
-                    if (((Graph)contained.elementAt(i)).
-                            isIsomorphic((Graph)graphs.elementAt(j))) {
-                        c.addContains((Graph)graphs.elementAt(j));
-                        continue contConf;
-                    }
+            for (i=0; i<contained.size(); i++) {
+                Graph g = findForm((Graph)contained.elementAt(i), forms);
+                if (g != null) {
+                    c.addContains(g);
+                    continue;
+                }
                 ((Graph)contained.elementAt(i)).addLink(c.getLink());
-                addUSG((Graph)contained.elementAt(i), graphs, ISG);
+                addUSG((Graph)contained.elementAt(i), null, null, graphs,
+                        forms, ISG);
                 c.addContains((Graph)contained.elementAt(i));
             }
 //            configurations.addElement(c);
@@ -384,17 +475,17 @@ contConf:   for (i=0; i<contained.size(); i++) {
                     fhmt.initFromGrammar(maxCnt);
                     
                     Vector smMem = fhmt.getSmallmembers();
-contFHMT:           for (j=0; j<smMem.size(); j++)
+                    for (j=0; j<smMem.size(); j++)
                         if (((Graph)smMem.elementAt(j)).countNodes()<=maxCnt) {
-                            for (int k=0; k<graphs.size(); k++)
-                                if (((Graph)smMem.elementAt(j)).isIsomorphic(
-                                        (Graph)graphs.elementAt(k))) {
-                                    smMem.setElementAt(
-                                            (Graph)graphs.elementAt(k), j);
-                                    continue contFHMT;
-                                }
+                            Graph g = findForm((Graph)smMem.elementAt(j),
+                                    forms);
+                            if (g != null) {
+                                smMem.setElementAt(g, j);
+                                continue;
+                            }
                             ((Graph)smMem.elementAt(j)).addLink(fhmt.getLink());
-                            addUSG((Graph)smMem.elementAt(j), graphs, ISG);
+                            addUSG((Graph)smMem.elementAt(j), null, null,
+                                    graphs, forms, ISG);
                         }
                 }
         
@@ -422,7 +513,13 @@ contFHMT:           for (j=0; j<smMem.size(); j++)
             }
     }
     
-    private static void addUSG(Graph g, Vector graphs, String type){
+    /**
+     * Add g and its complement as USGs to graphs and forms. form and coForm
+     * are the canonical forms of g and its complement, or null if they must
+     * be computed.
+     */
+    private static void addUSG(Graph g, String form, String coForm,
+            Vector graphs, Map<String,Graph> forms, String type){
         usg++;
         g.addName(type+usg);
         Graph co = (Graph)g.makeComplement();
@@ -430,6 +527,33 @@ contFHMT:           for (j=0; j<smMem.size(); j++)
         co.addName(type+usg);
         graphs.addElement(g);
         graphs.addElement(co);
+        addForm(g, form != null ? form : g.getCanonicalForm(), forms);
+        addForm(co, coForm != null ? coForm : co.getCanonicalForm(), forms);
+    }
+
+    /**
+     * Add g to forms, unless a graph isomorphic to g is there already.
+     * Return that graph, or null if g was added.
+     */
+    private static Graph addForm(Graph g, Map<String,Graph> forms){
+        return addForm(g, g.getCanonicalForm(), forms);
+    }
+
+    /** Like addForm(g, forms), with form the canonical form of g. */
+    private static Graph addForm(Graph g, String form,
+            Map<String,Graph> forms){
+        if (form == null)
+            return null;
+        Graph old = forms.get(form);
+        if (old == null)
+            forms.put(form, g);
+        return old;
+    }
+
+    /** Return the graph in forms that is isomorphic to g, or null. */
+    private static Graph findForm(Graph g, Map<String,Graph> forms){
+        String form = g.getCanonicalForm();
+        return form == null ? null : forms.get(form);
     }
 
     /** Name of Graph TO Number of nodes */
@@ -488,11 +612,11 @@ contFHMT:           for (j=0; j<smMem.size(); j++)
         GAlg.transitiveReduction(resultGraph);
     }
     
-    public static void addBigSmallmembers() throws
-            IOException, InterruptedException {
+    public static void addBigSmallmembers() {
         
-        Vector bigSmallmemb = new Vector();// Contains graphs of size larger
-                                           // than maxCnt
+        final Vector bigSmallmemb = new Vector();// Contains graphs of size
+                                                 // larger than maxCnt
+        HashMap<String,Graph> bigForms = new HashMap<String,Graph>();
         for (int i=0; i<families.size(); i++)
             if (families.elementAt(i) instanceof HMTFamily)
                 if (((HMTFamily)families.elementAt(i)).getGrammar() != null) {
@@ -500,23 +624,18 @@ contFHMT:           for (j=0; j<smMem.size(); j++)
                     HMTFamily fcomp = (HMTFamily)fhmt.getComplement();
                     Vector smMem = fhmt.getSmallmembers();
                     Vector compSmMem = new Vector();
-contBig:            for (int j=0; j<smMem.size(); j++)
+                    for (int j=0; j<smMem.size(); j++)
                         if (((Graph)smMem.elementAt(j)).countNodes() > maxCnt) {
-                            for (int k=0; k<bigSmallmemb.size(); k++)
-                                if (((Graph)smMem.elementAt(j)).countNodes() ==
-                                        ((Graph)bigSmallmemb.elementAt(k)).
-                                        countNodes() &&
-                                        isSubgraphVF((Graph)smMem.elementAt(j),
-                                        (Graph)bigSmallmemb.elementAt(k))) {
-                                    smMem.setElementAt((Graph)bigSmallmemb.
-                                            elementAt(k), j);
-                                    compSmMem.addElement((Graph)
-                                            ((Graph)bigSmallmemb.elementAt(k)).
-                                            getComplement());
-                                    continue contBig;
-                                }
+                            Graph g = findForm((Graph)smMem.elementAt(j),
+                                    bigForms);
+                            if (g != null) {
+                                smMem.setElementAt(g, j);
+                                compSmMem.addElement((Graph)g.getComplement());
+                                continue;
+                            }
                             ((Graph)smMem.elementAt(j)).addLink(fhmt.getLink());
-                            addUSG((Graph)smMem.elementAt(j), bigSmallmemb,ISG);
+                            addUSG((Graph)smMem.elementAt(j), null, null,
+                                    bigSmallmemb, bigForms, ISG);
                             compSmMem.addElement((Graph)((Graph)smMem.
                                     elementAt(j)).getComplement());
 /*                            System.out.println(fhmt.getName()+".smMem["+j+"]="+
@@ -530,7 +649,7 @@ contBig:            for (int j=0; j<smMem.size(); j++)
                     ((HMTFamily)fcomp).setSmallmembers(compSmMem);
                 }
 
-        ArrayList<Graph> topo = new ArrayList<Graph>();
+        final ArrayList<Graph> topo = new ArrayList<Graph>();
         for (Graph v : GAlg.topologicalOrder(resultGraph))
             topo.add(v);
 
@@ -542,9 +661,9 @@ contBig:            for (int j=0; j<smMem.size(); j++)
                     continue;
                 if (resultGraph.getPath((Node)topo.elementAt(j),
                         (Node)topo.elementAt(k)).size() == 0) {
-                    if (isSubgraphVF(
-                            (Graph) ((Node)topo.elementAt(j)).getData(grIndex),
-                            (Graph) ((Node)topo.elementAt(k)).getData(grIndex)))
+                    if (((Graph) ((Node)topo.elementAt(k)).getData(grIndex)).
+                            isInducedSubgraphOf(
+                            (Graph) ((Node)topo.elementAt(j)).getData(grIndex)))
                     {    
                         System.out.println("VF found: "+
                                 ((Graph)((Node)topo.elementAt(k)).
@@ -560,9 +679,9 @@ contBig:            for (int j=0; j<smMem.size(); j++)
                             System.out.println(((Graph)((Node)topo.elementAt(j)).
                                 getData(grIndex)).toString());
                     }
-                } else if (!isSubgraphVF(
-                        (Graph) ((Node)topo.elementAt(j)).getData(grIndex),
-                        (Graph) ((Node)topo.elementAt(k)).getData(grIndex)))
+                } else if (!((Graph) ((Node)topo.elementAt(k)).
+                        getData(grIndex)).isInducedSubgraphOf(
+                        (Graph) ((Node)topo.elementAt(j)).getData(grIndex)))
                 {
                     System.out.println("getPath found: "+
                             ((Graph)((Node)topo.elementAt(k)).
@@ -582,66 +701,37 @@ contBig:            for (int j=0; j<smMem.size(); j++)
 
         System.out.println("All big smallmembers are added.");
         
+        // A big smallmember gets an edge to v, unless v is reachable already
+        // through one of its earlier edges. Nothing reaches the big
+        // smallmembers, so they can be done independently.
+        final BitClosure<Graph,DefaultEdge> reach =
+                GAlg.reachability(resultGraph);
+        final Graph[][] subs = new Graph[bigSmallmemb.size()][];
+        forAll(bigSmallmemb.size(), new Task() {
+            public void run(int i) {
+                Graph bigGr = (Graph) bigSmallmemb.elementAt(i);
+                List<Graph> res = new ArrayList<Graph>();
+                for (Graph v : topo) {
+                    boolean reached = false;
+                    for (int j = 0; j < res.size() && !reached; j++)
+                        reached = reach.reaches(res.get(j), v);
+                    if (!reached  &&  v.isInducedSubgraphOf(bigGr))
+                        res.add(v);
+                }
+                subs[i] = res.toArray(new Graph[res.size()]);
+            }
+        });
+
         for (int i=0; i<bigSmallmemb.size(); i++) {
             Graph bigGr = (Graph)bigSmallmemb.elementAt(i);
             resultGraph.addVertex(bigGr);
-            
-            for (Graph v : topo) {
-                if (GAlg.getPath(resultGraph, bigGr, v) == null)
-                    if (isSubgraphVF(bigGr, v))
-                        resultGraph.addEdge(bigGr, v);
-            }
+            for (Graph v : subs[i])
+                resultGraph.addEdge(bigGr, v);
         }
         
         for (int i=0; i<bigSmallmemb.size(); i++)
             graphs.addElement((Graph)bigSmallmemb.elementAt(i));
     }
-    
-    /**
-     * Use VFLib2 to decide whether small is an induced subgraph of large.
-     */
-    public static boolean isSubgraphVF(Graph large, Graph small) throws
-            IOException, InterruptedException {
-        int i, j, n;
-
-        Process p = Runtime.getRuntime().exec("vf");
-        BufferedReader in =
-                new BufferedReader(new InputStreamReader(p.getInputStream()));
-        PrintWriter out = new PrintWriter(p.getOutputStream());
-
-        n = small.countNodes();
-        out.println(n);
-        for (i = 0; i < n-1; i++)
-            for (j = i+1; j < n; j++)
-                if (small.getEdge(i,j))
-                    out.println(i +" "+ j);
-        out.println(-1);
-
-        n = large.countNodes();
-        out.println(n);
-        for (i = 0; i < n-1; i++)
-            for (j = i+1; j < n; j++)
-                if (large.getEdge(i,j))
-                    out.println(i +" "+ j);
-        out.println(-1);
-
-        out.close();
-        n = Integer.parseInt(in.readLine());
-        p.waitFor();
-        in.close();
-        p.getErrorStream().close();
-        if (p.exitValue() != 0  ||  n != 0  &&  n != 1) {
-            System.err.println("VFLib Error testing "+ small.getName()
-                +" and "+ large.getName());
-            return false;       // So that we can check more relations
-        }
-        // This is just for debugging
-//        System.out.print(small.getName());
-//        System.out.print(n == 1 ? " << " : " </< ");
-//        System.out.print(large.getName());
-
-        return n == 1;
-    }
 }
 
 /* EOF */
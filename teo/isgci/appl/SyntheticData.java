@@ -0,0 +1,640 @@
+/*
+ * Generate synthetic ISGCI data for scaling tests.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.appl;
+
+import java.io.*;
+import java.util.*;
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.graph.*;
+import org.xml.sax.SAXException;
+import gnu.getopt.Getopt;
+import teo.isgci.gc.*;
+import teo.isgci.problem.*;
+import teo.isgci.ref.*;
+import teo.isgci.relation.*;
+import teo.isgci.smallgraph.*;
+import teo.isgci.xml.*;
+
+/**
+ * Generates a random ISGCI dataset and smallgraphs for it, so Generate, the
+ * benchmarks and the GUI can be tried on data of any size. By default the
+ * number of classes of every type, inclusions and algorithms is that of
+ * the current masterdata.xml, multiplied by a scale factor.
+ * The smallgraphs are random simple graphs and their complements, written
+ * with the inclusions between them, as FindISG would, so the output can be
+ * given to Generate directly. Forbidden classes are defined by sets of
+ * these graphs that don't contain each other, so they aren't simplified
+ * into duplicates when read.
+ * Every class gets a hidden rank, a vector that is consistent with the
+ * inclusions that follow from the class definitions. Given inclusions go
+ * from a class to a nearby one whose rank is at least as high in every
+ * coordinate, so like in the real data most classes remain incomparable.
+ * Per problem, algorithms on the classes whose mean rank is below a random
+ * threshold are polynomial and the ones above are NP-complete, so the data
+ * rarely contradicts itself.
+ */
+public class SyntheticData {
+
+    static final String ISGCIDECL =
+        "<?xml version=\"1.0\" encoding=\"utf-8\" ?>\n" +
+        "<!DOCTYPE ISGCI SYSTEM \"isgci.dtd\">\n";
+
+    //---- The sizes of masterdata.xml that the scale factor multiplies
+    static final int BASES = 544;
+    static final int FORBIDDENS = 306;
+    static final int INTERSECTS = 258;
+    static final int UNIONS = 4;
+    static final int COMPLEMENTS = 41;
+    static final int PROBES = 23;
+    static final int CLIQUES = 5;
+    static final double DENSITY = 1.19;       // Inclusions per class
+    static final double ALGOS = 0.88;         // Algorithms per class
+    static final int PROBLEMS = 24;
+    /** The default length of the rank vectors */
+    static final int DIMENSIONS = 2;
+    /** The deductions expect the class with this id to be clique graphs */
+    static final int CLIQUEGRAPHS_ID = 1128;
+
+    private Random random;
+    /** The length of the rank vectors */
+    private int dimensions;
+
+    //---- The smallgraphs
+    private Vector<Graph> primaries;
+    /** The primaries and their complements */
+    private List<Graph> universe;
+    /** contains[i].get(j) iff universe j is induced subgraph of i, i!=j */
+    private BitSet[] contains;
+    /** The rank of the class forbidding just universe graph i */
+    private double[][] forbidRanks;
+
+    //---- The classes
+    private DirectedGraph<GraphClass,Inclusion> graph;
+    private List<Problem> problems;
+    private HashMap<GraphClass,double[]> ranks;
+    private HashSet<String> names;
+    private List<GraphClass> bases, forbiddens;
+    private int nextID;
+
+
+    public SyntheticData(long seed, int dimensions) {
+        random = new Random(seed);
+        this.dimensions = dimensions;
+        graph = new SimpleDirectedGraph<GraphClass,Inclusion>(
+                Inclusion.class);
+        problems = new ArrayList<Problem>();
+        Problem.setDeducing();          // Keeps the algorithms
+        ranks = new HashMap<GraphClass,double[]>();
+        names = new HashSet<String>();
+        bases = new ArrayList<GraphClass>();
+        forbiddens = new ArrayList<GraphClass>();
+        nextID = 8;
+    }
+
+
+    /**
+     * Main
+     */
+    public static void main(String args[]) throws Exception {
+        int i;
+        double scale = 1.0;
+        int nbase = -1, nforbidden = -1, nintersect = -1, nunion = -1;
+        int ncompl = -1, nprobe = -1, nclique = -1, nproblems = PROBLEMS;
+        int ngraphs = 100, minNodes = 6, maxNodes = 7, maxForbidden = 3;
+        double density = DENSITY, algos = ALGOS;
+        double proper = 0.35, unpublished = 0.01;
+        int window = 100, dimensions = DIMENSIONS;
+        long seed = 1;
+
+        Getopt opts = new Getopt("SyntheticData", args,
+                "s:n:f:i:u:c:p:k:g:N:F:d:D:w:P:U:a:t:r:h");
+        opts.setOpterr(false);
+        try {
+            while ((i = opts.getopt()) != -1) {
+                String arg = opts.getOptarg();
+                switch (i) {
+                    case 's':
+                        scale = Double.parseDouble(arg);
+                        break;
+                    case 'n':
+                        nbase = Integer.parseInt(arg);
+                        break;
+                    case 'f':
+                        nforbidden = Integer.parseInt(arg);
+                        break;
+                    case 'i':
+                        nintersect = Integer.parseInt(arg);
+                        break;
+                    case 'u':
+                        nunion = Integer.parseInt(arg);
+                        break;
+                    case 'c':
+                        ncompl = Integer.parseInt(arg);
+                        break;
+                    case 'p':
+                        nprobe = Integer.parseInt(arg);
+                        break;
+                    case 'k':
+                        nclique = Integer.parseInt(arg);
+                        break;
+                    case 'g':
+                        ngraphs = Integer.parseInt(arg);
+                        break;
+                    case 'N':
+                        String[] mm = arg.split(",");
+                        minNodes = Integer.parseInt(mm[0]);
+                        maxNodes = Integer.parseInt(mm[mm.length-1]);
+                        break;
+                    case 'F':
+                        maxForbidden = Integer.parseInt(arg);
+                        break;
+                    case 'd':
+                        density = Double.parseDouble(arg);
+                        break;
+                    case 'D':
+                        dimensions = Integer.parseInt(arg);
+                        break;
+                    case 'w':
+                        window = Integer.parseInt(arg);
+                        break;
+                    case 'P':
+                        proper = Double.parseDouble(arg);
+                        break;
+                    case 'U':
+                        unpublished = Double.parseDouble(arg);
+                        break;
+                    case 'a':
+                        algos = Double.parseDouble(arg);
+                        break;
+                    case 't':
+                        nproblems = Integer.parseInt(arg);
+                        break;
+                    case 'r':
+                        seed = Long.parseLong(arg);
+                        break;
+                    case '?':
+                    case 'h':
+                        usage();
+                        System.exit(1);
+                }
+            }
+        } catch (NumberFormatException e) {
+            usage();
+            System.exit(1);
+        }
+        if (args.length - opts.getOptind() != 2  ||  minNodes < 4  ||
+                minNodes > maxNodes  ||  window < 1  ||  dimensions < 1) {
+            usage();
+            System.exit(1);
+        }
+
+        SyntheticData data = new SyntheticData(seed, dimensions);
+        data.makeSmallgraphs(ngraphs, minNodes, maxNodes);
+        data.makeBases(scaled(nbase, BASES, scale));
+        data.makeForbiddens(scaled(nforbidden, FORBIDDENS, scale),
+                maxForbidden);
+        data.makeComplements(scaled(ncompl, COMPLEMENTS, scale));
+        data.makeProbes(scaled(nprobe, PROBES, scale));
+        data.makeCliques(scaled(nclique, CLIQUES, scale));
+        data.makeSets(scaled(nintersect, INTERSECTS, scale), true);
+        data.makeSets(scaled(nunion, UNIONS, scale), false);
+        data.makeInclusions(
+                (int) Math.round(density * data.graph.vertexSet().size()),
+                window, proper, unpublished);
+        data.makeProblems(nproblems,
+                (int) Math.round(algos * data.graph.vertexSet().size()));
+
+        data.writeISGCI(args[opts.getOptind()]);
+        data.writeSmallgraphs(args[opts.getOptind()+1]);
+        System.out.println(data.universe.size() +" smallgraphs, "+
+                data.graph.vertexSet().size() +" classes, "+
+                data.graph.edgeSet().size() +" inclusions");
+    }
+
+
+    private static void usage() {
+        System.err.println("Usage: java SyntheticData [options] "+
+                "out.xml smallgraphsout.xml\n"+
+                " -s factor: Scale the masterdata.xml sizes by factor "+
+                    "(default 1)\n"+
+                " -n/-f/-i/-u/-c/-p/-k count: Number of base/forbidden/"+
+                    "intersection/union/\n"+
+                "    complement/probe/clique classes (default scaled)\n"+
+                " -g count: Number of smallgraphs, without complements "+
+                    "(default 100)\n"+
+                " -N min,max: Number of nodes of a smallgraph (default 6,7)\n"+
+                " -F size: Largest forbidden set (default 3)\n"+
+                " -d density: Inclusions per class (default "+DENSITY+")\n"+
+                " -D length: Of the rank vectors; longer ones make fewer "+
+                    "classes comparable\n"+
+                "    (default "+ DIMENSIONS +")\n"+
+                " -w width: Inclusions go to one of the width nearest "+
+                    "classes above (default 100)\n"+
+                " -P fraction: Of the inclusions that are proper "+
+                    "(default 0.35)\n"+
+                " -U fraction: Of the inclusions that are unpublished "+
+                    "(default 0.01)\n"+
+                " -a count: Algorithms per class (default "+ ALGOS +")\n"+
+                " -t count: Number of problems (default "+ PROBLEMS +")\n"+
+                " -r seed: Random seed (default 1)");
+    }
+
+
+    private static int scaled(int given, int base, double scale) {
+        return given >= 0 ? given : (int) Math.round(base * scale);
+    }
+
+
+    //---------------------- Smallgraphs -----------------------------------
+
+    /**
+     * Create count random non-isomorphic graphs with min to max nodes, and
+     * their complements. Graphs of about the same size seldom contain each
+     * other, which keeps most forbidden classes incomparable.
+     */
+    void makeSmallgraphs(int count, int min, int max) {
+        primaries = new Vector<Graph>();
+        universe = new ArrayList<Graph>();
+        List<double[]> randoms = new ArrayList<double[]>();
+
+        for (int tries = 0; primaries.size() < count  &&  tries < 100*count;
+                tries++) {
+            Graph g = new Graph(min + random.nextInt(max - min + 1));
+            for (int i = 0; i < g.countNodes(); i++)
+                for (int j = i+1; j < g.countNodes(); j++)
+                    if (random.nextBoolean())
+                        g.addEdge(i, j);
+            if (isKnown(g))
+                continue;
+
+            String name = "S_{"+ (primaries.size()+1) +"}";
+            g.addName(name);
+            Graph co = complementOf(g);
+            if (g.isIsomorphic(co)) {
+                g.setComplement(g);
+                universe.add(g);
+                randoms.add(randomRank());
+            } else {
+                co.addName("co-"+ name);
+                co.setPrimary(false);
+                co.setComplement(g);
+                g.setComplement(co);
+                universe.add(g);
+                universe.add(co);
+                double[] rank = randomRank();
+                randoms.add(rank);
+                randoms.add(rank);
+            }
+            primaries.add(g);
+        }
+        if (primaries.size() < count)
+            System.err.println("Only "+ primaries.size() +
+                    " different smallgraphs");
+
+        contains = new BitSet[universe.size()];
+        for (int i = 0; i < universe.size(); i++) {
+            contains[i] = new BitSet();
+            for (int j = 0; j < universe.size(); j++)
+                if (i != j  &&  universe.get(i).isSubIsomorphic(
+                        universe.get(j)))
+                    contains[i].set(j);
+        }
+
+        // Forbidding a graph gives at least the rank of forbidding any of
+        // its induced subgraphs. As the universe is closed under
+        // complements, a graph and its complement get the same rank.
+        forbidRanks = new double[universe.size()][];
+        for (int i = 0; i < universe.size(); i++) {
+            forbidRanks[i] = randoms.get(i).clone();
+            for (int j = contains[i].nextSetBit(0); j >= 0;
+                    j = contains[i].nextSetBit(j+1))
+                for (int k = 0; k < dimensions; k++)
+                    forbidRanks[i][k] = Math.max(forbidRanks[i][k],
+                            randoms.get(j)[k]);
+        }
+    }
+
+
+    /**
+     * Return true iff g is isomorphic to a graph in the universe.
+     */
+    private boolean isKnown(Graph g) {
+        for (Graph h : universe)
+            if (g.countNodes() == h.countNodes()  &&
+                    g.countEdges() == h.countEdges()  &&  g.isIsomorphic(h))
+                return true;
+        return false;
+    }
+
+
+    /**
+     * Return a new graph that is the complement of g.
+     */
+    private static Graph complementOf(Graph g) {
+        int n = g.countNodes();
+        Graph co = new Graph(n);
+        for (int i = 0; i < n; i++)
+            for (int j = i+1; j < n; j++)
+                if (!g.getEdge(i, j))
+                    co.addEdge(i, j);
+        return co;
+    }
+
+
+    //---------------------- Classes ---------------------------------------
+
+    /**
+     * Add gc with the given rank, unless a class with the same name exists.
+     * Return whether it was added.
+     */
+    private boolean add(GraphClass gc, double[] rank) {
+        if (!names.add(gc.toString())  ||  graph.containsVertex(gc))
+            return false;
+        if (nextID == CLIQUEGRAPHS_ID)
+            nextID += 8;
+        gc.setID(nextID);
+        nextID += 8;
+        graph.addVertex(gc);
+        ranks.put(gc, rank);
+        return true;
+    }
+
+
+    /**
+     * Create count base classes and clique graphs, which contains all
+     * clique classes.
+     */
+    void makeBases(int count) {
+        GraphClass cliques = new BaseClass("clique graphs",
+                GraphClass.Directed.UNDIRECTED);
+        names.add(cliques.toString());
+        cliques.setID(CLIQUEGRAPHS_ID);
+        graph.addVertex(cliques);
+        double[] top = new double[dimensions];
+        Arrays.fill(top, 1.0);
+        ranks.put(cliques, top);
+
+        for (int i = 0; i < count; i++) {
+            GraphClass gc = new BaseClass("synthetic "+ (i+1),
+                    GraphClass.Directed.UNDIRECTED);
+            if (add(gc, randomRank()))
+                bases.add(gc);
+        }
+    }
+
+
+    /**
+     * Create count forbidden classes with at most max graphs each. Their
+     * rank is the minimum of the ranks of forbidding their graphs, so a
+     * forbidden class that is a subclass of another one has a lower rank,
+     * and intersecting forbidden classes gives the minimum rank like for
+     * other classes.
+     */
+    void makeForbiddens(int count, int max) {
+        for (int tries = 0; forbiddens.size() < count  &&
+                tries < 100*count; tries++) {
+            int size = 1 + random.nextInt(max);
+            BitSet set = new BitSet();
+            for (int k = 0; k < size; k++) {
+                int i = random.nextInt(universe.size());
+                boolean comparable = false;
+                for (int j = set.nextSetBit(0); j >= 0;
+                        j = set.nextSetBit(j+1))
+                    comparable |= i == j  ||  contains[i].get(j)  ||
+                            contains[j].get(i);
+                if (!comparable)
+                    set.set(i);
+            }
+
+            List<String> forbidden = new ArrayList<String>();
+            double[] rank = new double[dimensions];
+            Arrays.fill(rank, 1.0);
+            for (int j = set.nextSetBit(0); j >= 0; j = set.nextSetBit(j+1)) {
+                forbidden.add(universe.get(j).getName());
+                for (int k = 0; k < dimensions; k++)
+                    rank[k] = Math.min(rank[k], forbidRanks[j][k]);
+            }
+            GraphClass gc = new ForbiddenClass(forbidden);
+            if (add(gc, rank))
+                forbiddens.add(gc);
+        }
+    }
+
+
+    void makeComplements(int count) {
+        List<GraphClass> from = new ArrayList<GraphClass>(bases);
+        from.addAll(forbiddens);
+        Collections.shuffle(from, random);
+        for (int i = 0; i < count  &&  i < from.size(); i++)
+            add(new ComplementClass(from.get(i)),
+                    ranks.get(from.get(i)).clone());
+    }
+
+
+    void makeProbes(int count) {
+        for (int i = 0; i < count; i++) {
+            GraphClass base = bases.get(random.nextInt(bases.size()));
+            double[] rank = ranks.get(base).clone();
+            for (int k = 0; k < dimensions; k++)
+                rank[k] = (1.0 + rank[k]) / 2;
+            add(new ProbeClass(base), rank);
+        }
+    }
+
+
+    void makeCliques(int count) {
+        for (int i = 0; i < count; i++) {
+            GraphClass base = bases.get(random.nextInt(bases.size()));
+            add(new CliqueClass(base), ranks.get(base).clone());
+        }
+    }
+
+
+    /**
+     * Create count intersections (if intersect) or unions of 2 or 3 base
+     * or forbidden classes.
+     */
+    void makeSets(int count, boolean intersect) {
+        List<GraphClass> from = new ArrayList<GraphClass>(bases);
+        from.addAll(forbiddens);
+        if (from.size() < 3)
+            return;
+
+        int made = 0;
+        for (int tries = 0; made < count  &&  tries < 100*count; tries++) {
+            HashSet<GraphClass> set = new HashSet<GraphClass>();
+            int size = 2 + random.nextInt(2);
+            while (set.size() < size)
+                set.add(from.get(random.nextInt(from.size())));
+
+            double[] rank = new double[dimensions];
+            for (int k = 0; k < dimensions; k++) {
+                rank[k] = intersect ? 1.0 : 0.0;
+                for (GraphClass gc : set)
+                    rank[k] = intersect ?
+                            Math.min(rank[k], ranks.get(gc)[k]) :
+                            Math.max(rank[k], ranks.get(gc)[k]);
+            }
+
+            GraphClass gc = intersect ?
+                    new IntersectClass(set, GraphClass.Directed.UNDIRECTED) :
+                    new UnionClass(set, GraphClass.Directed.UNDIRECTED);
+            if (add(gc, rank))
+                made++;
+        }
+    }
+
+
+    /**
+     * Create count inclusions, each from a class to one of the window
+     * classes just below it in mean rank that it dominates.
+     */
+    void makeInclusions(int count, int window, double proper,
+            double unpublished) {
+        List<GraphClass> sorted = new ArrayList<GraphClass>(
+                graph.vertexSet());
+        Collections.sort(sorted, new Comparator<GraphClass>() {
+            public int compare(GraphClass a, GraphClass b) {
+                return Double.compare(mean(ranks.get(a)),
+                        mean(ranks.get(b)));
+            }
+        });
+
+        int n = sorted.size();
+        for (int tries = 0; graph.edgeSet().size() < count  &&
+                tries < 10*count; tries++) {
+            int sub = random.nextInt(n - 1);
+            double[] subRank = ranks.get(sorted.get(sub));
+            int skip = random.nextInt(window);
+            int sup = -1;
+            for (int j = sub+1; j < n  &&  skip >= 0; j++) {
+                double[] supRank = ranks.get(sorted.get(j));
+                // Equal ranks could make the deductions find an equivalence
+                if (dominates(supRank, subRank)  &&
+                        !Arrays.equals(supRank, subRank)) {
+                    sup = j;
+                    skip--;
+                }
+            }
+            if (sup < 0)
+                continue;
+            Inclusion e = graph.addEdge(sorted.get(sup), sorted.get(sub));
+            if (e == null)
+                continue;
+            e.setProper(random.nextDouble() < proper);
+            if (random.nextDouble() < unpublished)
+                e.setConfidence(Inclusion.CONFIDENCE_UNPUBLISHED);
+            e.setRefs(refs());
+        }
+    }
+
+
+    /**
+     * Create count problems and algos algorithms on the base classes, at
+     * most one per problem and class.
+     */
+    void makeProblems(int count, int algos) {
+        double[] threshold = new double[count];
+        for (int i = 0; i < count; i++) {
+            Problem p = Problem.createProblem("Problem "+ (i+1), graph);
+            p.setDirected(GraphClass.Directed.UNDIRECTED);
+            problems.add(p);
+            threshold[i] = 0.2 + 0.6 * random.nextDouble();
+        }
+        if (count == 0)
+            return;
+
+        Complexity[] easy = { Complexity.LINEAR, Complexity.P };
+        HashSet<Integer> done = new HashSet<Integer>();
+        while (done.size() < algos  &&  done.size() < count * bases.size()) {
+            int k = random.nextInt(count);
+            int b = random.nextInt(bases.size());
+            if (!done.add(b * count + k))
+                continue;
+            GraphClass gc = bases.get(b);
+            Complexity c;
+            if (random.nextDouble() < 0.03)
+                c = Complexity.OPEN;
+            else if (mean(ranks.get(gc)) < threshold[k])
+                c = easy[random.nextInt(easy.length)];
+            else
+                c = Complexity.NPC;
+            problems.get(k).createAlgo(gc, c, null, refs());
+        }
+    }
+
+
+    private double[] randomRank() {
+        double[] res = new double[dimensions];
+        for (int k = 0; k < dimensions; k++)
+            res[k] = random.nextDouble();
+        return res;
+    }
+
+
+    /**
+     * Return true iff rank a is at least b in every coordinate.
+     */
+    private static boolean dominates(double[] a, double[] b) {
+        for (int k = 0; k < a.length; k++)
+            if (a[k] < b[k])
+                return false;
+        return true;
+    }
+
+
+    private static double mean(double[] rank) {
+        double sum = 0.0;
+        for (double r : rank)
+            sum += r;
+        return sum / rank.length;
+    }
+
+
+    private List<Ref> refs() {
+        List<Ref> res = new ArrayList<Ref>();
+        res.add(new Ref("ref_"+ (1 + random.nextInt(1000))));
+        return res;
+    }
+
+
+    //---------------------- Output ----------------------------------------
+
+    void writeISGCI(String file) throws IOException, SAXException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), "UTF-8"));
+        ISGCIWriter w = new ISGCIWriter(out, ISGCIWriter.MODE_DATA);
+        w.writeISGCIDocument(graph, problems,
+                new ArrayList<AbstractRelation>(),
+                new HashMap<GraphClass,Set<GraphClass> >(), ISGCIDECL);
+        out.close();
+    }
+
+
+    void writeSmallgraphs(String file) throws IOException, SAXException {
+        DirectedGraph<Graph,DefaultEdge> incls =
+                new SimpleDirectedGraph<Graph,DefaultEdge>(DefaultEdge.class);
+        for (Graph g : universe)
+            incls.addVertex(g);
+        for (int i = 0; i < universe.size(); i++)
+            for (int j = contains[i].nextSetBit(0); j >= 0;
+                    j = contains[i].nextSetBit(j+1))
+                incls.addEdge(universe.get(i), universe.get(j));
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), "UTF-8"));
+        SmallGraphWriter w = new SmallGraphWriter(out);
+        w.writeSmallGraphs(FindISG.XMLDECL, primaries,
+                new Vector<HMTGrammar>(), new Vector<Family>(),
+                new Vector<Configuration>(), incls);
+        out.close();
+    }
+}
+
+/* EOF */
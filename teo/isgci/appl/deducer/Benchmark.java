@@ -0,0 +1,494 @@
+/*
+ * Benchmarks for the phases of the deduction pipeline.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.appl.deducer;
+
+import teo.isgci.grapht.*;
+import teo.isgci.xml.*;
+import teo.isgci.gc.*;
+import teo.isgci.relation.*;
+import teo.isgci.problem.*;
+import teo.isgci.appl.*;
+
+import gnu.getopt.Getopt;
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import org.xml.sax.InputSource;
+
+/**
+ * Times the phases of Generate separately, in the style of a microbenchmark
+ * harness: Every invocation of a benchmark gets a freshly loaded graph, on
+ * which the phases before the benchmarked one are run untimed. Only the
+ * benchmarked phase is measured, together with the number and duration of
+ * the garbage collections and the bytes allocated by the calling thread
+ * while it ran.
+ * The smallgraphs are read once. The input is read into memory once and
+ * parsed again for every invocation, because the deducer and the problems
+ * change the graph and can't be reset.
+ * In single shot mode every iteration is one invocation and the score is
+ * the time it took. In throughput mode an iteration invokes the benchmark
+ * repeatedly for a given time and the score is the number of invocations
+ * per second. Both modes do warmup iterations first, which aren't reported.
+ */
+public class Benchmark {
+
+    /** The benchmarks, in the order of the pipeline */
+    static final String[] NAMES = {
+        "closure",          // GAlg.transitiveClosure on the input
+        "inclusions",       // Deducer.findTrivialInclusions
+        "propers",          // Deducer.findTrivialPropers
+        "complexities",     // Problem.distributeComplexities
+        "reduction",        // GAlg.transitiveReduction, one class per SCC
+        "superfluous",      // Deducer.deleteSuperfluousEdges
+        "superfluousfull",  // Deducer.deleteSuperfluousEdgesFull
+    };
+
+    /** The input data */
+    private byte[] input;
+    private String inputID;
+    private String autocache;
+    private Resolver loader;
+    /** The state an invocation works on */
+    private IndexedGraph<GraphClass,Inclusion> graph;
+    private Deducer deducer;
+    private IndexedGraph<GraphClass,Inclusion> copy;
+    /** For measuring allocations, or null */
+    private com.sun.management.ThreadMXBean threads;
+    private List<GarbageCollectorMXBean> gcs;
+
+    /** The results of a benchmark */
+    static class Result {
+        String name, mode;
+        /** The scores per iteration */
+        double[] scores;
+        long invocations, nanos, gcCount, gcMillis, bytes;
+    }
+
+
+    /**
+     * Prepare for benchmarking on the given input and smallgraphs.
+     */
+    public Benchmark(String file, String smallgraphfile, String autocache)
+            throws IOException {
+        loader = new ISGCIResolver(
+                "file:"+System.getProperty("user.dir")+"/");
+
+        SmallGraphReader handler = new SmallGraphReader();
+        XMLParser xml = new XMLParser(loader.openInputSource(smallgraphfile),
+                handler, loader.getEntityResolver());
+        xml.parse();
+        ForbiddenClass.initRules(handler.getGraphs(), handler.getInclusions());
+
+        InputSource src = loader.openInputSource(file);
+        input = readAll(src.getByteStream());
+        inputID = src.getSystemId();
+        this.autocache = autocache;
+
+        gcs = ManagementFactory.getGarbageCollectorMXBeans();
+        try {
+            threads = (com.sun.management.ThreadMXBean)
+                    ManagementFactory.getThreadMXBean();
+            if (!threads.isThreadAllocatedMemorySupported())
+                threads = null;
+            else
+                threads.setThreadAllocatedMemoryEnabled(true);
+        } catch (ClassCastException e) {
+            threads = null;
+        } catch (UnsupportedOperationException e) {
+            threads = null;
+        }
+    }
+
+
+    /**
+     * Main
+     */
+    public static void main(String args[]) throws Exception {
+        int i;
+        boolean throughput = false;
+        int warmups = 1;
+        int iterations = 5;
+        double seconds = 10;
+        String autocache = null;
+        String jsonout = null;
+
+        Getopt opts = new Getopt("Benchmark", args, "m:w:i:t:a:o:h");
+        opts.setOpterr(false);
+        while ((i = opts.getopt()) != -1) {
+            switch (i) {
+                case 'm':
+                    if (opts.getOptarg().equals("thrpt"))
+                        throughput = true;
+                    else if (!opts.getOptarg().equals("ss")) {
+                        usage();
+                        System.exit(1);
+                    }
+                    break;
+                case 'w':
+                    warmups = Integer.parseInt(opts.getOptarg());
+                    break;
+                case 'i':
+                    iterations = Integer.parseInt(opts.getOptarg());
+                    break;
+                case 't':
+                    seconds = Double.parseDouble(opts.getOptarg());
+                    break;
+                case 'a':
+                    autocache = opts.getOptarg();
+                    break;
+                case 'o':
+                    jsonout = opts.getOptarg();
+                    break;
+                case '?':
+                case 'h':
+                    usage();
+                    System.exit(1);
+            }
+        }
+        if (args.length - opts.getOptind() < 2  ||  iterations < 1) {
+            usage();
+            System.exit(1);
+        }
+
+        List<String> names = new ArrayList<String>();
+        for (i = opts.getOptind() + 2; i < args.length; i++) {
+            if (!Arrays.asList(NAMES).contains(args[i])) {
+                System.err.println("Unknown benchmark "+ args[i]);
+                usage();
+                System.exit(1);
+            }
+            names.add(args[i]);
+        }
+        if (names.isEmpty())
+            names.addAll(Arrays.asList(NAMES));
+
+        Benchmark bench = new Benchmark(args[opts.getOptind()],
+                args[opts.getOptind()+1], autocache);
+        List<Result> results = new ArrayList<Result>();
+        for (String name : names) {
+            Result r = bench.run(name, throughput, warmups, iterations,
+                    (long) (seconds * 1e9));
+            results.add(r);
+            print(System.out, Collections.singletonList(r), false);
+        }
+
+        System.out.println();
+        print(System.out, results, true);
+        if (jsonout != null) {
+            PrintWriter writer = new PrintWriter(new BufferedWriter(
+                    new FileWriter(jsonout)));
+            writeJSON(writer, results);
+            writer.close();
+        }
+    }
+
+
+    private static void usage() {
+        System.out.println("Usage: java Benchmark [options] "+
+                "input.xml smallgraphsin.xml [benchmark...]\n"+
+                " -m mode: ss (single shot, default) or thrpt (throughput)\n"+
+                " -w n: Do n warmup iterations (default 1)\n"+
+                " -i n: Do n measured iterations (default 5)\n"+
+                " -t seconds: Length of a throughput iteration "+
+                    "(default 10)\n"+
+                " -a filename: AUTO_* cache filename\n"+
+                " -o filename: Write the results as JSON to filename\n"+
+                "Benchmarks (default all): "+ Arrays.toString(NAMES));
+    }
+
+
+    /**
+     * Run the benchmark name and return the results. In throughput mode,
+     * every iteration takes at least nanos ns of measured time.
+     */
+    public Result run(String name, boolean throughput, int warmups,
+            int iterations, long nanos) {
+        Result r = new Result();
+        r.name = name;
+        r.mode = throughput ? "thrpt" : "ss";
+        r.scores = new double[iterations];
+
+        for (int it = -warmups; it < iterations; it++) {
+            long count = 0, time = 0, gcCount = 0, gcMillis = 0, bytes = 0;
+            // Keep the output of the deducer apart from the results
+            PrintStream out = System.out;
+            System.setOut(System.err);
+            try {
+                do {
+                    setup(name);
+                    long gc0 = gcCount(), gct0 = gcMillis();
+                    long b0 = allocated();
+                    long t0 = System.nanoTime();
+                    invoke(name);
+                    time += System.nanoTime() - t0;
+                    bytes += allocated() - b0;
+                    gcCount += gcCount() - gc0;
+                    gcMillis += gcMillis() - gct0;
+                    count++;
+                    teardown();
+                } while (throughput  &&  time < nanos);
+            } finally {
+                System.setOut(out);
+            }
+
+            System.err.println((it < 0 ? "Warmup " : "Iteration ") +
+                    (it < 0 ? it + warmups + 1 : it + 1) +": "+ name +" "+
+                    count +" x "+ millis(time / count) +" ms");
+            if (it < 0)
+                continue;
+            r.scores[it] = throughput ? count / (time / 1e9) : time / 1e9;
+            r.invocations += count;
+            r.nanos += time;
+            r.gcCount += gcCount;
+            r.gcMillis += gcMillis;
+            r.bytes += bytes;
+        }
+        return r;
+    }
+
+
+    /**
+     * Load a fresh graph and run the phases before name on it.
+     */
+    private void setup(String name) {
+        graph = new IndexedGraph<GraphClass,Inclusion>(Inclusion.class);
+        Problem.setDeducing();
+        ISGCIReader gcr = new ISGCIReader(graph, new ArrayList<Problem>());
+        InputSource src = new InputSource(new ByteArrayInputStream(input));
+        src.setSystemId(inputID);
+        new XMLParser(src, gcr, loader.getEntityResolver(), new NoteFilter())
+                .parse();
+        if (name.equals("closure"))
+            copy = copy(graph, null);
+
+        deducer = new Deducer(graph, true, false);
+        deducer.setGeneratorCache(autocache);
+        if (after(name, "inclusions"))
+            deducer.findTrivialInclusions();
+        if (after(name, "propers"))
+            deducer.findTrivialPropers();
+        if (name.equals("reduction"))
+            copy = copy(graph, deducer.getSCCMap());
+        if (after(name, "complexities")) {
+            Problem.distributeComplexities(deducer.getSCCMap());
+            deducer.removeTemp();
+        }
+        if (after(name, "superfluous")) {
+            deducer.deleteSuperfluousEdges();
+            deducer.addRefs();
+        }
+        System.gc();
+    }
+
+
+    /**
+     * Run the benchmarked phase name.
+     */
+    private void invoke(String name) {
+        if (name.equals("closure"))
+            GAlg.transitiveClosure(copy);
+        else if (name.equals("inclusions"))
+            deducer.findTrivialInclusions();
+        else if (name.equals("propers"))
+            deducer.findTrivialPropers();
+        else if (name.equals("complexities"))
+            Problem.distributeComplexities(deducer.getSCCMap());
+        else if (name.equals("reduction"))
+            GAlg.transitiveReduction(copy);
+        else if (name.equals("superfluous"))
+            deducer.deleteSuperfluousEdges();
+        else if (name.equals("superfluousfull"))
+            deducer.deleteSuperfluousEdgesFull();
+    }
+
+
+    private void teardown() {
+        graph = null;
+        deducer = null;
+        copy = null;
+    }
+
+
+    /**
+     * Return true iff phase must be run before benchmark name.
+     */
+    private static boolean after(String name, String phase) {
+        List<String> names = Arrays.asList(NAMES);
+        return names.indexOf(name) > names.indexOf(phase);
+    }
+
+
+    /**
+     * Return a copy of g with new edges. If sccs is not null, only the
+     * first class of every SCC is copied, so the copy is acyclic.
+     */
+    private static IndexedGraph<GraphClass,Inclusion> copy(
+            IndexedGraph<GraphClass,Inclusion> g,
+            Map<GraphClass,Set<GraphClass> > sccs) {
+        IndexedGraph<GraphClass,Inclusion> res =
+                new IndexedGraph<GraphClass,Inclusion>(Inclusion.class);
+        for (GraphClass gc : g.vertexSet())
+            if (sccs == null  ||  first(g, sccs.get(gc)) == gc)
+                res.addVertex(gc);
+        for (Inclusion e : g.edgeSet()) {
+            GraphClass from = g.getEdgeSource(e);
+            GraphClass to = g.getEdgeTarget(e);
+            if (res.containsVertex(from)  &&  res.containsVertex(to))
+                res.addEdge(from, to);
+        }
+        return res;
+    }
+
+
+    /**
+     * Return the member of scc with the lowest id in g.
+     */
+    private static GraphClass first(IndexedGraph<GraphClass,Inclusion> g,
+            Set<GraphClass> scc) {
+        GraphClass res = null;
+        for (GraphClass gc : scc)
+            if (res == null  ||  g.getVertexID(gc) < g.getVertexID(res))
+                res = gc;
+        return res;
+    }
+
+
+    private long gcCount() {
+        long res = 0;
+        for (GarbageCollectorMXBean gc : gcs)
+            res += Math.max(gc.getCollectionCount(), 0);
+        return res;
+    }
+
+
+    private long gcMillis() {
+        long res = 0;
+        for (GarbageCollectorMXBean gc : gcs)
+            res += Math.max(gc.getCollectionTime(), 0);
+        return res;
+    }
+
+
+    /**
+     * Return the number of bytes allocated by this thread, or 0 if unknown.
+     */
+    private long allocated() {
+        return threads == null ? 0 :
+                threads.getThreadAllocatedBytes(
+                        Thread.currentThread().getId());
+    }
+
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream res = new ByteArrayOutputStream();
+        byte[] buf = new byte[64*1024];
+        int n;
+        while ((n = in.read(buf)) > 0)
+            res.write(buf, 0, n);
+        in.close();
+        return res.toByteArray();
+    }
+
+
+    //---------------------- Output -----------------------------------------
+
+    /**
+     * Print results as a table to out, with the header if header is set.
+     * The score is the mean over the iterations, the error the standard
+     * deviation.
+     */
+    static void print(PrintStream out, List<Result> results, boolean header) {
+        String fmt = "%-16s %-5s %4s %12s %12s %-6s %6s %9s %12s %10s%n";
+        if (header)
+            out.printf(Locale.ROOT, fmt, "Benchmark", "Mode", "Cnt", "Score",
+                    "Error", "Units", "GCs", "GC ms", "B/op", "MB/s");
+        for (Result r : results) {
+            out.printf(Locale.ROOT, fmt, r.name, r.mode, r.scores.length,
+                    String.format(Locale.ROOT, "%.3f", mean(r.scores)),
+                    String.format(Locale.ROOT, "%.3f", stddev(r.scores)),
+                    units(r), r.gcCount, r.gcMillis,
+                    bytesPerOp(r), String.format(Locale.ROOT, "%.1f",
+                        allocRate(r)));
+        }
+    }
+
+
+    /**
+     * Write results as JSON to w.
+     */
+    static void writeJSON(PrintWriter w, List<Result> results) {
+        w.println("[");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            w.print("  {\"benchmark\": \""+ r.name +"\", ");
+            w.print("\"mode\": \""+ r.mode +"\", ");
+            w.print("\"scores\": [");
+            for (int j = 0; j < r.scores.length; j++)
+                w.print((j > 0 ? ", " : "") + format(r.scores[j]));
+            w.print("], ");
+            w.print("\"score\": "+ format(mean(r.scores)) +", ");
+            w.print("\"error\": "+ format(stddev(r.scores)) +", ");
+            w.print("\"units\": \""+ units(r) +"\", ");
+            w.print("\"invocations\": "+ r.invocations +", ");
+            w.print("\"gcCount\": "+ r.gcCount +", ");
+            w.print("\"gcMillis\": "+ r.gcMillis +", ");
+            w.print("\"bytesPerOp\": "+ bytesPerOp(r) +", ");
+            w.print("\"allocMBPerSec\": "+ format(allocRate(r)) +"}");
+            w.println(i < results.size()-1 ? "," : "");
+        }
+        w.println("]");
+        w.flush();
+    }
+
+
+    private static String units(Result r) {
+        return r.mode.equals("thrpt") ? "ops/s" : "s/op";
+    }
+
+
+    private static long bytesPerOp(Result r) {
+        return r.invocations == 0 ? 0 : r.bytes / r.invocations;
+    }
+
+
+    /** Allocation rate in MB/s of measured time */
+    private static double allocRate(Result r) {
+        return r.nanos == 0 ? 0 : r.bytes / 1e6 / (r.nanos / 1e9);
+    }
+
+
+    private static double mean(double[] xs) {
+        double sum = 0;
+        for (double x : xs)
+            sum += x;
+        return sum / xs.length;
+    }
+
+
+    private static double stddev(double[] xs) {
+        if (xs.length < 2)
+            return 0;
+        double m = mean(xs), sum = 0;
+        for (double x : xs)
+            sum += (x - m) * (x - m);
+        return Math.sqrt(sum / (xs.length - 1));
+    }
+
+
+    private static String format(double d) {
+        return String.format(Locale.ROOT, "%.6f", d);
+    }
+
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
+
+/* EOF */
@@ -0,0 +1,100 @@
+/*
+ * A growing list of classes, indexed by base and members.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.appl.deducer;
+
+import java.util.*;
+import teo.isgci.gc.*;
+
+/**
+ * A list of classes of a given type, with indexes that find the derived
+ * classes in it by base and the set classes by member. Used by the
+ * semi-naive deduction to find the pairs that depend on a new edge.
+ * Classes can only be added.
+ */
+class ClassLookup {
+    /** The type of the classes */
+    private Class<? extends GraphClass> type;
+    /** The classes */
+    private List<GraphClass> list;
+    /** Derived classes by base */
+    private Map<GraphClass,List<GraphClass> > byBase;
+    /** Set classes by member */
+    private Map<GraphClass,List<GraphClass> > byMember;
+
+    /**
+     * Create a lookup for the classes of the given type.
+     */
+    public ClassLookup(Class<? extends GraphClass> type) {
+        this.type = type;
+        list = new ArrayList<GraphClass>();
+        byBase = new HashMap<GraphClass,List<GraphClass> >();
+        byMember = new HashMap<GraphClass,List<GraphClass> >();
+    }
+
+
+    /**
+     * Add gc if it has the right type.
+     */
+    public void add(GraphClass gc) {
+        if (!type.isInstance(gc))
+            return;
+        list.add(gc);
+        if (gc instanceof DerivedClass) {
+            put(byBase, ((DerivedClass) gc).getBase(), gc);
+        } else if (gc instanceof SetClass) {
+            for (GraphClass m : ((SetClass) gc).getSet())
+                put(byMember, m, gc);
+        }
+    }
+
+
+    /**
+     * Return true iff gc has the type of this lookup.
+     */
+    public boolean accepts(GraphClass gc) {
+        return type.isInstance(gc);
+    }
+
+
+    /**
+     * Return the classes, in the order they were added.
+     */
+    public List<GraphClass> getList() {
+        return list;
+    }
+
+
+    /**
+     * Return the derived classes with a base equal to gc.
+     */
+    public List<GraphClass> withBase(GraphClass gc) {
+        List<GraphClass> res = byBase.get(gc);
+        return res != null ? res : Collections.<GraphClass>emptyList();
+    }
+
+
+    /**
+     * Return the set classes with a member equal to gc.
+     */
+    public List<GraphClass> withMember(GraphClass gc) {
+        List<GraphClass> res = byMember.get(gc);
+        return res != null ? res : Collections.<GraphClass>emptyList();
+    }
+
+
+    private static void put(Map<GraphClass,List<GraphClass> > map,
+            GraphClass key, GraphClass gc) {
+        List<GraphClass> l = map.get(key);
+        if (l == null)
+            map.put(key, l = new ArrayList<GraphClass>());
+        l.add(gc);
+    }
+}
+
+/* EOF */
@@ -0,0 +1,102 @@
+/*
+ * The classes of a deducer's graph by type.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.appl.deducer;
+
+import java.util.*;
+import teo.isgci.gc.*;
+import teo.isgci.grapht.*;
+import teo.isgci.relation.*;
+
+/**
+ * Keeps the nodes of an IndexedGraph in a list per type, in the order of
+ * the graph's vertexSet(), so rules can get the classes of their type
+ * without testing every node. The list for a type is created when it is
+ * first asked for and from then on kept up to date by add() and remove(),
+ * which must be called for every node added to/removed from the graph.
+ */
+class ClassRegistry {
+    private IndexedGraph<GraphClass,Inclusion> graph;
+    /** The classes per type */
+    private HashMap<Class<? extends GraphClass>,ArrayList<GraphClass> > lists;
+
+
+    public ClassRegistry(IndexedGraph<GraphClass,Inclusion> graph) {
+        this.graph = graph;
+        lists = new HashMap<Class<? extends GraphClass>,
+                ArrayList<GraphClass> >();
+    }
+
+
+    /**
+     * Register the new node gc.
+     */
+    public void add(GraphClass gc) {
+        for (Map.Entry<Class<? extends GraphClass>,ArrayList<GraphClass> > e :
+                lists.entrySet())
+            if (e.getKey().isInstance(gc))
+                e.getValue().add(gc);
+    }
+
+
+    /**
+     * Unregister the removed nodes gcs.
+     */
+    public void remove(Collection<GraphClass> gcs) {
+        if (gcs.isEmpty())
+            return;
+        Set<GraphClass> removed = new HashSet<GraphClass>(gcs);
+        for (ArrayList<GraphClass> list : lists.values()) {
+            int j = 0;
+            for (GraphClass gc : list)
+                if (!removed.contains(gc))
+                    list.set(j++, gc);
+            list.subList(j, list.size()).clear();
+        }
+    }
+
+
+    /**
+     * Return the current nodes of the given type. The result doesn't change
+     * when nodes are added later, so it is safe to add nodes while
+     * iterating over it, but it must not be used after nodes were removed.
+     */
+    public List<GraphClass> get(Class<? extends GraphClass> type) {
+        final ArrayList<GraphClass> list = list(type);
+        final int size = list.size();
+        return new AbstractList<GraphClass>() {
+            public GraphClass get(int i) {
+                if (i < 0  ||  i >= size)
+                    throw new IndexOutOfBoundsException();
+                return list.get(i);
+            }
+
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+
+    /**
+     * Return the list for type, creating it if needed.
+     */
+    private ArrayList<GraphClass> list(Class<? extends GraphClass> type) {
+        ArrayList<GraphClass> res = lists.get(type);
+        if (res == null) {
+            res = new ArrayList<GraphClass>();
+            for (GraphClass gc : graph.vertexSet())
+                if (type.isInstance(gc))
+                    res.add(gc);
+            lists.put(type, res);
+        }
+        return res;
+    }
+}
+
+/* EOF */
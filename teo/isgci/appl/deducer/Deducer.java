@@ -13,7 +13,6 @@ import java.io.PrintWriter;
 import java.util.*;
 import org.jgrapht.*;
 import org.jgrapht.graph.*;
-import org.jgrapht.alg.FloydWarshallShortestPaths;
 import teo.isgci.gc.*;
 import teo.isgci.ref.*;
 import teo.isgci.relation.*;
@@ -21,9 +20,16 @@ import teo.isgci.util.*;
 import teo.isgci.grapht.*;
 
 public class Deducer implements DeducerData {
+
+    /**
+     * Version of the deduction rules. Increase it whenever a rule, or the
+     * distribution of the complexities, changes what is deduced, so that
+     * snapshots of older deductions are not continued.
+     */
+    public static final int RULES_VERSION = 1;
     
     /** Where we're deducing */
-    CacheGraph<GraphClass,Inclusion> graph;
+    IndexedGraph<GraphClass,Inclusion> graph;
     /** Contains the temporary nodes */
     HashSet<GraphClass> temporaries;
     /** Trace where the deductions come from? */
@@ -31,37 +37,81 @@ public class Deducer implements DeducerData {
     /** Perform consistency checks? */
     boolean checking;
     /** Tracedata why the inclusion holds */
-    Annotation<GraphClass,Inclusion,TraceData> traceAnn;
+    TraceLog traceLog;
     /** Tracedata why the inclusion is of this type (properness) */
-    Annotation<GraphClass,Inclusion,TraceData> traceRelAnn;
+    TraceLog traceRelLog;
+    /** Index of "Transitivity" in traceLog, traceRelLog */
+    private int transitivity, relTransitivity;
     /** Classes added in the last run of findTrivialInclusions */
     private ArrayList<GraphClass> newclasses;
-    /** Set by setProper(), reset by findTrivialPropers() */
-    private boolean newproper;
+    /** Classes restored from the snapshot since the last confidence level */
+    private ArrayList<GraphClass> restoredclasses;
+    /** Edges made proper in this round of findTrivialPropers(), or null */
+    private ArrayList<Inclusion> newpropers;
+    /** Per node id, the out-neighbours and the proper out-edges, or null */
+    private BitSet[] reachRows, properRows;
+    /** graph.getModCount() when reachRows, properRows were created */
+    private int rowsModCount;
     /** Confidence level at which we're currently deducing */
     private int confidence;
-    /** Input edges with less than certain confidence levels */
-    private HashSet<Inclusion> uncertains;
+    /** Input edges with less than certain confidence levels, in input order */
+    private LinkedHashSet<Inclusion> uncertains;
     /** Generates the ids for automatically deduces classes (AUTO_*) */
     private IDGenerator idgenerator;
     /** Iteration number */
     private int iteration;
+    /** Round within the iteration */
+    private int round;
+    /** Number of threads for testing the direct inclusions */
+    private int threads;
+    /** Deduce semi-naively? */
+    private boolean seminaive;
+    /** Edges added since the last findTrivialOnce (semi-naive only) */
+    private ArrayList<Inclusion> newedges;
+    /** The classes per type used by the RSub rules (semi-naive only) */
+    private HashMap<Class<? extends GraphClass>,ClassLookup> typedLookups;
+    /** The deductions to continue from, or null */
+    private Snapshot snapshot;
+    /** The temporary nodes before tempify(), for writing a snapshot */
+    HashSet<GraphClass> deductionTemporaries;
+    /** The confidence level on which every deduced node was added */
+    HashMap<GraphClass,Integer> nodeConfidences;
+    /** Statistics on the rule invocations, or null */
+    private RuleStats stats;
+    /** The nodes by type */
+    private ClassRegistry registry;
+    /** The SCCs, created when first needed and then kept up to date */
+    private SCCIndex<GraphClass,Inclusion> sccs;
+    /** Number of edges/nodes/proper flags added, for stats */
+    long edgesAdded, classesAdded, propersSet;
+    /** The flight recorder event of the current rule invocation */
+    private RuleEvent ruleEvent;
+    /** The graph size and counters at the start of ruleEvent */
+    private int eventNodes, eventEdges;
+    private long eventEdgesAdded, eventClassesAdded, eventPropersSet;
     
     
-    public Deducer(DirectedGraph<GraphClass,Inclusion> g, boolean trace,
+    /**
+     * Create a deducer that works directly on g.
+     */
+    public Deducer(IndexedGraph<GraphClass,Inclusion> g, boolean trace,
             boolean checking) {
-        graph = new CacheGraph<GraphClass,Inclusion>(g,
-                1*1000*1000, 5*1000*1000);
+        graph = g;
         graph.setChecking(checking);
         temporaries = new HashSet<GraphClass>(g.vertexSet().size());
+        registry = new ClassRegistry(g);
+        nodeConfidences = new HashMap<GraphClass,Integer>();
         idgenerator = null;
         this.trace = trace;
         this.checking = checking;
         if (trace) {
-            traceAnn = new Annotation<GraphClass,Inclusion,TraceData>(graph);
-            traceRelAnn= new Annotation<GraphClass,Inclusion,TraceData>(graph);
+            traceLog = new TraceLog(graph);
+            traceRelLog = new TraceLog(graph);
+            transitivity = traceLog.getDescIndex("Transitivity");
+            relTransitivity = traceRelLog.getDescIndex("Transitivity");
         }
         newclasses = null;
+        threads = 1;
     }
 
 
@@ -74,6 +124,79 @@ public class Deducer implements DeducerData {
     }
 
 
+    /**
+     * Set the number of threads used for testing the direct inclusions.
+     * The result doesn't depend on it.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+
+    /**
+     * Deduce semi-naively: After the first round of findTrivialOnce(), the
+     * RSub rules only examine the pairs involving classes or edges that were
+     * added since the previous round. The resulting graph is the same, but
+     * inclusions may be found in a different order and with a different
+     * trace.
+     */
+    public void setSemiNaive(boolean seminaive) {
+        this.seminaive = seminaive;
+    }
+
+
+    /**
+     * Collect statistics on the rule invocations from now on and return
+     * them.
+     */
+    public RuleStats collectStats() {
+        stats = new RuleStats(this);
+        return stats;
+    }
+
+
+    /**
+     * Return the confidence level at which we're currently deducing.
+     */
+    public int getConfidence() {
+        return confidence;
+    }
+
+
+    /**
+     * Return the number of the current iteration (confidence level).
+     */
+    public int getIteration() {
+        return iteration;
+    }
+
+
+    /**
+     * Return the number of the current round within the iteration.
+     */
+    public int getRound() {
+        return round;
+    }
+
+
+    /**
+     * Continue the deductions from snapshot s instead of starting from
+     * scratch. Must be called before findTrivialInclusions(), on a graph
+     * that contains only the input. Returns null if this is possible,
+     * otherwise the reason why not. The deductions are done semi-naively.
+     */
+    public String setSnapshot(Snapshot s) {
+        if (s.getVersion() != RULES_VERSION)
+            return "deduction rules changed";
+        String why = s.match(graph);
+        if (why == null) {
+            snapshot = s;
+            seminaive = true;
+        }
+        return why;
+    }
+
+
     //------------------------ Trivial inclusions ---------------------------
 
     /**
@@ -88,22 +211,37 @@ public class Deducer implements DeducerData {
             new RCheckType()
         };
 
-        for (RCheck check : checks)
+        for (RCheck check : checks) {
+            startRule();
             check.before(this);
+            stopRule("check", check, -1);
+        }
 
         separateUncertains();
         if (checking)
             graph.check();
-        GAlg.transitiveClosure(graph);
 
         confidence = Inclusion.CONFIDENCE_HIGHEST;
+        newedges = new ArrayList<Inclusion>();
+        ArrayList<GraphClass> start;
+        if (snapshot == null) {
+            startRule();
+            GAlg.transitiveClosure(graph);
+            stopRule("closure", "transitiveClosure", -1);
+            start = new ArrayList<GraphClass>(graph.vertexSet());
+        } else {
+            startRule();
+            start = restoreSnapshot();
+            stopRule("closure", "restoreSnapshot", -1);
+        }
+
         iteration = 0;
         do {
             System.out.print("confidence level: ");
             System.out.println(confidence);
 
             iteration++;
-            findTrivialInclusionsOneLevel();
+            findTrivialInclusionsOneLevel(start);
 
             if (checking)
                 graph.check();
@@ -111,12 +249,22 @@ public class Deducer implements DeducerData {
             if (uncertains.isEmpty())
                 break;
 
+            restoredclasses = new ArrayList<GraphClass>();
             do {
                 confidence--;
             } while (confidence >= Inclusion.CONFIDENCE_LOWEST  &&
-                    addUncertains() == 0);
+                    addUncertains() + restoreUncertains() == 0);
+            if (snapshot == null) {
+                start = new ArrayList<GraphClass>(graph.vertexSet());
+            } else {
+                // The snapshot deduced everything else on this level, but
+                // not with the new input classes.
+                start = new ArrayList<GraphClass>(snapshot.getNewClasses());
+                start.addAll(restoredclasses);
+            }
         } while (confidence >= Inclusion.CONFIDENCE_LOWEST);
 
+        deductionTemporaries = new HashSet<GraphClass>(temporaries);
         tempify();
 
         // Force error for checking the checks
@@ -131,16 +279,27 @@ public class Deducer implements DeducerData {
             addTrivialEdge(interval, chordal, newTraceData("Test"));
         }*/
 
-        for (RCheck check : checks)
-            check.after(this);
+        // Only what was added to the snapshot needs to be checked
+        if (snapshot != null)
+            snapshot.findAdded(this);
+        for (RCheck check : checks) {
+            startRule();
+            if (snapshot == null)
+                check.after(this);
+            else
+                check.afterAdded(this, snapshot.getAddedClasses(),
+                        snapshot.getAddedEdges());
+            stopRule("check", check, -1);
+        }
     }
 
 
     /**
-     * Deduce all trivial inclusions on the current confidence level.
+     * Deduce all trivial inclusions on the current confidence level, starting
+     * with the given new classes and the edges in newedges.
      * The resulting graph is transitively closed.
      */
-    private void findTrivialInclusionsOneLevel() {
+    private void findTrivialInclusionsOneLevel(ArrayList<GraphClass> start) {
         int oldnodes, oldedges;
         RClass[] classrules = new RClass[]{
             // (A,B)-free ==> A-free \cap B-free
@@ -154,9 +313,12 @@ public class Deducer implements DeducerData {
         };
         ArrayList<GraphClass> lastnewclasses = new ArrayList<GraphClass>();
 
-        newclasses = new ArrayList<GraphClass>(graph.vertexSet());
+        newclasses = start;
+        typedLookups = null;
+        round = 0;
  
         do {
+            round++;
             oldnodes = graph.vertexSet().size();
             oldedges = graph.edgeSet().size();
             System.out.print("Nodes: "+oldnodes);
@@ -168,8 +330,11 @@ public class Deducer implements DeducerData {
                 newclasses = new ArrayList<GraphClass>();
                 sortByID(added);
 
-                for (RClass r : classrules)
+                for (RClass r : classrules) {
+                    startRule();
                     r.run(this, added);
+                    stopRule("class", r, -1);
+                }
                 
                 lastnewclasses.addAll(added);
             } while (newclasses.size() > 0); 
@@ -182,7 +347,12 @@ public class Deducer implements DeducerData {
 
 
     private void findTrivialOnce(ArrayList<GraphClass> classes) {
-        RSub[] rules = new RSub[]{
+        if (seminaive) {
+            findTrivialDelta(classes);
+            return;
+        }
+
+        RSub<?,?>[] rules = new RSub<?,?>[]{
             new RSubComplement(),
             new RSubUnion(),
             new RSubIntersect(),
@@ -191,101 +361,250 @@ public class Deducer implements DeducerData {
             new RSubClique()
         };
 
-        // Maps a GraphClass type to all instances of that type in classes
-        HashMap<Class,ArrayList<GraphClass> > typedClasses = new HashMap<>();
+        // Maps a GraphClass type to all instances of that type
+        HashMap<Class<? extends GraphClass>,List<GraphClass> > typedClasses =
+                new HashMap<>();
 
-        //---- Create the lists of typedClasses...
-        for (RSub rule : rules) {
+        for (RSub<?,?> rule : rules) {
             RSubTyping type = rule.getClass().getAnnotation(RSubTyping.class);
             if (type == null)
                 throw new RuntimeException("Rule without annotation: "+
                         rule.getClass().getName());
 
-            if (!typedClasses.containsKey(type.superType()))
-                typedClasses.put(type.superType(),new ArrayList<GraphClass>());
-            if (!typedClasses.containsKey(type.subType()))
-                typedClasses.put(type.subType(), new ArrayList<GraphClass>());
-        }
-
-        //---- ...and fill them
-        for (GraphClass gc : graph.vertexSet()) {
-            for (Class c : typedClasses.keySet())
-                if (c.isInstance(gc))
-                    typedClasses.get(c).add(gc);
+            typedClasses.put(type.superType(), getClasses(type.superType()));
+            typedClasses.put(type.subType(), getClasses(type.subType()));
         }
 
         //---- Direct inclusions deserve special treatment
         System.out.println("direct");
         if (graph.vertexSet().size() > classes.size()) {
             // Some classes pre-existing, some new: Check all-new and new-all
-            new RSubDirect().run(this, graph.vertexSet(), classes);
-            new RSubDirect().run(this, classes, graph.vertexSet());
+            runDirect(graph.vertexSet(), classes);
+            runDirect(classes, graph.vertexSet());
         } else {
-            new RSubDirect().run(this, graph.vertexSet(), graph.vertexSet());
+            runDirect(graph.vertexSet(), graph.vertexSet());
         }
 
         //---- Now do all the other rules
-        for (RSub rule : rules) {
+        for (RSub<?,?> rule : rules) {
             RSubTyping type = rule.getClass().getAnnotation(RSubTyping.class);
             String name = rule.getClass().getName();
             System.out.println(name.substring(name.lastIndexOf('.')+1));
+            startRule();
             rule.run(this, typedClasses.get(type.superType()),
                     typedClasses.get(type.subType()));
+            stopRule("sub", rule, rule.getTested());
         }
     }
 
 
 
+    /**
+     * Semi-naive version of findTrivialOnce(): classes contains the classes
+     * and newedges the edges that were added since the previous call.
+     */
+    private void findTrivialDelta(ArrayList<GraphClass> classes) {
+        RSub<?,?>[] rules = new RSub<?,?>[]{
+            new RSubComplement(),
+            new RSubUnion(),
+            new RSubIntersect(),
+            new RSubHereditary(),
+            new RSubProbe(),
+            new RSubClique()
+        };
+        boolean all = graph.vertexSet().size() == classes.size();
+        Delta delta = new Delta(classes,
+                all ? new ArrayList<Inclusion>() : newedges);
+        newedges = new ArrayList<Inclusion>();
+
+        //---- Create or extend the typed lookups
+        if (all  ||  typedLookups == null) {
+            typedLookups =
+                    new HashMap<Class<? extends GraphClass>,ClassLookup>();
+            for (RSub<?,?> rule : rules) {
+                RSubTyping type =
+                        rule.getClass().getAnnotation(RSubTyping.class);
+                if (type == null)
+                    throw new RuntimeException("Rule without annotation: "+
+                            rule.getClass().getName());
+                for (Class<? extends GraphClass> c :
+                        Arrays.asList(type.superType(), type.subType()))
+                    if (!typedLookups.containsKey(c))
+                        typedLookups.put(c, new ClassLookup(c));
+            }
+            for (GraphClass gc : graph.vertexSet())
+                for (ClassLookup l : typedLookups.values())
+                    l.add(gc);
+        } else {
+            for (GraphClass gc : classes)
+                for (ClassLookup l : typedLookups.values())
+                    l.add(gc);
+        }
+
+        //---- Direct inclusions only depend on the classes themselves
+        System.out.println("direct");
+        if (!all) {
+            runDirect(graph.vertexSet(), classes);
+            runDirect(classes, graph.vertexSet());
+        } else {
+            runDirect(graph.vertexSet(), graph.vertexSet());
+        }
+
+        //---- The other rules also look at the new edges
+        System.out.println("new edges: "+ delta.getEdges().size());
+        for (RSub<?,?> rule : rules) {
+            RSubTyping type = rule.getClass().getAnnotation(RSubTyping.class);
+            String name = rule.getClass().getName();
+            System.out.println(name.substring(name.lastIndexOf('.')+1));
+            startRule();
+            rule.runDelta(this, delta, typedLookups.get(type.superType()),
+                    typedLookups.get(type.subType()));
+            stopRule("sub", rule, rule.getTested());
+        }
+    }
+
+
+    /**
+     * Run RSubDirect on supers, subs, in parallel if so requested.
+     */
+    private void runDirect(Iterable<GraphClass> supers,
+            Iterable<GraphClass> subs) {
+        RSubDirect rule = new RSubDirect();
+        startRule();
+        if (threads > 1)
+            rule.runParallel(this, supers, subs, threads);
+        else
+            rule.run(this, supers, subs);
+        stopRule("sub", rule, rule.getTested());
+        System.out.println("direct: tested "+ rule.getTested() +" of "+
+                rule.getPairs() +" pairs");
+    }
+
+
+
     //------------------------ Proper inclusions ---------------------------
 
     /**
      * Mark (already found) inclusions as proper.
      */
     public void findTrivialPropers() {
-        RProper[] rules = new RProper[]{
+        RProper<?>[] rules = new RProper<?>[]{
             new RProperComplement(),
             new RProperProbe(),
             new RProperForbiddenSub()
         };
 
-        // Maps a GraphClass type to all instances of that type in classes
-        HashMap<Class,ArrayList<GraphClass> > typedClasses = new HashMap<>();
+        // Maps a GraphClass type to all instances of that type
+        HashMap<Class<? extends GraphClass>,List<GraphClass> > typedClasses =
+                new HashMap<>();
 
-        //---- Create the lists of typedClasses...
-        for (RProper rule : rules) {
+        for (RProper<?> rule : rules) {
             RProperTyping type =
                     rule.getClass().getAnnotation(RProperTyping.class);
             if (type == null)
                 throw new RuntimeException("Rule without annotation: "+
                         rule.getClass().getName());
 
-            if (!typedClasses.containsKey(type.type()))
-                typedClasses.put(type.type(),new ArrayList<GraphClass>());
+            typedClasses.put(type.type(), getClasses(type.type()));
         }
 
-        //---- ...and fill them
-        for (GraphClass gc : graph.vertexSet()) {
-            for (Class c : typedClasses.keySet())
-                if (c.isInstance(gc))
-                    typedClasses.get(c).add(gc);
+        // When continuing from a snapshot, only what was added to it, and
+        // the inclusions that become proper because of that, are examined.
+        ArrayList<Inclusion> added = null;
+        List<Inclusion> changed = null;
+        startRule();
+        initProperRows();
+        if (snapshot == null) {
+            transitiveClosePropers(graph.edgeSet());
+        } else {
+            snapshot.restorePropers(this);
+            snapshot.restoreRelationTraces(this);
+            properRows = new BitSet[properRows.length];
+            added = new ArrayList<Inclusion>();
+            newpropers = added;
+            transitiveClosePropers(snapshot.getAddedEdges());
+            closeAddedPropers(snapshot.getAddedEdges());
         }
+        stopRule("proper", "transitiveClosePropers", -1);
+        RProper<?> direct = new RProperDirect();
+        startRule();
+        if (snapshot == null) {
+            direct.run(this, graph.vertexSet());
+        } else {
+            direct.runAdded(this, graph.vertexSet(),
+                    snapshot.getAddedClasses(), snapshot.getAddedEdges());
+            changed = new ArrayList<Inclusion>(snapshot.getAddedEdges());
+            changed.addAll(added);
+        }
+        stopRule("proper", direct, -1);
 
-        transitiveClosePropers(graph.edgeSet());
-        new RProperDirect().run(this, graph.vertexSet());
-
-        //---- Repeatedly deduce properness of inclusions
+        //---- Repeatedly deduce properness of inclusions. The first round
+        // examines everything (or what was added to the snapshot), the next
+        // ones only what the inclusions that became proper in the previous
+        // round may affect.
+        round = 0;
         do {
-            newproper = false;
-            for (RProper rule : rules) {
+            round++;
+            newpropers = new ArrayList<Inclusion>();
+            for (RProper<?> rule : rules) {
                 RProperTyping type =
                         rule.getClass().getAnnotation(RProperTyping.class);
                 String name = rule.getClass().getName();
                 System.out.println(name.substring(name.lastIndexOf('.')+1));
-                rule.run(this, typedClasses.get(type.type()));
+                startRule();
+                if (changed == null)
+                    rule.run(this, typedClasses.get(type.type()));
+                else if (round == 1)
+                    rule.runAdded(this, typedClasses.get(type.type()),
+                            snapshot.getAddedClasses(), changed);
+                else
+                    rule.runDelta(this, typedClasses.get(type.type()),
+                            changed);
+                stopRule("proper", rule, -1);
             }
-        } while (newproper);
+            if (added != null)
+                added.addAll(newpropers);
+            changed = newpropers;
+            System.out.println("new propers: "+ changed.size());
+        } while (!changed.isEmpty());
+        newpropers = null;
+        reachRows = properRows = null;
+
+        RCheck check = new RCheckProper();
+        startRule();
+        if (snapshot == null) {
+            check.after(this);
+        } else {
+            added.addAll(snapshot.getAddedEdges());
+            check.afterAdded(this, snapshot.getAddedClasses(), added);
+        }
+        stopRule("check", check, -1);
+    }
+
+
+    /**
+     * Start keeping the out-neighbours and proper out-edges of the nodes as
+     * bitsets, for setProper(). The rows are created when first needed and
+     * kept until the graph changes.
+     */
+    private void initProperRows() {
+        reachRows = new BitSet[graph.getVertexIDBound()];
+        properRows = new BitSet[reachRows.length];
+        rowsModCount = graph.getModCount();
+    }
 
-        new RCheckProper().after(this);
+
+    /**
+     * Return the proper out-edges of the node with id v as a bitset.
+     */
+    private BitSet properRow(int v) {
+        if (properRows[v] == null) {
+            properRows[v] = new BitSet(properRows.length);
+            for (int w : graph.getOutNeighbourIDs(v))
+                if (edgeByID(v, w).isProper())
+                    properRows[v].set(w);
+        }
+        return properRows[v];
     }
 
 
@@ -307,6 +626,37 @@ public class Deducer implements DeducerData {
     }
 
     
+    /**
+     * Ensure properness transitivity for the edges that were added to a
+     * snapshot, whose proper inclusions are already transitively closed:
+     * u -> w is proper if u -> v was added and v -> w is proper, and
+     * t -> v is proper if t -> u is proper and u -> v was added. Inclusions
+     * that become proper are closed by setProper().
+     */
+    private void closeAddedPropers(List<Inclusion> edges) {
+        BitSet missing = new BitSet(properRows.length);
+
+        for (Inclusion e : edges) {
+            int u = graph.getVertexID(e.getSuper());
+            int v = graph.getVertexID(e.getSub());
+            missing.clear();
+            missing.or(properRow(v));
+            missing.andNot(properRow(u));
+            missing.clear(u);
+            for (int w = missing.nextSetBit(0); w >= 0;
+                    w = missing.nextSetBit(w+1))
+                setProper(edgeByID(u, w), newTraceData("Transitivity",
+                        e, edgeByID(v, w)));
+            for (int t : graph.getInNeighbourIDs(u)) {
+                if (t != v  &&  properRow(t).get(u)  &&
+                        !properRow(t).get(v))
+                    setProper(edgeByID(t, v), newTraceData("Transitivity",
+                            edgeByID(t, u), e));
+            }
+        }
+    }
+
+    
     //------------------------ "Transitive reduction" -----------------------
     
     /**
@@ -318,40 +668,7 @@ public class Deducer implements DeducerData {
      * Returns the deleted edges.
      */
     public Collection<Inclusion> deleteSuperfluousEdgesFull(){
-        int i;
-        final List<Inclusion> deleted = new ArrayList<Inclusion>();
-        Map<GraphClass,Set<GraphClass> > scc = GAlg.calcSCCMap(graph);
-
-        for (Inclusion edge : graph.edgeSet()) {
-            final GraphClass src = graph.getEdgeSource(edge);
-            final GraphClass dest = graph.getEdgeTarget(edge);
-
-            if (scc.get(src) == scc.get(dest))
-                continue;
-
-            final Inclusion theedge = edge;
-            final ArrayList<GraphClass> reached = new ArrayList<>();
-
-            new BFSWalker<GraphClass,Inclusion>(graph, src, null,
-                    GraphWalker.InitCode.DYNAMIC) {
-                public void explore(Inclusion e, GraphClass from,
-                        GraphClass to) {
-                    if (e != theedge  &&  !deleted.contains(e))
-                        super.explore(e, from, to);
-                }
-                public void visit(GraphClass v) {
-                    if (v == dest) {
-                        reached.add(v);
-                        q.clear();
-                    }
-                    else
-                        super.visit(v);
-                }
-
-            }.run();
-            if (!reached.isEmpty())
-                deleted.add(edge);
-        }
+        List<Inclusion> deleted = GAlg.condensationReduction(graph);
 
         for (Inclusion e : deleted)
             removeEdge(e);
@@ -366,14 +683,33 @@ public class Deducer implements DeducerData {
     public Collection<Inclusion> deleteSuperfluousEdges() {
         Collection<Inclusion> deleted = new ArrayList<Inclusion>();
 
-        // First delete the bulk using weighted shortest paths
-        WeightedGraph<GraphClass,Inclusion> wg = keeperWeightedGraph();
-        FloydWarshallShortestPaths<GraphClass,Inclusion> fw =
-            new FloydWarshallShortestPaths<GraphClass,Inclusion>(wg);
+        // First delete the bulk: An edge with prio p can surely be deleted
+        // if a path over edges with a higher prio exists. This is the same
+        // as weighting the edges by prio (2->0.0001, 1->1, 0->10000) and
+        // deleting every edge that is heavier than the shortest path between
+        // its ends (as long as there are less than 10000 classes).
+        final int[] prios = new int[graph.getEdgeIDBound()];
         for (Inclusion e : graph.edgeSet())
-            if (keeperWeight(e) > fw.shortestDistance(
+            prios[graph.getEdgeID(e)] = keeperPrio(e);
+
+        List<BitClosure<GraphClass,Inclusion> > closures =
+                new ArrayList<BitClosure<GraphClass,Inclusion> >();
+        for (int prio = 0; prio < 2; prio++) {
+            final int min = prio+1;
+            closures.add(new BitClosure<GraphClass,Inclusion>(graph,
+                    new UnaryFunction<Inclusion,Boolean>() {
+                        public Boolean execute(Inclusion e) {
+                            return prios[graph.getEdgeID(e)] >= min;
+                        }
+                    }));
+        }
+
+        for (Inclusion e : graph.edgeSet()) {
+            int prio = prios[graph.getEdgeID(e)];
+            if (prio < 2  &&  closures.get(prio).reaches(
                     graph.getEdgeSource(e), graph.getEdgeTarget(e)))
                 deleted.add(e);
+        }
         for (Inclusion e : deleted)
             removeEdge(e);
 
@@ -387,57 +723,102 @@ public class Deducer implements DeducerData {
     /**
      * Removes edges with the given prio, provided a path from src to dest
      * remains in the graph. Like a restricted transitive reduction.
+     * The edges are handled in the order of edgeSet(). Deleting an edge for
+     * which another path exists doesn't change the reachability, so the SCCs
+     * are fixed. An edge between SCCs can be deleted iff its SCCs are joined
+     * by another edge or by a path through a third SCC. Only an edge inside
+     * an SCC requires a search, restricted to its SCC.
      * Returns the deleted edges as list of Inclusions.
      */
     private Collection<Inclusion> deleteSuperfluousEdges(int prio){
-        final HashSet<Inclusion> deleted = new HashSet<Inclusion>();
+        List<Inclusion> deleted = new ArrayList<Inclusion>();
+        List<Inclusion> candidates = new ArrayList<Inclusion>();
+
+        for (Inclusion e : graph.edgeSet())
+            if (keeperPrio(e) == prio)
+                candidates.add(e);
+        if (candidates.isEmpty())
+            return deleted;
 
-        for (Inclusion edge : graph.edgeSet()) {
-            if (keeperPrio(edge) != prio)
+        BitClosure<GraphClass,Inclusion> closure =
+                new BitClosure<GraphClass,Inclusion>(graph);
+
+        // The number of edges between every pair of different SCCs
+        Map<Long,int[]> parallel = new HashMap<Long,int[]>();
+        for (Inclusion e : graph.edgeSet()) {
+            long key = sccPair(closure, e);
+            if (key < 0)
                 continue;
+            int[] count = parallel.get(key);
+            if (count == null)
+                parallel.put(key, count = new int[1]);
+            count[0]++;
+        }
 
-            final GraphClass src = graph.getEdgeSource(edge);
-            final GraphClass dest = graph.getEdgeTarget(edge);
-            final Inclusion theedge = edge;
-            final ArrayList<GraphClass> reached = new ArrayList<>();
-
-            new BFSWalker<GraphClass,Inclusion>(graph, src, null,
-                    GraphWalker.InitCode.DYNAMIC) {
-                public void explore(Inclusion e, GraphClass from,
-                        GraphClass to) {
-                    if (e != theedge  &&  !deleted.contains(e))
-                        super.explore(e, graph.getEdgeSource(e),
-                                graph.getEdgeTarget(e));
-                }
-                public void visit(GraphClass v) {
-                    if (v == dest) {
-                        reached.add(v);
-                        q.clear();
-                    }
-                    else
-                        super.visit(v);
-                }
+        for (Inclusion e : candidates) {
+            GraphClass src = graph.getEdgeSource(e);
+            GraphClass dest = graph.getEdgeTarget(e);
+            int c = closure.getSCC(src);
+            int d = closure.getSCC(dest);
+            boolean superfluous;
+
+            if (c != d) {
+                int[] count = parallel.get(sccPair(closure, e));
+                superfluous = count[0] > 1  ||  closure.reachesIndirectly(c,d);
+                if (superfluous)
+                    count[0]--;
+            } else {
+                superfluous = reachesInSCC(closure, e);
+            }
 
-            }.run();
-            if (!reached.isEmpty())
-                deleted.add(edge);
+            if (superfluous) {
+                removeEdge(e);
+                deleted.add(e);
+            }
         }
 
-        for (Inclusion e : deleted)
-            removeEdge(e);
         return deleted;
     }
 
 
     /**
-     * Return a weighted version of the deductions graph, designed for easily
-     * recognizing edges that can deleted (see keeperWeight).
+     * Return the SCCs of the ends of e packed in a long, or -1 if both ends
+     * are in the same SCC.
      */
-    private WeightedGraph<GraphClass,Inclusion> keeperWeightedGraph() {
-        Map<Inclusion,Double> map = new HashMap<Inclusion,Double>();
-        for (Inclusion e : graph.edgeSet())
-            map.put(e, new Double(keeperWeight(e)));
-        return new AsWeightedDirectedGraph<>(graph, map);
+    private long sccPair(BitClosure<GraphClass,Inclusion> closure,
+            Inclusion e) {
+        int c = closure.getSCC(graph.getEdgeSource(e));
+        int d = closure.getSCC(graph.getEdgeTarget(e));
+        return c == d ? -1 : ((long) c << 32) | d;
+    }
+
+
+    /**
+     * Return true iff the target of e can be reached from its source without
+     * using e. Both ends must be in the same SCC, so only paths inside this
+     * SCC need to be considered.
+     */
+    private boolean reachesInSCC(BitClosure<GraphClass,Inclusion> closure,
+            Inclusion e) {
+        GraphClass src = graph.getEdgeSource(e);
+        GraphClass dest = graph.getEdgeTarget(e);
+        int c = closure.getSCC(src);
+        Set<GraphClass> seen = new HashSet<GraphClass>();
+        ArrayDeque<GraphClass> q = new ArrayDeque<GraphClass>();
+
+        seen.add(src);
+        q.add(src);
+        while (!q.isEmpty()) {
+            for (Inclusion f : graph.outgoingEdgesOf(q.remove())) {
+                GraphClass to = graph.getEdgeTarget(f);
+                if (f == e  ||  closure.getSCC(to) != c  ||  !seen.add(to))
+                    continue;
+                if (to == dest)
+                    return true;
+                q.add(to);
+            }
+        }
+        return false;
     }
 
 
@@ -451,29 +832,15 @@ public class Deducer implements DeducerData {
         if (e.getRefs() != null  &&  !e.getRefs().isEmpty())
             return 2;
 
-        TraceData td = traceAnn.getEdge(e);
+        String desc = traceLog.getDesc(e);
 
-        if (td == null  ||  "Transitivity".equals(td.getDesc()))
+        if (desc == null  ||  "Transitivity".equals(desc))
             return 0;
 
         return 1;
     }
 
 
-    /*
-     * Return weights for the edges of the deductions graph, designed for
-     * easily recognizing edges that can deleted. Every edge has weight
-     * depending on keeperPrio: 2->0.0001, 1->1, 0->10000. If the shortest path
-     * a->b is shorter than the edge weight, this means the edge can surely be
-     * deleted.
-     */
-    private double keeperWeight(Inclusion e) {
-        final double[] weights = {10000.0, 1.0, 0.0001};
-        return weights[keeperPrio(e)];
-    }
-
-
-
 
     //====================== Various public methods =======================
 
@@ -481,26 +848,26 @@ public class Deducer implements DeducerData {
      * Adds reference strings for trivially deduced inclusions.
      */
     public void addRefs() {
-        TraceData tr;
+        String desc;
 
         for (Inclusion e : graph.edgeSet()) {
-            tr = traceAnn.getEdge(e);
-            if (tr == null)
+            desc = traceLog.getDesc(e);
+            if (desc == null)
                 continue;
 
-            if ("direct".equals(tr.getDesc())) {
+            if ("direct".equals(desc)) {
                 e.addRef(new Ref( graph.getEdgeTarget(e).whySubClassOf() ));
-            } else if ("addForbiddenSuper".equals(tr.getDesc())) {
+            } else if ("addForbiddenSuper".equals(desc)) {
                 e.addRef(new Ref("forbidden"));
-            } else if ("addForbiddenSuperConfig".equals(tr.getDesc())) {
+            } else if ("addForbiddenSuperConfig".equals(desc)) {
                 e.addRef(new Ref("forbidden"));
-            } else if ("extendForbidden".equals(tr.getDesc())) {
+            } else if ("extendForbidden".equals(desc)) {
                 e.addRef(new Ref("forbidden"));
-            } else if ("complement".equals(tr.getDesc())) {
+            } else if ("complement".equals(desc)) {
                 e.addRef(new Ref("complement"));
-            } else if ("probeclass".equals(tr.getDesc())) {
+            } else if ("probeclass".equals(desc)) {
                 e.addRef(new Ref("basederived"));
-            } else if ("cliqueclass".equals(tr.getDesc())) {
+            } else if ("cliqueclass".equals(desc)) {
                 e.addRef(new Ref("basederived"));
             }
         }
@@ -513,6 +880,7 @@ public class Deducer implements DeducerData {
     public void removeTemp() {
         for (GraphClass temp : temporaries)
             graph.removeVertex(temp);
+        registry.remove(temporaries);
     }
 
     /**
@@ -520,7 +888,7 @@ public class Deducer implements DeducerData {
      */
     public void printTrace(PrintWriter writer, Inclusion e) {
         if (trace)
-            TraceData.print(writer, e, traceAnn);
+            traceLog.print(writer, e);
     }
 
 
@@ -529,7 +897,7 @@ public class Deducer implements DeducerData {
      */
     public void printRelationTrace(PrintWriter writer, Inclusion e) {
         if (trace  &&  e.isProper())
-            TraceData.print(writer, e, traceRelAnn);
+            traceRelLog.print(writer, e);
     }
 
 
@@ -554,6 +922,36 @@ public class Deducer implements DeducerData {
     }
 
 
+    /**
+     * Return the nodes of the given type, in the order of
+     * getGraph().vertexSet(). Nodes added later are not included, so nodes
+     * may be added while iterating over the result.
+     */
+    public List<GraphClass> getClasses(Class<? extends GraphClass> type) {
+        return registry.get(type);
+    }
+
+
+    /**
+     * Return a map from the nodes to their SCCs, like GAlg.calcSCCMap().
+     * The graph must be transitively closed. The map must not be modified
+     * and is valid until the graph changes.
+     */
+    public Map<GraphClass,Set<GraphClass> > getSCCMap() {
+        if (sccs == null)
+            sccs = new SCCIndex<GraphClass,Inclusion>(graph);
+        Map<GraphClass,Set<GraphClass> > res = sccs.getMap();
+
+        if (checking) {
+            Map<GraphClass,Set<GraphClass> > check = GAlg.calcSCCMap(graph);
+            for (GraphClass gc : graph.vertexSet())
+                if (!res.get(gc).equals(check.get(gc)))
+                    throw new RuntimeException("SCC index wrong for "+ gc);
+        }
+        return res;
+    }
+
+
     /**
      * Sort the given list of nodes by id.
      */
@@ -608,7 +1006,7 @@ public class Deducer implements DeducerData {
         //System.out.println(from.getGraphClass() +" -> "+ to.getGraphClass());
         Inclusion e = addEdge(from, to);
         if (trace)
-            traceAnn.setEdge(e, tr);
+            traceLog.set(e, tr);
 
         //---- Maintain transitivity
         Inclusion trans;
@@ -626,8 +1024,8 @@ public class Deducer implements DeducerData {
                     " = "+ tos[i].getID() +" "+ tos[i]);
                 trans = addEdge(from, tos[i]);
                 if (trace) {
-                    traceAnn.setEdge(trans, new TraceData("Transitivity", e,
-                            getEdge(to, tos[i])));
+                    traceLog.set(graph.getEdgeID(trans), transitivity,
+                            graph.getEdgeID(e), edgeID(to, tos[i]));
                 }
             }
 
@@ -639,8 +1037,8 @@ public class Deducer implements DeducerData {
                         v.getID() +" "+ v +" = "+ to.getID() +" "+ to);
                 trans = addEdge(v, to);
                 if (trace)
-                    traceAnn.setEdge(trans,
-                           new TraceData("Transitivity", getEdge(v, from), e));
+                    traceLog.set(graph.getEdgeID(trans), transitivity,
+                            edgeID(v, from), graph.getEdgeID(e));
             }
             // add super(from) -> tos
             for (i = 0; i < tos.length; i++)
@@ -650,9 +1048,9 @@ public class Deducer implements DeducerData {
                         " = "+ tos[i].getID() +" "+ tos[i]);
                     trans = addEdge(v, tos[i]);
                     if (trace) {
-                        traceAnn.setEdge(trans,
-                               new TraceData("Transitivity", getEdge(v, from),
-                                       e, getEdge(to, tos[i])));
+                        traceLog.set(graph.getEdgeID(trans), transitivity,
+                                edgeID(v, from), graph.getEdgeID(e),
+                                edgeID(to, tos[i]));
                     }
                 }
         }
@@ -661,6 +1059,120 @@ public class Deducer implements DeducerData {
     }
 
 
+    /**
+     * Add the trivially deduced inclusions of batch, as if by calling
+     * addTrivialEdge() for each of them in order, so the result and the
+     * traces are the same. Returns the added inclusions, with null for those
+     * that existed already.
+     * The out-neighbours of the nodes involved are kept as bitsets for the
+     * whole batch, so a superclass of from that already contains all
+     * subclasses of to costs a few word operations instead of a lookup per
+     * subclass.
+     */
+    public Inclusion[] addTrivialEdges(EdgeBatch batch) {
+        Inclusion[] res = new Inclusion[batch.size()];
+        BitSet[] rows = new BitSet[graph.getVertexIDBound()];
+        BitSet missing = new BitSet();
+
+        for (int k = 0; k < batch.size(); k++) {
+            int f = graph.getVertexID(batch.getFrom(k));
+            int t = graph.getVertexID(batch.getTo(k));
+            if (f == t  ||  row(rows, f).get(t))
+                continue;
+            Inclusion e = addBatchEdge(rows, f, t);
+            if (trace)
+                traceLog.set(e, batch.getTrace(k));
+            res[k] = e;
+            int ft = graph.getEdgeID(f, t);
+
+            //---- Maintain transitivity
+            int[] tos = graph.getOutNeighbourIDs(t);
+            BitSet tosRow = row(rows, t);
+
+            // Add from -> tos
+            missing.clear();
+            missing.or(tosRow);
+            missing.andNot(rows[f]);
+            missing.clear(f);
+            for (int w : tos)
+                if (missing.get(w)) {
+                    addBatchEdge(rows, f, w);
+                    if (trace)
+                        traceLog.set(graph.getEdgeID(f, w), transitivity,
+                                ft, graph.getEdgeID(t, w));
+                }
+
+            for (int v : graph.getInNeighbourIDs(f)) {
+                BitSet vRow = row(rows, v);
+                // add super(from) -> to
+                if (v != t  &&  !vRow.get(t)) {
+                    addBatchEdge(rows, v, t);
+                    if (trace)
+                        traceLog.set(graph.getEdgeID(v, t), transitivity,
+                                graph.getEdgeID(v, f), ft);
+                }
+                // add super(from) -> tos
+                missing.clear();
+                missing.or(tosRow);
+                missing.andNot(vRow);
+                missing.clear(v);
+                if (missing.isEmpty())
+                    continue;
+                for (int w : tos)
+                    if (missing.get(w)) {
+                        addBatchEdge(rows, v, w);
+                        if (trace)
+                            traceLog.set(graph.getEdgeID(v, w), transitivity,
+                                    graph.getEdgeID(v, f), ft,
+                                    graph.getEdgeID(t, w));
+                    }
+            }
+        }
+
+        return res;
+    }
+
+
+    /**
+     * Return the out-neighbours of the node with id v as a bitset, creating
+     * it in rows if needed.
+     */
+    private BitSet row(BitSet[] rows, int v) {
+        if (rows[v] == null) {
+            rows[v] = new BitSet(rows.length);
+            for (int w : graph.getOutNeighbourIDs(v))
+                rows[v].set(w);
+        }
+        return rows[v];
+    }
+
+
+    /**
+     * Add the edge between the nodes with ids v, w and record it in rows.
+     */
+    private Inclusion addBatchEdge(BitSet[] rows, int v, int w) {
+        if (rows[v] != null)
+            rows[v].set(w);
+        return addEdge(graph.getVertex(v), graph.getVertex(w));
+    }
+
+
+    /**
+     * Return the edge between the nodes with ids v, w.
+     */
+    private Inclusion edgeByID(int v, int w) {
+        return graph.getEdge(graph.getEdgeID(v, w));
+    }
+
+
+    /**
+     * Return the id of the edge from -> to, or -1 if there is none.
+     */
+    private int edgeID(GraphClass from, GraphClass to) {
+        return graph.getEdgeID(graph.getVertexID(from), graph.getVertexID(to));
+    }
+
+
     /**
      * Set the properflag for an edge to true and do this for the transitive
      * inclusions as well.
@@ -668,55 +1180,59 @@ public class Deducer implements DeducerData {
     public void setProper(Inclusion e, TraceData t) {
         if (e == null  ||  e.isProper())
             return;
+        if (properRows == null  ||  rowsModCount != graph.getModCount())
+            initProperRows();
 
-        newproper = true;
-        e.setProper(true);
+        int f = graph.getVertexID(graph.getEdgeSource(e));
+        int to = graph.getVertexID(graph.getEdgeTarget(e));
+        markProper(f, to, e);
         if (trace)
-            traceRelAnn.setEdge(e, t);
-
-        GraphClass from = graph.getEdgeSource(e);
-        GraphClass to = graph.getEdgeTarget(e);
+            traceRelLog.set(e, t);
  
-        // Maintain transitivity
-        Inclusion trans;
-        // Collect out-neighbours of to in tos
-        GraphClass[] tos = new GraphClass[graph.outDegreeOf(to)];
-        int i = 0;
-        for (GraphClass g : GAlg.outNeighboursOf(graph, to))
-            tos[i++] = g;
-        
-        for (i = 0; i < tos.length; i++)
-            if (from != tos[i]  &&  containsEdge(from, tos[i])  &&
-                    (trans = getEdge(from, tos[i])) != null &&
-                    !trans.isProper()) {
-                trans.setProper(true);
-                if (trace)
-                    traceRelAnn.setEdge(trans, newTraceData("Transitivity",e));
-            }
+        //---- Maintain transitivity: v -> w for v in from + super(from), w in
+        // to + sub(to)
+        BitSet tos = (BitSet) row(reachRows, to).clone();
+        tos.set(to);
+        BitSet missing = new BitSet(reachRows.length);
+        int id = graph.getEdgeID(f, to);
+        markPropers(f, tos, missing, id);
+        for (int v : graph.getInNeighbourIDs(f))
+            markPropers(v, tos, missing, id);
+    }
 
-        for (GraphClass v : GAlg.inNeighboursOf(graph, from)) {
-            // add super(from) -> to
-            if (v != to  &&  containsEdge(v, to)  &&
-                    (trans = getEdge(v, to)) != null &&
-                    !trans.isProper()) {
-                trans.setProper(true);
-                if (trace)
-                    traceRelAnn.setEdge(trans, newTraceData("Transitivity",e));
-            }
-            // add super(from) -> tos
-            for (i = 0; i < tos.length; i++)
-                if (v != tos[i]  &&  containsEdge(v, tos[i])  &&
-                        (trans = getEdge(v, tos[i])) != null &&
-                        !trans.isProper()) {
-                    trans.setProper(true);
-                    if (trace)
-                        traceRelAnn.setEdge(trans,
-                                newTraceData("Transitivity",e));
-                }
+
+    /**
+     * Mark the edges from the node with id v to the nodes in tos as proper
+     * because the edge with id e is proper. missing is used as scratch space.
+     */
+    private void markPropers(int v, BitSet tos, BitSet missing, int e) {
+        missing.clear();
+        missing.or(tos);
+        missing.and(row(reachRows, v));
+        missing.andNot(properRow(v));
+        missing.clear(v);
+        for (int w = missing.nextSetBit(0); w >= 0;
+                w = missing.nextSetBit(w+1)) {
+            Inclusion trans = edgeByID(v, w);
+            markProper(v, w, trans);
+            if (trace)
+                traceRelLog.set(graph.getEdgeID(v, w), relTransitivity, e);
         }
     }
 
 
+    /**
+     * Set the properflag of the edge e between the nodes with ids v, w.
+     */
+    private void markProper(int v, int w, Inclusion e) {
+        e.setProper(true);
+        properRow(v).set(w);
+        propersSet++;
+        if (newpropers != null)
+            newpropers.add(e);
+    }
+
+
     /**
      * Return true iff gc is a temporary node.
      */
@@ -763,7 +1279,7 @@ public class Deducer implements DeducerData {
     private void separateUncertains() {
         int i;
 
-        uncertains = new HashSet<Inclusion>();
+        uncertains = new LinkedHashSet<Inclusion>();
         for (Inclusion e : graph.edgeSet()) {
             if (e.getConfidence() < Inclusion.CONFIDENCE_HIGHEST)
                 uncertains.add(e);
@@ -782,24 +1298,147 @@ public class Deducer implements DeducerData {
      */
     private int addUncertains() {
         Inclusion e;
-        int i = 0;
+        ArrayList<Inclusion> added = new ArrayList<Inclusion>();
 
         Iterator<Inclusion> iter = uncertains.iterator();
         while (iter.hasNext()) {
             e =  iter.next();
             if (e.getConfidence() == confidence) {
-                if (!containsEdge(e.getSuper(), e.getSub())) {
-                    Inclusion e2 =
-                            addTrivialEdge(e.getSuper(), e.getSub(), null);
-                    e2.setConfidence(e.getConfidence());
-                    e2.setProper(e.isProper());
-                    e2.setRefs(e.getRefs());
-                }
+                added.add(e);
                 iter.remove();
-                i++;
             }
         }
-        return i;
+        addInputs(added);
+        return added.size();
+    }
+
+
+    /**
+     * Add the input edges es, that are not in the graph, with transitivity.
+     * Returns the added edges, with null for those that were deduced
+     * already, which are skipped.
+     */
+    private Inclusion[] addInputs(List<Inclusion> es) {
+        EdgeBatch batch = new EdgeBatch();
+        for (Inclusion e : es)
+            batch.add(e.getSuper(), e.getSub(), null);
+
+        Inclusion[] res = addTrivialEdges(batch);
+        for (int i = 0; i < res.length; i++)
+            if (res[i] != null)
+                setInput(res[i], es.get(i));
+        return res;
+    }
+
+
+    /**
+     * Make e the input inclusion input, with its confidence, properness and
+     * references.
+     */
+    private void setInput(Inclusion e, Inclusion input) {
+        e.setConfidence(input.getConfidence());
+        e.setProper(input.isProper());
+        e.setRefs(input.getRefs());
+    }
+
+
+    //---------------------- Private statistics methods -----------------
+
+    /**
+     * Start measuring a rule invocation, if collecting statistics, and its
+     * flight recorder event.
+     */
+    private void startRule() {
+        if (stats != null)
+            stats.start();
+        ruleEvent = new RuleEvent();
+        if (ruleEvent.isEnabled()) {
+            eventNodes = graph.vertexSet().size();
+            eventEdges = graph.edgeSet().size();
+            eventEdgesAdded = edgesAdded;
+            eventClassesAdded = classesAdded;
+            eventPropersSet = propersSet;
+        }
+        ruleEvent.begin();
+    }
+
+
+    /**
+     * Record the rule invocation since startRule(), if collecting
+     * statistics, and commit its flight recorder event if it is recorded.
+     */
+    private void stopRule(String phase, Object rule, long pairs) {
+        ruleEvent.end();
+        if (stats != null)
+            stats.stop(phase, rule, pairs);
+        if (ruleEvent.shouldCommit()) {
+            ruleEvent.phase = phase;
+            ruleEvent.rule = rule instanceof String ?
+                    (String) rule : rule.getClass().getSimpleName();
+            ruleEvent.confidence = confidence;
+            ruleEvent.iteration = getIteration();
+            ruleEvent.round = getRound();
+            ruleEvent.nodes = eventNodes;
+            ruleEvent.edges = eventEdges;
+            ruleEvent.pairs = pairs;
+            ruleEvent.edgesAdded = edgesAdded - eventEdgesAdded;
+            ruleEvent.classesAdded = classesAdded - eventClassesAdded;
+            ruleEvent.propersSet = propersSet - eventPropersSet;
+            ruleEvent.commit();
+        }
+        ruleEvent = null;
+    }
+
+
+    //---------------------- Private snapshot methods -------------------
+
+    /**
+     * Restore the graph as it was in the snapshot after deducing on the
+     * highest confidence level, and add the new input edges of this level.
+     * Returns the new input classes.
+     */
+    private ArrayList<GraphClass> restoreSnapshot() {
+        ArrayList<Inclusion> added = new ArrayList<Inclusion>();
+
+        // The uncertain ones have been removed already
+        for (Inclusion e : snapshot.getNewInclusions())
+            if (e.getConfidence() == confidence)
+                added.add(e);
+        for (Inclusion e : added)
+            graph.removeEdge(e);
+
+        snapshot.restoreClasses(this, confidence);
+        snapshot.restoreEdges(this, confidence);
+        Inclusion[] res = addInputs(added);
+
+        // From scratch, the input edges are in the graph before anything is
+        // deduced, so one that the snapshot implies is still an input edge.
+        for (int i = 0; i < res.length; i++) {
+            if (res[i] != null)
+                continue;
+            Inclusion e = getEdge(added.get(i).getSuper(),
+                    added.get(i).getSub());
+            setInput(e, added.get(i));
+            if (trace)
+                traceLog.set(e, null);
+        }
+
+        System.out.println("Continuing from snapshot with "+
+                snapshot.getNewClasses().size() +" new classes and "+
+                snapshot.getNewInclusions().size() +" new inclusions");
+        return new ArrayList<GraphClass>(snapshot.getNewClasses());
+    }
+
+
+    /**
+     * Restore the deduced classes and edges of the snapshot on the current
+     * confidence level. Returns the number of edges added.
+     */
+    private int restoreUncertains() {
+        if (snapshot == null)
+            return 0;
+        snapshot.restoreClasses(this, confidence);
+        return snapshot.restoreEdges(this, confidence);
     }
 
 
@@ -829,8 +1468,8 @@ public class Deducer implements DeducerData {
             tempEqForbidden(forb);
         }
 
-        for (GraphClass gc : graph.vertexSet()) {
-            if (!(gc instanceof SetClass)  ||  temporaries.contains(gc))
+        for (GraphClass gc : getClasses(SetClass.class)) {
+            if (temporaries.contains(gc))
                 continue;
             for (GraphClass gc2 : ((SetClass) gc).getSet()) {
                 if (temporaries.contains(gc2)) {
@@ -908,6 +1547,26 @@ public class Deducer implements DeducerData {
     private Inclusion addEdge(GraphClass src, GraphClass dest) {
         Inclusion e = graph.addEdge(src, dest);
         e.setConfidence(confidence);
+        edgesAdded++;
+        if (sccs != null)
+            sccs.edgeAdded(src, dest);
+        if (seminaive  &&  newedges != null)
+            newedges.add(e);
+        return e;
+    }
+
+
+    /**
+     * Add an edge from a snapshot, that is transitively closed already.
+     * Like addEdge(), but the edge is not added to newedges, as the
+     * snapshot deductions have examined it already.
+     */
+    Inclusion restoreEdge(GraphClass src, GraphClass dest) {
+        Inclusion e = graph.addEdge(src, dest);
+        e.setConfidence(confidence);
+        edgesAdded++;
+        if (sccs != null)
+            sccs.edgeAdded(src, dest);
         return e;
     }
 
@@ -943,8 +1602,28 @@ public class Deducer implements DeducerData {
     }
 
 
+    /**
+     * Add a node from a snapshot, keeping its id.
+     */
+    void restoreNode(GraphClass gc, boolean temp) {
+        graph.addVertex(gc);
+        registry.add(gc);
+        nodeConfidences.put(gc, confidence);
+        classesAdded++;
+        if (restoredclasses != null)
+            restoredclasses.add(gc);
+        if (idgenerator != null)
+            idgenerator.reserve(gc.toString(), gc.getID());
+        if (temp)
+            temporaries.add(gc);
+    }
+
+
     private GraphClass doAddTrivialNode(GraphClass gc) {
         graph.addVertex(gc);
+        registry.add(gc);
+        nodeConfidences.put(gc, confidence);
+        classesAdded++;
         gc.setID(idgenerator.getID(gc.toString()));
         temporaries.remove(gc);
         newclasses.add(gc);
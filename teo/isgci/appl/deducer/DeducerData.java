@@ -25,6 +25,19 @@ public interface DeducerData {
      */
     public DirectedGraph<GraphClass,Inclusion> getGraph();
 
+    /**
+     * Return the nodes of the given type, in the order of
+     * getGraph().vertexSet(). Nodes added later are not included, so nodes
+     * may be added while iterating over the result.
+     */
+    public List<GraphClass> getClasses(Class<? extends GraphClass> type);
+
+    /**
+     * Return a map from the nodes to their SCCs, like GAlg.calcSCCMap().
+     * The map must not be modified and is valid until the graph changes.
+     */
+    public Map<GraphClass,Set<GraphClass> > getSCCMap();
+
     /**
      * Sort the given list of nodes by id.
      */
@@ -51,6 +64,13 @@ public interface DeducerData {
     public Inclusion addTrivialEdge(GraphClass from, GraphClass to,
             TraceData tr);
 
+    /**
+     * Add the trivially deduced inclusions of batch, as if by calling
+     * addTrivialEdge() for each of them in order. Returns the added
+     * inclusions, with null for those that existed already.
+     */
+    public Inclusion[] addTrivialEdges(EdgeBatch batch);
+
     /**
      * Set the properflag for an edge to true and do this for the transitive
      * inclusions as well.
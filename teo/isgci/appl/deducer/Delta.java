@@ -0,0 +1,65 @@
+/*
+ * What changed in the graph since the previous round of deductions.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.appl.deducer;
+
+import java.util.*;
+import teo.isgci.gc.*;
+import teo.isgci.relation.*;
+
+/**
+ * The classes and edges that were added since the previous round of the
+ * semi-naive deduction. A rule needs to examine only the pairs that involve
+ * a new class or that depend on a new edge.
+ */
+class Delta {
+    /** The new classes */
+    private List<GraphClass> list;
+    /** The same as a set */
+    private Set<GraphClass> classes;
+    /** The new edges */
+    private List<Inclusion> edges;
+
+    public Delta(List<GraphClass> classes, List<Inclusion> edges) {
+        this.list = classes;
+        this.classes = Collections.newSetFromMap(
+                new IdentityHashMap<GraphClass,Boolean>());
+        this.classes.addAll(classes);
+        this.edges = edges;
+    }
+
+
+    /**
+     * Return true iff gc is a new class.
+     */
+    public boolean isNew(GraphClass gc) {
+        return classes.contains(gc);
+    }
+
+
+    /**
+     * Return the new classes accepted by lookup.
+     */
+    public List<GraphClass> newIn(ClassLookup lookup) {
+        List<GraphClass> res = new ArrayList<GraphClass>();
+        for (GraphClass gc : list)
+            if (lookup.accepts(gc))
+                res.add(gc);
+        return res;
+    }
+
+
+    /**
+     * Return the new edges.
+     */
+    public List<Inclusion> getEdges() {
+        return edges;
+    }
+}
+
+/* EOF */
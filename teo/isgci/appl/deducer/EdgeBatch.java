@@ -0,0 +1,60 @@
+/*
+ * Inclusions that are added to the deducer together.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.appl.deducer;
+
+import java.util.*;
+import teo.isgci.gc.*;
+
+/**
+ * A list of inclusions with their traces, to be added by
+ * DeducerData.addTrivialEdges() in the order they were added to the batch.
+ */
+class EdgeBatch {
+    private ArrayList<GraphClass> froms;
+    private ArrayList<GraphClass> tos;
+    private ArrayList<TraceData> traces;
+
+    public EdgeBatch() {
+        froms = new ArrayList<GraphClass>();
+        tos = new ArrayList<GraphClass>();
+        traces = new ArrayList<TraceData>();
+    }
+
+
+    /**
+     * Add the inclusion from -> to with trace tr to the batch.
+     */
+    public void add(GraphClass from, GraphClass to, TraceData tr) {
+        froms.add(from);
+        tos.add(to);
+        traces.add(tr);
+    }
+
+
+    public int size() {
+        return froms.size();
+    }
+
+
+    public GraphClass getFrom(int i) {
+        return froms.get(i);
+    }
+
+
+    public GraphClass getTo(int i) {
+        return tos.get(i);
+    }
+
+
+    public TraceData getTrace(int i) {
+        return traces.get(i);
+    }
+}
+
+/* EOF */
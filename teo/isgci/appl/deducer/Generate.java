@@ -17,15 +17,18 @@ import teo.isgci.gc.*;
 import teo.isgci.relation.*;
 import teo.isgci.problem.*;
 import teo.isgci.appl.*;
+import teo.isgci.smallgraph.InducedIndex;
 
 import gnu.getopt.Getopt;
 import java.io.*;
 import java.util.*;
 import java.net.URL;
+import java.nio.file.Paths;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
 import org.xml.sax.InputSource;
 import org.jgrapht.Graph;
 import org.jgrapht.DirectedGraph;
-import org.jgrapht.graph.DirectedMultigraph;
 import java.sql.SQLException;
 
 public class Generate {
@@ -41,21 +44,32 @@ public class Generate {
         int i;
 
         Deducer deducer;
-        DirectedGraph<GraphClass,Inclusion> graph;
+        IndexedGraph<GraphClass,Inclusion> graph;
         List<Problem> problems;
         RCheck checkReachability = new RCheckReachability();
 
         boolean notrivial = false;
         boolean extrachecks = false;
+        int threads = 1;
+        boolean seminaive = false;
         String debugout = null;
         String debugrelout = null;
         String autocache = null;
+        String indexfile = null;
         String sageout = null;
+        String snapshotin = null;
+        String snapshotout = null;
+        String statsout = null;
+        String phasesout = null;
+        String recordingout = null;
+        Recording recording = null;
+        RuleStats stats = null;
+        PhaseTimer timer;
         PrintWriter writer;
         Map<GraphClass,Set<GraphClass> > compls;
         List<AbstractRelation> relations = new ArrayList<AbstractRelation>();
 
-        Getopt opts = new Getopt("Generate", args, "Cxa:l:r:s:h");
+        Getopt opts = new Getopt("Generate", args, "Cnxa:i:I:j:J:l:o:p:r:s:T:h");
         opts.setOpterr(false);
         while ((i = opts.getopt()) != -1) {
             switch (i) {
@@ -65,18 +79,42 @@ public class Generate {
                 case 'x':
                     notrivial = true;
                     break;
+                case 'n':
+                    seminaive = true;
+                    break;
                 case 'a':
                     autocache = opts.getOptarg();
                     break;
+                case 'i':
+                    snapshotin = opts.getOptarg();
+                    break;
+                case 'I':
+                    indexfile = opts.getOptarg();
+                    break;
+                case 'j':
+                    threads = Integer.parseInt(opts.getOptarg());
+                    break;
+                case 'J':
+                    recordingout = opts.getOptarg();
+                    break;
                 case 'l':
                     debugout = opts.getOptarg();
                     break;
+                case 'o':
+                    snapshotout = opts.getOptarg();
+                    break;
+                case 'p':
+                    statsout = opts.getOptarg();
+                    break;
                 case 'r':
                     debugrelout = opts.getOptarg();
                     break;
                 case 's':
                     sageout = opts.getOptarg();
                     break;
+                case 'T':
+                    phasesout = opts.getOptarg();
+                    break;
                 case '?':
                 case 'h':
                     usage();
@@ -88,34 +126,92 @@ public class Generate {
             System.exit(1);
         }
 
+        if (recordingout != null) {
+            recording = new Recording(
+                    Configuration.getConfiguration("default"));
+            recording.setDestination(Paths.get(recordingout));
+            recording.start();
+        }
+
         //---- Load everything
-        // Performance optimization: We only add edges that do not exist yet,
-        // so the underlying graph does not need to check this.
-        graph = new DirectedMultigraph<GraphClass,Inclusion>(Inclusion.class);
+        // IndexedGraph looks up edges without hashing or allocating, which
+        // the deducer does for nearly every pair of classes.
+        graph = new IndexedGraph<GraphClass,Inclusion>(Inclusion.class);
         problems = new ArrayList<Problem>();
+        timer = new PhaseTimer(graph, phasesout != null);
 
         Problem.setDeducing();
 
-        load(args[opts.getOptind()], args[opts.getOptind()+1],
+        timer.start("load");
+        load(args[opts.getOptind()], args[opts.getOptind()+1], indexfile,
                 graph, problems, relations);
         deducer = new Deducer(graph,true, extrachecks);
         deducer.setGeneratorCache(autocache);
+        deducer.setThreads(threads);
+        deducer.setSemiNaive(seminaive);
+        if (statsout != null)
+            stats = deducer.collectStats();
         showNodeStats(graph);
 
+        long checksum = 0;
+        Snapshot snapshot = null;
+        if (snapshotin != null  ||  snapshotout != null)
+            checksum = Snapshot.checksum(args[opts.getOptind()+1]);
+        if (snapshotin != null  &&  !notrivial) {
+            String why;
+            try {
+                snapshot = Snapshot.read(snapshotin);
+                why = snapshot.getChecksum() != checksum ?
+                        "smallgraphs changed" : deducer.setSnapshot(snapshot);
+            } catch (IOException e) {
+                why = e.toString();
+            }
+            if (why != null) {
+                System.out.println("Deducing from scratch: "+ why);
+                snapshot = null;
+            }
+        }
+
+        ArrayList<GraphClass> originalClasses =
+                new ArrayList<GraphClass>(graph.vertexSet());
         ArrayList<Inclusion> originals =
                 new ArrayList<Inclusion>(graph.edgeSet());
+        // The deductions may make originals proper, so remember the input
+        BitSet originalPropers = new BitSet(originals.size());
+        for (i = 0; i < originals.size(); i++)
+            if (originals.get(i).isProper())
+                originalPropers.set(i);
 
         //---- Deduce relations
-        if (notrivial)
+        if (notrivial) {
+            timer.start("closure");
             GAlg.transitiveClosure(graph);
-        else {
+        } else {
+            timer.start("inclusions");
             deducer.findTrivialInclusions();
+            timer.start("propers");
             deducer.findTrivialPropers();
-            new RCheckAbstractRelations().after(deducer, relations);
+            timer.start("check");
+            RCheckAbstractRelations abstractCheck =
+                    new RCheckAbstractRelations();
+            if (stats != null)
+                stats.start();
+            abstractCheck.after(deducer, relations);
+            if (stats != null) {
+                stats.stop("check", abstractCheck, -1);
+                writer = new PrintWriter(new BufferedWriter(
+                        new FileWriter(statsout), 64*1024));
+                if (statsout.endsWith(".csv"))
+                    stats.writeCSV(writer);
+                else
+                    stats.writeJSON(writer);
+                writer.close();
+            }
             showRelationStats(deducer);
         }
 
         //---- Export debug info
+        timer.start("debug");
         if (debugout != null) {
             writer = new PrintWriter(
                     new BufferedWriter(new FileWriter(debugout), 64*1024));
@@ -131,13 +227,24 @@ public class Generate {
 
         //---- Deduce complexities
         System.out.println("Distributing complexities");
-        Problem.distributeComplexities();
+        timer.start("complexities");
+        if (snapshot != null)
+            snapshot.distributeComplexities(deducer);
+        else
+            Problem.distributeComplexities(deducer.getSCCMap());
         showProblemStats(graph, problems);
 
-        compls = gatherComplements(graph);
+        if (snapshotout != null  &&  !notrivial) {
+            timer.start("snapshot");
+            Snapshot.write(deducer, originalClasses, originals,
+                    originalPropers, checksum, snapshotout);
+        }
+
+        compls = gatherComplements(graph, deducer.getSCCMap());
 
         //---- Remove temporaries and some edges
         System.out.println("Cleaning up");
+        timer.start("removeTemp");
         deducer.removeTemp();
         showNodeStats(graph);
         showProblemStats(graph, problems);
@@ -146,6 +253,7 @@ public class Generate {
         int nc = graph.vertexSet().size();               // For Safety check
         int ec = graph.edgeSet().size();
 
+        timer.start("superfluous");
         deducer.deleteSuperfluousEdges();
         if (extrachecks) {
             checkReachability.after(deducer);
@@ -154,22 +262,39 @@ public class Generate {
         showNodeStats(graph);
 
         //---- Export data
+        timer.start("exportApp");
         deducer.addRefs();
         exportApp(graph, problems, relations, compls,args[opts.getOptind()+3]);
+        timer.start("exportSage");
         exportSage(graph, problems, relations, compls, sageout);
 
+        timer.start("superfluousFull");
         deducer.deleteSuperfluousEdgesFull();
         if (extrachecks) {
             checkReachability.after(deducer);
         }
 
+        timer.start("exportWeb");
         exportWeb(graph,problems, relations, compls, args[opts.getOptind()+2]);
         exportNames(graph, args[opts.getOptind()+4]);
 
         //---- Final safety check
+        timer.start("finalCheck");
         GAlg.transitiveClosure(graph);
         if (graph.vertexSet().size() != nc  ||  graph.edgeSet().size() != ec)
             System.err.println("Error in deleteSuperfluousEdges?!");
+        timer.stop();
+
+        if (phasesout != null) {
+            writer = new PrintWriter(new BufferedWriter(
+                    new FileWriter(phasesout)));
+            timer.writeJSON(writer);
+            writer.close();
+        }
+        if (recording != null) {
+            recording.stop();
+            recording.close();
+        }
     }
 
 
@@ -179,18 +304,35 @@ public class Generate {
                 "fullout.xml shortout.xml outnames.txt\n"+
                 " -x : Only generate XML, no deductions done\n"+
                 " -C : Perform extra checks on code (not data) correctness\n"+
+                " -n : Deduce semi-naively (faster, traces may differ)\n"+
                 " -s filename: write out for sage to filename\n" +
                 " -a filename: AUTO_* cache filename\n" +
+                " -o filename: Write a snapshot of the deductions to "+
+                    "filename\n" +
+                " -i filename: Continue the deductions from the snapshot in "+
+                    "filename\n" +
+                " -I filename: Cache of the induced subgraph relation of the "+
+                    "smallgraphs\n" +
+                " -j n : Test direct inclusions with n threads\n" +
+                " -J filename: Write a flight recording of the run to "+
+                    "filename\n" +
+                " -p filename: Write statistics on the rules to filename, "+
+                    "as CSV if it\n"+
+                "    ends in .csv, otherwise as JSON\n" +
+                " -T filename: Write the time and memory use per phase to "+
+                    "filename as JSON\n" +
                 " -l filename: Log debug output to filename\n" +
                 " -r filename: Log relations debug output to filename");
     }
 
 
     /**
-     * Load the ISGCI databases.
+     * Load the ISGCI databases. If indexfile is not null, the induced
+     * subgraph relation of the smallgraphs is read from it, or computed and
+     * written to it if it doesn't exist or is out of date.
      */
     private static void load(String file,
-            String smallgraphfile,
+            String smallgraphfile, String indexfile,
             DirectedGraph<GraphClass,Inclusion> graph,
             List<Problem> problems,
             List<AbstractRelation> relations)
@@ -205,7 +347,29 @@ public class Generate {
         xml = new XMLParser(loader.openInputSource(smallgraphfile),
                 handler, loader.getEntityResolver());
         xml.parse();
-        ForbiddenClass.initRules(handler.getGraphs(), handler.getInclusions());
+        InducedIndex index = null;
+        long checksum = 0;
+        if (indexfile != null) {
+            try {
+                checksum = Snapshot.checksum(smallgraphfile);
+                if (new File(indexfile).exists())
+                    index = handler.readInducedIndex(indexfile,
+                            ForbiddenClass.INDEX_VERSION, checksum);
+            } catch (IOException e) {
+                System.err.println("Cannot read "+ indexfile +": "+ e);
+            }
+        }
+        ForbiddenClass.initRules(handler.getGraphs(), handler.getInclusions(),
+                index);
+        if (indexfile != null  &&  ForbiddenClass.getInducedIndex() != index){
+            try {
+                index = ForbiddenClass.getInducedIndex();
+                index.setChecksum(checksum);
+                index.write(indexfile);
+            } catch (IOException e) {
+                System.err.println("Cannot write "+ indexfile +": "+ e);
+            }
+        }
 
         ISGCIReader gcr = new ISGCIReader(graph, problems);
         xml = new XMLParser(loader.openInputSource(file),
@@ -515,12 +679,13 @@ public class Generate {
 
     /**
      * Give every class a list of its complements and return it.
+     * scc maps the nodes of dg to their SCCs.
      */
     private static Map<GraphClass,Set<GraphClass> >
-            gatherComplements(DirectedGraph<GraphClass,Inclusion> dg) {
+            gatherComplements(DirectedGraph<GraphClass,Inclusion> dg,
+            Map<GraphClass,Set<GraphClass> > scc) {
         GraphClass w;
 
-        Map<GraphClass,Set<GraphClass> > scc = GAlg.calcSCCMap(dg);
         Map<GraphClass,Set<GraphClass> > compls =
             new HashMap<GraphClass,Set<GraphClass> >();
 
@@ -74,6 +74,16 @@ public class IDGenerator {
     }
 
 
+    /**
+     * Use id for classname from now on, e.g. because the class was restored
+     * from a snapshot with this id.
+     */
+    public void reserve(String classname, Integer id) {
+        cache.put(classname, id);
+        used.set(id);
+    }
+
+
     /**
      * Fill the cache from the given file. File format is "id\tclassname" per
      * line.
@@ -0,0 +1,34 @@
+/*
+ * Flight recorder event for a phase of Generate.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.appl.deducer;
+
+import jdk.jfr.*;
+
+/**
+ * A phase of Generate, as timed by PhaseTimer. The event costs next to
+ * nothing unless a flight recording is running.
+ */
+@Name("teo.isgci.Phase")
+@Label("Phase")
+@Category({"ISGCI", "Generate"})
+@Description("A phase of the generation of the ISGCI data")
+class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Nodes")
+    @Description("Classes in the graph after the phase")
+    int nodes;
+
+    @Label("Edges")
+    @Description("Inclusions in the graph after the phase")
+    int edges;
+}
+
+/* EOF */
@@ -0,0 +1,211 @@
+/*
+ * Timing and memory use of the phases of Generate.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.appl.deducer;
+
+import java.io.PrintWriter;
+import java.lang.management.*;
+import java.util.*;
+import org.jgrapht.Graph;
+
+/**
+ * Records for every phase of a run between start() and stop() the wall
+ * clock and CPU time, the garbage collections, the peak heap use, the heap
+ * that is live after the phase and the size of the graph afterwards.
+ * A PhaseEvent is emitted for every phase, so the phases also show up in
+ * flight recordings.
+ * Measuring the live heap takes a full garbage collection, so the memory
+ * use is measured only if asked for in the constructor. The peak heap use
+ * is the sum of the peaks of the heap pools, so it may be a bit more than
+ * the heap ever was. CPU time is that of the calling thread only, so work
+ * done by the threads of RSubDirect.runParallel() is not included. Values
+ * that can't be measured are recorded as -1.
+ */
+public class PhaseTimer {
+    /** The graph whose size we record */
+    private Graph<?,?> graph;
+    /** Whether to measure time and memory use */
+    private boolean measure;
+    /** The measured phases */
+    private List<Entry> entries;
+    private ThreadMXBean threads;
+    private MemoryMXBean memory;
+    private List<MemoryPoolMXBean> heapPools;
+    private List<GarbageCollectorMXBean> gcs;
+
+    //---- The current phase
+    private PhaseEvent event;
+    private Entry current;
+    private long nanos, cpu, gcCount, gcMillis;
+
+    /** One phase */
+    private static class Entry {
+        String phase;
+        long nanos, cpuNanos, gcCount, gcMillis, peakHeap, liveHeap;
+        int nodes, edges;
+    }
+
+
+    /**
+     * Create a timer for phases that work on graph. Only if measure is
+     * true, the phases are timed and their memory use is measured,
+     * otherwise just the events are emitted.
+     */
+    public PhaseTimer(Graph<?,?> graph, boolean measure) {
+        this.graph = graph;
+        this.measure = measure;
+        entries = new ArrayList<Entry>();
+        if (!measure)
+            return;
+
+        threads = ManagementFactory.getThreadMXBean();
+        try {
+            if (!threads.isCurrentThreadCpuTimeSupported())
+                threads = null;
+            else
+                threads.setThreadCpuTimeEnabled(true);
+        } catch (UnsupportedOperationException e) {
+            threads = null;
+        }
+        memory = ManagementFactory.getMemoryMXBean();
+        heapPools = new ArrayList<MemoryPoolMXBean>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP  &&  pool.isValid())
+                heapPools.add(pool);
+        gcs = ManagementFactory.getGarbageCollectorMXBeans();
+    }
+
+
+    /**
+     * Start the phase with the given name, stopping the current one, if
+     * any.
+     */
+    public void start(String phase) {
+        if (current != null)
+            stop();
+
+        current = new Entry();
+        current.phase = phase;
+        event = new PhaseEvent();
+        event.phase = phase;
+        if (measure) {
+            for (MemoryPoolMXBean pool : heapPools)
+                pool.resetPeakUsage();
+            gcCount = gcCount();
+            gcMillis = gcMillis();
+            cpu = cpuNanos();
+            nanos = System.nanoTime();
+        }
+        event.begin();
+    }
+
+
+    /**
+     * Stop the current phase and record it.
+     */
+    public void stop() {
+        if (current == null)
+            return;
+        event.end();
+        current.nodes = graph.vertexSet().size();
+        current.edges = graph.edgeSet().size();
+        if (measure) {
+            current.nanos = System.nanoTime() - nanos;
+            long now = cpuNanos();
+            current.cpuNanos = now < 0 ? -1 : now - cpu;
+            current.gcCount = gcCount() - gcCount;
+            current.gcMillis = gcMillis() - gcMillis;
+            current.peakHeap = 0;
+            for (MemoryPoolMXBean pool : heapPools)
+                current.peakHeap += pool.getPeakUsage().getUsed();
+            System.gc();
+            current.liveHeap = memory.getHeapMemoryUsage().getUsed();
+        }
+        if (event.shouldCommit()) {
+            event.nodes = current.nodes;
+            event.edges = current.edges;
+            event.commit();
+        }
+        entries.add(current);
+        current = null;
+        event = null;
+    }
+
+
+    private long cpuNanos() {
+        return threads == null ? -1 : threads.getCurrentThreadCpuTime();
+    }
+
+
+    private long gcCount() {
+        long res = 0;
+        for (GarbageCollectorMXBean gc : gcs)
+            res += Math.max(gc.getCollectionCount(), 0);
+        return res;
+    }
+
+
+    private long gcMillis() {
+        long res = 0;
+        for (GarbageCollectorMXBean gc : gcs)
+            res += Math.max(gc.getCollectionTime(), 0);
+        return res;
+    }
+
+
+    /**
+     * Write the recorded phases and their totals to w as JSON.
+     */
+    public void writeJSON(PrintWriter w) {
+        Entry total = new Entry();
+        total.peakHeap = total.liveHeap = -1;
+
+        w.println("{");
+        w.println("  \"phases\": [");
+        for (int i = 0; i < entries.size(); i++) {
+            Entry e = entries.get(i);
+            w.print("    {\"phase\": \""+ e.phase +"\", ");
+            w.print("\"millis\": "+ millis(e.nanos) +", ");
+            w.print("\"cpuMillis\": "+
+                    (e.cpuNanos < 0 ? "-1" : millis(e.cpuNanos)) +", ");
+            w.print("\"gcCount\": "+ e.gcCount +", ");
+            w.print("\"gcMillis\": "+ e.gcMillis +", ");
+            w.print("\"peakHeap\": "+ e.peakHeap +", ");
+            w.print("\"liveHeap\": "+ e.liveHeap +", ");
+            w.print("\"nodes\": "+ e.nodes +", ");
+            w.print("\"edges\": "+ e.edges +"}");
+            w.println(i < entries.size()-1 ? "," : "");
+
+            total.nanos += e.nanos;
+            total.cpuNanos = total.cpuNanos < 0  ||  e.cpuNanos < 0 ? -1 :
+                    total.cpuNanos + e.cpuNanos;
+            total.gcCount += e.gcCount;
+            total.gcMillis += e.gcMillis;
+            total.peakHeap = Math.max(total.peakHeap, e.peakHeap);
+            total.liveHeap = Math.max(total.liveHeap, e.liveHeap);
+        }
+        w.println("  ],");
+        w.print("  \"total\": {");
+        w.print("\"millis\": "+ millis(total.nanos) +", ");
+        w.print("\"cpuMillis\": "+
+                (total.cpuNanos < 0 ? "-1" : millis(total.cpuNanos)) +", ");
+        w.print("\"gcCount\": "+ total.gcCount +", ");
+        w.print("\"gcMillis\": "+ total.gcMillis +", ");
+        w.print("\"peakHeap\": "+ total.peakHeap +", ");
+        w.println("\"maxLiveHeap\": "+ total.liveHeap +"}");
+        w.println("}");
+        w.flush();
+    }
+
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
+
+/* EOF */
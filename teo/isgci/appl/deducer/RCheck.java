@@ -10,6 +10,7 @@ package teo.isgci.appl.deducer;
 
 import java.util.*;
 import teo.isgci.gc.*;
+import teo.isgci.relation.*;
 
 /**
  * A check on the deduction results. Errors found are printed to System.out.
@@ -20,6 +21,17 @@ public abstract class RCheck {
     public void before(DeducerData d) {}
     /** Run at the end of the deductions process */
     public void after(DeducerData d) {}
+
+    /**
+     * Run at the end of deductions that were continued from a snapshot,
+     * instead of after(). classes and edges were added to the snapshot, the
+     * rest was checked when the snapshot was made. By default, everything is
+     * checked again.
+     */
+    public void afterAdded(DeducerData d, Collection<GraphClass> classes,
+            Collection<Inclusion> edges) {
+        after(d);
+    }
 }
 
 /* EOF */
@@ -24,6 +24,22 @@ public class RCheckForbidden extends RCheck {
 
     /** Run at the end of the deductions process */
     public void after(DeducerData d) {
+        check(d, d.getGraph().edgeSet());
+    }
+
+
+    /** Only the added edges can be wrong */
+    public void afterAdded(DeducerData d, Collection<GraphClass> classes,
+            Collection<Inclusion> edges) {
+        check(d, edges);
+    }
+
+
+    /**
+     * Print the wrong inclusions between the ForbiddenClasses that have an
+     * edge in edges.
+     */
+    private void check(DeducerData d, Collection<Inclusion> edges) {
         System.out.println("RCheckForbidden");
 
         boolean err = false;
@@ -31,7 +47,7 @@ public class RCheckForbidden extends RCheck {
         HashSet<GraphClass> hs = new HashSet<GraphClass>();
         DirectedGraph<GraphClass,Inclusion> inducedSub;
         
-        for (Inclusion e : d.getGraph().edgeSet()) {
+        for (Inclusion e : edges) {
             from = d.getGraph().getEdgeSource(e);
             to = d.getGraph().getEdgeTarget(e);
             if (from instanceof ForbiddenClass && to instanceof ForbiddenClass)
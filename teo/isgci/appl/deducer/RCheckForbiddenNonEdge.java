@@ -23,6 +23,28 @@ public class RCheckForbiddenNonEdge extends RCheck {
 
     /** Run at the end of the deductions process */
     public void after(DeducerData d) {
+        check(d, null);
+    }
+
+
+    /**
+     * Deducing only removes non-inclusions, so only the pairs with an added
+     * class need to be checked.
+     */
+    public void afterAdded(DeducerData d, Collection<GraphClass> classes,
+            Collection<Inclusion> edges) {
+        Set<GraphClass> added = Collections.newSetFromMap(
+                new IdentityHashMap<GraphClass,Boolean>());
+        added.addAll(classes);
+        check(d, added);
+    }
+
+
+    /**
+     * Check the pairs of which at least one class is in added, or all pairs
+     * if added is null.
+     */
+    private void check(DeducerData d, Set<GraphClass> added) {
         boolean err = false;
 
         System.out.println("RCheckForbiddenNonEdge");
@@ -32,6 +54,8 @@ public class RCheckForbiddenNonEdge extends RCheck {
                 continue;
             for (GraphClass gc2 : d.getGraph().vertexSet()) {
                 if (gc2 == gc1  ||  !(gc2 instanceof ForbiddenClass)  ||
+                        added != null  &&  !added.contains(gc1)  &&
+                        !added.contains(gc2)  ||
                         d.containsEdge(gc1, gc2))
                     continue;
 
@@ -23,11 +23,37 @@ public class RCheckProper extends RCheck {
 
     /** Run at the end of the deductions process */
     public void after(DeducerData d) {
+        check(d, d.getGraph().edgeSet());
+    }
+
+
+    /**
+     * Only the edges that were added or became proper, and their reverse
+     * edges, need to be checked. They are passed in edges.
+     */
+    public void afterAdded(DeducerData d, Collection<GraphClass> classes,
+            Collection<Inclusion> edges) {
+        Set<Inclusion> es = Collections.newSetFromMap(
+                new IdentityHashMap<Inclusion,Boolean>());
+        for (Inclusion e : edges) {
+            es.add(e);
+            Inclusion rev = d.getEdge(e.getSub(), e.getSuper());
+            if (rev != null)
+                es.add(rev);
+        }
+        check(d, es);
+    }
+
+
+    /**
+     * Print the proper edges in edges whose reverse edge exists.
+     */
+    private void check(DeducerData d, Collection<Inclusion> edges) {
         GraphClass from, to;
         boolean err = false;
 
         System.out.println("RCheckProper");
-        for (Inclusion e : d.getGraph().edgeSet()) {
+        for (Inclusion e : edges) {
             if (!e.isProper())
                 continue;
             from = d.getGraph().getEdgeSource(e);
@@ -12,6 +12,7 @@ import java.util.*;
 import org.jgrapht.*;
 import teo.isgci.grapht.*;
 import teo.isgci.gc.*;
+import teo.isgci.relation.*;
 
 /**
  * Print SCC that have merged as a result of deducing inclusions.
@@ -27,15 +28,32 @@ public class RCheckSCC extends RCheck {
 
     /** Run at the end of the deductions process */
     public void after(DeducerData d) {
-        sccAfter = GAlg.calcSCCMap(d.getGraph());
-        sanityCheckSCC(d, sccBefore, sccAfter);
+        sccAfter = d.getSCCMap();
+        sanityCheckSCC(d.getGraph().vertexSet(), sccBefore, sccAfter);
     }
 
 
     /**
-     * Print SCC that have merged as a result of deducing inclusions.
+     * Classes that merged since the snapshot have an added edge between
+     * them.
      */
-    private void sanityCheckSCC(DeducerData d,
+    public void afterAdded(DeducerData d, Collection<GraphClass> classes,
+            Collection<Inclusion> edges) {
+        Set<GraphClass> nodes = new LinkedHashSet<GraphClass>();
+        for (Inclusion e : edges) {
+            nodes.add(e.getSuper());
+            nodes.add(e.getSub());
+        }
+        sccAfter = d.getSCCMap();
+        sanityCheckSCC(nodes, sccBefore, sccAfter);
+    }
+
+
+    /**
+     * Print SCC of nodes that have merged as a result of deducing
+     * inclusions.
+     */
+    private void sanityCheckSCC(Collection<GraphClass> nodes,
             Map<GraphClass,Set<GraphClass> > before,
             Map<GraphClass,Set<GraphClass> > after) {
         System.out.println("RCheckSCC");
@@ -45,13 +63,13 @@ public class RCheckSCC extends RCheck {
                 new HashMap<Set<GraphClass>, Set<Set<GraphClass> > >();
         HashSet<Set<GraphClass> > hs;
 
-        for (GraphClass node1 : d.getGraph().vertexSet()) {
+        for (GraphClass node1 : nodes) {
             if (before.get(node1) == null)
                 continue;
             vecBefore1 = before.get(node1);
             vecAfter1 = after.get(node1);
 
-            for (GraphClass node2 : d.getGraph().vertexSet()) {
+            for (GraphClass node2 : nodes) {
                 if (before.get(node2) == null)
                     continue;
                 vecBefore2 = before.get(node2);
@@ -23,9 +23,24 @@ public class RCheckType extends RCheck {
 
     /** Run at the end of the deductions process */
     public void after(DeducerData d) {
+        check(d.getGraph().edgeSet());
+    }
+
+
+    /** Only the added edges can be wrong */
+    public void afterAdded(DeducerData d, Collection<GraphClass> classes,
+            Collection<Inclusion> edges) {
+        check(edges);
+    }
+
+
+    /**
+     * Print the edges between directed and undirected classes.
+     */
+    private void check(Collection<Inclusion> edges) {
         boolean err = false;
         System.out.println("RCheckType");
-        for (Inclusion e : d.getGraph().edgeSet()) {
+        for (Inclusion e : edges) {
             if (e.getSuper().getDirected() != e.getSub().getDirected()) {
                 err = true;
                 System.out.println(e);
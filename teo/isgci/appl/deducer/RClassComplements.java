@@ -31,16 +31,18 @@ class RClassComplements implements RClass {
     private void addComplements1(DeducerData d,
             Collection<GraphClass> classes) {
         GraphClass con;
+        EdgeBatch batch = new EdgeBatch();
 
         for (GraphClass gc : classes) {
             if (gc instanceof ForbiddenClass) {
                 d.ensureTempNode(new ComplementClass(gc));
             } else if (gc.isSelfComplementary()) {
                 con = d.ensureTempNode(new ComplementClass(gc));
-                d.addTrivialEdge(gc,con, d.newTraceData("self-complementary"));
-                d.addTrivialEdge(con,gc, d.newTraceData("self-complementary"));
+                batch.add(gc, con, d.newTraceData("self-complementary"));
+                batch.add(con, gc, d.newTraceData("self-complementary"));
             }
         }
+        d.addTrivialEdges(batch);
     }
 
 
@@ -52,6 +54,7 @@ class RClassComplements implements RClass {
             DeducerData d, Collection<GraphClass> classes) {
         TraceData tr = d.newTraceData("correspondCompAndForbidden");
         GraphClass gc2, gc3;
+        EdgeBatch batch = new EdgeBatch();
         for (GraphClass gc1 : classes) {
             if (gc1 instanceof ComplementClass) {
                 gc2 = ((ComplementClass) gc1).getBase();
@@ -62,11 +65,12 @@ class RClassComplements implements RClass {
                     else
                         gc3 = d.ensureTrivialNode(
                                 ((ForbiddenClass)gc2).complement());
-                    d.addTrivialEdge(gc1, gc3, tr);
-                    d.addTrivialEdge(gc3, gc1, tr);
+                    batch.add(gc1, gc3, tr);
+                    batch.add(gc3, gc1, tr);
                 }
             }
         }
+        d.addTrivialEdges(batch);
     }
 
 
@@ -76,20 +80,24 @@ class RClassComplements implements RClass {
      */
     private void addComplements2(DeducerData d) {
         ArrayList<GraphClass> classes =
-                new ArrayList<GraphClass>(d.getGraph().vertexSet());
+                new ArrayList<GraphClass>(d.getClasses(UnionClass.class));
+        classes.addAll(d.getClasses(IntersectClass.class));
+        EdgeBatch batch = new EdgeBatch();
         d.sortByID(classes);
         for (GraphClass gc : classes)
-            if (gc instanceof UnionClass  ||  gc instanceof IntersectClass)
-                doAddComplements2(d, gc);
+            doAddComplements2(d, gc, batch);
+        d.addTrivialEdges(batch);
     }
 
 
     /**
      * For a node A\c.p B check whether co-A and co-B exists, and, if so,
-     * add temporary nodes co-(A\c.p B) and co-A\c.p co-B.
+     * add temporary nodes co-(A\c.p B) and co-A\c.p co-B, and their
+     * equivalence to batch.
      * Return true if the graph could be handled successfully.
      */
-    private boolean doAddComplements2(DeducerData d, GraphClass gc) {
+    private boolean doAddComplements2(DeducerData d, GraphClass gc,
+            EdgeBatch batch) {
         GraphClass gcco, cogc;
         Set<GraphClass> parts = null;
         TraceData tr = d.newTraceData("addComplements2");
@@ -107,8 +115,8 @@ class RClassComplements implements RClass {
 
         gcco = d.ensureTempNode(new ComplementClass(gc));
         cogc = d.ensureTempNode(cogc);
-        d.addTrivialEdge(cogc, gcco, tr);
-        d.addTrivialEdge(gcco, cogc, tr);
+        batch.add(cogc, gcco, tr);
+        batch.add(gcco, cogc, tr);
         return true;
     }
     
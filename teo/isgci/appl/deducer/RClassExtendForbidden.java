@@ -36,40 +36,50 @@ class RClassExtendForbidden implements RClass {
         /* Contains the ForbiddenClass that we will consider replacing into
          * interHS. */
         ArrayList<ForbiddenClass> forbid = new ArrayList<ForbiddenClass>();
-        Map<GraphClass,Set<GraphClass> > scc = GAlg.calcSCCMap(d.getGraph());
+        Map<GraphClass,Set<GraphClass> > scc = d.getSCCMap();
         HashSet hasEqForb = new HashSet();
         
         // Collect interGC, interHS and forbid
         ArrayList<GraphClass> nodes =
-                new ArrayList<GraphClass>(d.getGraph().vertexSet());
+                new ArrayList<GraphClass>(d.getClasses(IntersectClass.class));
         d.sortByID(nodes);
-allvertices:
         for (GraphClass gc : nodes) {
-            if (gc instanceof IntersectClass) {
-                interGC.add((IntersectClass) gc);
-                interHS.add(((IntersectClass)gc).getSet());
-            } else if (gc instanceof ForbiddenClass) {
-                if (hasEqForb.contains(gc))
-                    continue;           // Nodes in this SCC already added
-                sccVec = scc.get(gc);
-                if (sccVec.size() <= 1)
-                    continue;
-                // Only store the nicest definitions for handling
-                // Since we go through the nodes by ID and every SCC is added
-                // only once, this implies that we add the nicest class, with
-                // the lowest id.
-                for (GraphClass gc1 : sccVec) {
-                    if ( gc1 instanceof ForbiddenClass  &&
-                            ((ForbiddenClass) gc1).niceness() >
-                            ((ForbiddenClass) gc).niceness() )
-                        continue allvertices;
-                }
+            interGC.add((IntersectClass) gc);
+            interHS.add(((IntersectClass)gc).getSet());
+        }
 
-                forbid.add((ForbiddenClass) gc);
-                hasEqForb.addAll(sccVec);
+        nodes = new ArrayList<GraphClass>(d.getClasses(ForbiddenClass.class));
+        d.sortByID(nodes);
+allvertices:
+        for (GraphClass gc : nodes) {
+            if (hasEqForb.contains(gc))
+                continue;           // Nodes in this SCC already added
+            sccVec = scc.get(gc);
+            if (sccVec.size() <= 1)
+                continue;
+            // Only store the nicest definitions for handling
+            // Since we go through the nodes by ID and every SCC is added
+            // only once, this implies that we add the nicest class, with
+            // the lowest id.
+            for (GraphClass gc1 : sccVec) {
+                if ( gc1 instanceof ForbiddenClass  &&
+                        ((ForbiddenClass) gc1).niceness() >
+                        ((ForbiddenClass) gc).niceness() )
+                    continue allvertices;
             }
+
+            forbid.add((ForbiddenClass) gc);
+            hasEqForb.addAll(sccVec);
         }
         
+        /* Maps every class to the indices k of the interHS sets containing
+         * it. */
+        HashMap<GraphClass,BitSet> containing =
+                new HashMap<GraphClass,BitSet>();
+        for (k = 0; k < interHS.size(); k++)
+            for (GraphClass gc : interHS.get(k))
+                containing(containing, gc).set(k);
+
         /* Replace classes with their forbidden-equivs
          * If there are several forbidden-equivs we use only one!
          */
@@ -84,14 +94,23 @@ allvertices:
                     hs1 = new HashSet();
                     hs1.add(gc1);
                 }
-                for (k = 0; k < interHS.size(); k++) {
-                    hs2 = interHS.get(k);
-                    if (hs2.containsAll(hs1)) {
-                        hs2 = new HashSet(hs2);
-                        hs2.removeAll(hs1);
-                        hs2.add(gc);
-                        interHS.set(k,hs2);
-                    }
+                // Only the sets that contain all of hs1 are replaced in
+                BitSet ks = null;
+                for (Object o : hs1) {
+                    BitSet b = containing(containing, (GraphClass) o);
+                    if (ks == null)
+                        ks = (BitSet) b.clone();
+                    else
+                        ks.and(b);
+                }
+                for (k = ks.nextSetBit(0); k >= 0; k = ks.nextSetBit(k+1)) {
+                    hs2 = new HashSet(interHS.get(k));
+                    hs2.removeAll(hs1);
+                    hs2.add(gc);
+                    interHS.set(k,hs2);
+                    for (Object o : hs1)
+                        containing.get(o).clear(k);
+                    containing(containing, gc).set(k);
                 }
             }
         }
@@ -105,6 +124,21 @@ allvertices:
         }
     }
 
+
+    /**
+     * Return the indices of the sets containing gc from containing, adding
+     * an empty set if there are none yet.
+     */
+    private static BitSet containing(HashMap<GraphClass,BitSet> containing,
+            GraphClass gc) {
+        BitSet res = containing.get(gc);
+        if (res == null) {
+            res = new BitSet();
+            containing.put(gc, res);
+        }
+        return res;
+    }
+
     
     /** Extend the graph DAG by the equivalence between the class ic and the
      * intersection class of icSet. In particular are those members of icSet
@@ -10,6 +10,7 @@ package teo.isgci.appl.deducer;
 
 import java.util.*;
 import teo.isgci.gc.*;
+import teo.isgci.relation.*;
 
 /**
  * A properness rule. Rules are stateless and the run method may be
@@ -24,6 +25,27 @@ public abstract class RProper<T extends GraphClass> {
      * only classes of type T.
      */
     public void run(DeducerData d, Iterable<GraphClass> classes) {}
+
+    /**
+     * Like run(), but examine only what may have changed because the
+     * inclusions in propers became proper since the previous run. By
+     * default everything is examined again.
+     */
+    public void runDelta(DeducerData d, Iterable<GraphClass> classes,
+            List<Inclusion> propers) {
+        run(d, classes);
+    }
+
+    /**
+     * Like run(), but examine only what may have changed because classes
+     * and the inclusions in edges were added to a snapshot, or the
+     * inclusions in edges became proper since it was restored. By default
+     * everything is examined again.
+     */
+    public void runAdded(DeducerData d, Iterable<GraphClass> classes,
+            Collection<GraphClass> added, List<Inclusion> edges) {
+        run(d, classes);
+    }
 }
 
 /* EOF */
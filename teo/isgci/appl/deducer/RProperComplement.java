@@ -34,6 +34,62 @@ public class RProperComplement extends RProper<ComplementClass> {
     }
 
 
+    /**
+     * Only the pairs v1, v2 where v1 is the sub- or superclass of a new
+     * proper inclusion or its complement, and v2 is the other end of it or
+     * its complement, can have become deducible.
+     */
+    public void runDelta(DeducerData d, Iterable<GraphClass> classes,
+            List<Inclusion> propers) {
+        HashMap<GraphClass,List<GraphClass> > compls = complements(classes);
+        List<GraphClass> supers, subs;
+
+        for (Inclusion e : propers) {
+            if ((supers = compls.get(e.getSuper())) == null  ||
+                    (subs = compls.get(e.getSub())) == null)
+                continue;
+            for (GraphClass v1 : supers)
+                for (GraphClass v2 : subs)
+                    properFromComplement(d,
+                            (ComplementClass) v1, (ComplementClass) v2);
+        }
+    }
+
+
+    /**
+     * The same pairs as for runDelta() must be examined, for the added and
+     * the new proper inclusions in edges.
+     */
+    public void runAdded(DeducerData d, Iterable<GraphClass> classes,
+            Collection<GraphClass> added, List<Inclusion> edges) {
+        runDelta(d, classes, edges);
+    }
+
+
+    /**
+     * Return a map that maps a node to the classes from classes that are
+     * the node itself or its complement.
+     */
+    private static HashMap<GraphClass,List<GraphClass> > complements(
+            Iterable<GraphClass> classes) {
+        HashMap<GraphClass,List<GraphClass> > res =
+                new HashMap<GraphClass,List<GraphClass> >();
+
+        for (GraphClass gc : classes) {
+            for (GraphClass key : new GraphClass[]{
+                    gc, ((ComplementClass) gc).getBase()}) {
+                List<GraphClass> l = res.get(key);
+                if (l == null) {
+                    l = new ArrayList<GraphClass>();
+                    res.put(key, l);
+                }
+                l.add(gc);
+            }
+        }
+        return res;
+    }
+
+
     /**
      * Given two complement classes v1, v2, try to deduce properness of
      * inclusions in all possible directions.
@@ -45,6 +45,37 @@ public class RProperDirect extends RProper<GraphClass> {
     }
 
 
+    /**
+     * Only the added inclusions between forbidden classes and the inclusions
+     * of the added classes with their bases can be proper by definition.
+     */
+    public void runAdded(DeducerData d, Iterable<GraphClass> classes,
+            Collection<GraphClass> added, List<Inclusion> edges) {
+        for (Inclusion e : edges) {
+            if (e.getSuper() instanceof ForbiddenClass  &&
+                    e.getSub() instanceof ForbiddenClass  &&
+                    !d.containsEdge(e.getSub(), e.getSuper()))
+                d.setProper(e, d.newTraceData("properForbiddenDirect"));
+        }
+
+        ArrayList<ProbeClass> probes = new ArrayList<ProbeClass>();
+        ArrayList<CliqueClass> cliques = new ArrayList<CliqueClass>();
+        ArrayList<HereditaryClass> hereds = new ArrayList<HereditaryClass>();
+        for (GraphClass gi : added) {
+            if (gi instanceof CliqueClass)
+                cliques.add((CliqueClass) gi);
+            else if (gi instanceof ProbeClass)
+                probes.add((ProbeClass) gi);
+            else if (gi instanceof HereditaryClass)
+                hereds.add((HereditaryClass) gi);
+        }
+        if (!cliques.isEmpty())
+            properCliqueDirect(d, cliques);
+        properProbeDirect(d, probes);
+        properHereditaryDirect(d, hereds);
+    }
+
+
     /**
      * Mark inclusions between forbidden classes as proper if their definition
      * warrants so.
@@ -23,9 +23,32 @@ public class RProperForbiddenSub extends RProper<ForbiddenClass> {
      * of B, which is itself a forbidden class.
      */
     public void run(DeducerData d, Iterable<GraphClass> classes) {
+        run(d, d.getGraph().vertexSet(), classes);
+    }
+
+
+    /**
+     * A > B can only have become deducible if A has an added inclusion, so
+     * only those A need to be examined.
+     */
+    public void runAdded(DeducerData d, Iterable<GraphClass> classes,
+            Collection<GraphClass> added, List<Inclusion> edges) {
+        Set<GraphClass> froms = new LinkedHashSet<GraphClass>();
+        for (Inclusion e : edges)
+            froms.add(e.getSuper());
+        run(d, froms, classes);
+    }
+
+
+    /**
+     * Run the rule for the superclasses in froms and the forbidden
+     * subclasses in classes.
+     */
+    private void run(DeducerData d, Iterable<GraphClass> froms,
+            Iterable<GraphClass> classes) {
         Inclusion e;
 
-        for (GraphClass from : d.getGraph().vertexSet()) {
+        for (GraphClass from : froms) {
             if (from instanceof ForbiddenClass)
                 continue;
             for (GraphClass to : classes) {
@@ -49,6 +72,14 @@ public class RProperForbiddenSub extends RProper<ForbiddenClass> {
             }
         }
     }
+
+
+    /**
+     * Nothing to do: The rule doesn't depend on the properness of other
+     * inclusions, so run() already found everything.
+     */
+    public void runDelta(DeducerData d, Iterable<GraphClass> classes,
+            List<Inclusion> propers) {}
 }
 
 /* EOF */
@@ -30,6 +30,55 @@ public class RProperProbe extends RProper<ProbeClass> {
     }
 
 
+    /**
+     * Only probe X < probe Y where X < Y became proper needs to be
+     * examined.
+     */
+    public void runDelta(DeducerData d, Iterable<GraphClass> classes,
+            List<Inclusion> propers) {
+        HashMap<GraphClass,List<GraphClass> > probes =
+                new HashMap<GraphClass,List<GraphClass> >();
+        List<GraphClass> xs, ys;
+
+        for (GraphClass gc : classes) {
+            GraphClass base = ((ProbeClass) gc).getBase();
+            List<GraphClass> l = probes.get(base);
+            if (l == null) {
+                l = new ArrayList<GraphClass>();
+                probes.put(base, l);
+            }
+            l.add(gc);
+        }
+
+        for (Inclusion e : propers) {
+            if ((xs = probes.get(e.getSuper())) == null  ||
+                    (ys = probes.get(e.getSub())) == null)
+                continue;
+            for (GraphClass x : xs)
+                for (GraphClass y : ys)
+                    if (x != y  &&  d.containsEdge(x, y))
+                        properFromProbe(d, (ProbeClass) x, (ProbeClass) y);
+        }
+    }
+
+
+    /**
+     * Besides the pairs for runDelta(), the added inclusions between probe
+     * classes must be examined.
+     */
+    public void runAdded(DeducerData d, Iterable<GraphClass> classes,
+            Collection<GraphClass> added, List<Inclusion> edges) {
+        runDelta(d, classes, edges);
+        for (Inclusion e : edges) {
+            if (e.getSuper() instanceof ProbeClass  &&
+                    e.getSub() instanceof ProbeClass  &&
+                    e.getSuper() != e.getSub())
+                properFromProbe(d, (ProbeClass) e.getSuper(),
+                        (ProbeClass) e.getSub());
+        }
+    }
+
+
     /**
      * Mark probe X < probe Y if X < Y, unless we already know otherwise.
      */
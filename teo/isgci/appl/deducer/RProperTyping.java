@@ -9,13 +9,14 @@
 package teo.isgci.appl.deducer;
 
 import java.lang.annotation.*;
+import teo.isgci.gc.GraphClass;
 
 /**
  * Gives the expected types for class when invoking the rule.
  */
 @Retention(RetentionPolicy.RUNTIME)
 public @interface RProperTyping {
-    Class type();
+    Class<? extends GraphClass> type();
 }
 
 /* EOF */
@@ -10,6 +10,7 @@ package teo.isgci.appl.deducer;
 
 import java.util.*;
 import teo.isgci.gc.*;
+import teo.isgci.relation.*;
 
 /**
  * A subclass relation rule. Rules are stateless and the run method may be
@@ -19,25 +20,147 @@ import teo.isgci.gc.*;
  */
 public abstract class RSub<TP extends GraphClass, TB extends GraphClass> {
 
+    /** The number of pairs in the last run */
+    private long pairs;
+    /** The number of pairs examined in the last run */
+    private long tested;
+
+    /**
+     * Yields for a super the subs that a rule might relate to it.
+     */
+    interface Candidates {
+        /** Return the candidate subs for gc, in the order of the subs */
+        public List<GraphClass> get(GraphClass gc);
+    }
+
+
     /**
      * Run this rule on d examining every pair from supers, subs.
      * supers, sub are assumed to contain only TP and TB, resp.!
      * By default, run is only examined for unequal pairs that have no edge
      * super->sub already.
+     * If the rule provides candidates(), only the candidate pairs are
+     * examined.
      */
     public void run(DeducerData d,
             Iterable<GraphClass> supers, Iterable<GraphClass> subs) {
+        Candidates cand = candidates(subs);
+        List<GraphClass> sbs = cand == null ? null : list(subs);
+        pairs = tested = 0;
+
         for (GraphClass gi : supers) {
-            for (GraphClass gj : subs) {
+            for (GraphClass gj : cand == null ? subs : cand.get(gi)) {
                 //System.err.println(gi.getID() +" >?> "+ gj.getID());
+                if (cand == null)
+                    pairs++;
                 if (gi == gj)
                     continue;
+                tested++;
                 if (!d.containsEdge(gi, gj))
                     run(d, (TP) gi, (TB) gj);
             }
+            if (cand != null)
+                pairs += sbs.size();
         }
     }
 
+    /**
+     * Semi-naive version of run(): Examine only the pairs from supers, subs
+     * that involve a class of delta, or whose outcome may depend on an edge
+     * of delta (see runEdge()).
+     */
+    public void runDelta(DeducerData d, Delta delta,
+            ClassLookup supers, ClassLookup subs) {
+        List<GraphClass> newSubs = delta.newIn(subs);
+        resetCounts();
+
+        for (GraphClass gi : supers.getList())
+            for (GraphClass gj : delta.isNew(gi) ? subs.getList() : newSubs)
+                runPair(d, gi, gj);
+
+        for (Inclusion e : delta.getEdges())
+            runEdge(d, e.getSuper(), e.getSub(), supers, subs);
+    }
+
+    /**
+     * Run this rule on a single pair, like run(d, supers, subs) does.
+     */
+    @SuppressWarnings("unchecked")
+    protected void runPair(DeducerData d, GraphClass gi, GraphClass gj) {
+        count(gi, gj);
+        if (gi != gj  &&  !d.containsEdge(gi, gj))
+            run(d, (TP) gi, (TB) gj);
+    }
+
+    /**
+     * Run this rule (using runPair) on the pairs from supers, subs whose
+     * outcome may have changed because the edge from->to was added. By
+     * default none, for rules that only look at the pair itself.
+     */
+    protected void runEdge(DeducerData d, GraphClass from, GraphClass to,
+            ClassLookup supers, ClassLookup subs) {}
+
+    /**
+     * Reset the numbers of pairs, for the start of a run.
+     */
+    protected void resetCounts() {
+        pairs = tested = 0;
+    }
+
+    /**
+     * Set the numbers of pairs of the last run, for rules that override
+     * run().
+     */
+    protected void setCounts(long pairs, long tested) {
+        this.pairs = pairs;
+        this.tested = tested;
+    }
+
+    /**
+     * Count the pair gi, gj as examined, for rules that override run() or
+     * runDelta().
+     */
+    protected void count(GraphClass gi, GraphClass gj) {
+        pairs++;
+        if (gi != gj)
+            tested++;
+    }
+
+    /**
+     * Return the number of super-sub pairs in the last run.
+     */
+    public long getPairs() {
+        return pairs;
+    }
+
+    /**
+     * Return the number of unequal pairs that were examined in the last
+     * run. The others were skipped as they weren't candidates.
+     */
+    public long getTested() {
+        return tested;
+    }
+
+    /**
+     * Return candidates for the subs in subs, or null if all pairs must be
+     * examined. By default null.
+     */
+    protected Candidates candidates(Iterable<GraphClass> subs) {
+        return null;
+    }
+
+    /**
+     * Return the elements of it as a list.
+     */
+    protected static List<GraphClass> list(Iterable<GraphClass> it) {
+        if (it instanceof List)
+            return (List<GraphClass>) it;
+        List<GraphClass> res = new ArrayList<GraphClass>();
+        for (GraphClass gc : it)
+            res.add(gc);
+        return res;
+    }
+
     /**
      * Run this rule for super gc1 and sub gc2.
      * Note that a rule may add more edges than just gc1->gc2
@@ -10,6 +10,7 @@ package teo.isgci.appl.deducer;
 
 import java.util.*;
 import teo.isgci.gc.*;
+import teo.isgci.relation.*;
 
 @RSubTyping (
     superType = ComplementClass.class,
@@ -19,8 +20,10 @@ public class RSubComplement extends RSub<ComplementClass,GraphClass> {
 
     public void run(DeducerData d,
             Iterable<GraphClass> supers, Iterable<GraphClass> subs) {
+        resetCounts();
         for (GraphClass gi : supers)
             for (GraphClass gj : supers) {  // subs is not used!
+                count(gi, gj);
                 run(d, (ComplementClass) gi, (ComplementClass) gj);
                 // Run up to equality (eq important for self-compl. classes)
                 if (gi == gj)
@@ -29,6 +32,45 @@ public class RSubComplement extends RSub<ComplementClass,GraphClass> {
     }
 
 
+    /**
+     * run(d, gc1, gc2) covers both orders of gc1, gc2, so it suffices to
+     * pair the new classes with all others, and the complements related to
+     * the super of a new edge with those related to its sub.
+     */
+    public void runDelta(DeducerData d, Delta delta,
+            ClassLookup supers, ClassLookup subs) {
+        // The new classes were added last, so run up to equality like run()
+        List<GraphClass> all = supers.getList();
+        resetCounts();
+        for (int i = all.size() - delta.newIn(supers).size();
+                i < all.size(); i++)
+            for (int j = 0; j <= i; j++) {
+                count(all.get(i), all.get(j));
+                run(d, (ComplementClass) all.get(i),
+                        (ComplementClass) all.get(j));
+            }
+
+        for (Inclusion e : delta.getEdges())
+            for (GraphClass gi : related(e.getSuper(), supers))
+                for (GraphClass gj : related(e.getSub(), supers)) {
+                    count(gi, gj);
+                    run(d, (ComplementClass) gi, (ComplementClass) gj);
+                }
+    }
+
+
+    /**
+     * Return the complement classes in supers that are gc or have base gc.
+     */
+    private List<GraphClass> related(GraphClass gc, ClassLookup supers) {
+        if (!supers.accepts(gc))
+            return supers.withBase(gc);
+        List<GraphClass> res = new ArrayList<GraphClass>(supers.withBase(gc));
+        res.add(gc);
+        return res;
+    }
+
+
     protected void run(DeducerData d,
             ComplementClass gc1, ComplementClass gc2) {
         GraphClass gc3 = gc1.getBase();
@@ -9,6 +9,9 @@
 package teo.isgci.appl.deducer;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import teo.isgci.gc.*;
 
 /** Called separately, therefore no @RSubTyping */
@@ -23,9 +26,98 @@ public class RSubDirect extends RSub<GraphClass,GraphClass> {
     }
 
 
+    /**
+     * Like run(d, supers, subs), but test the pairs using the given number
+     * of threads. The workers only call test() and collect the pairs that
+     * pass; afterwards the calling thread calls apply() for these pairs in
+     * the same order as run() would, skipping pairs for which an edge was
+     * added in the meantime. The result is therefore the same as that of
+     * run().
+     */
+    public void runParallel(final DeducerData d,
+            Iterable<GraphClass> supers, Iterable<GraphClass> subs,
+            int threads) {
+        tr = d.newTraceData("direct");
+        final List<GraphClass> sups = list(supers);
+        final List<GraphClass> sbs = list(subs);
+        final Candidates cand = candidates(sbs);
+
+        // hits[i] = the subs of sups[i] that pass the test
+        final GraphClass[][] hits = new GraphClass[sups.size()][];
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicLong count = new AtomicLong();
+        List<Callable<Object> > workers = new ArrayList<Callable<Object> >();
+        for (int t = 0; t < threads; t++) {
+            workers.add(new Callable<Object>() {
+                public Object call() {
+                    List<GraphClass> buf = new ArrayList<GraphClass>();
+                    long n = 0;
+                    int i;
+                    while ((i = next.getAndIncrement()) < hits.length) {
+                        GraphClass gi = sups.get(i);
+                        for (GraphClass gj : cand.get(gi)) {
+                            if (gi == gj)
+                                continue;
+                            n++;
+                            if (!d.containsEdge(gi, gj)  &&  test(gi, gj))
+                                buf.add(gj);
+                        }
+                        hits[i] = buf.toArray(new GraphClass[buf.size()]);
+                        buf.clear();
+                    }
+                    count.addAndGet(n);
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Object> f : pool.invokeAll(workers))
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        setCounts((long) sups.size() * sbs.size(), count.get());
+
+        for (int i = 0; i < hits.length; i++) {
+            GraphClass gi = sups.get(i);
+            for (GraphClass gj : hits[i])
+                if (!d.containsEdge(gi, gj))
+                    apply(d, gi, gj);
+        }
+    }
+
+
+    /** Only pairs that can pass subClassOf are candidates */
+    protected Candidates candidates(Iterable<GraphClass> subs) {
+        return new SubClassIndex(list(subs));
+    }
+
+
     protected void run(DeducerData d, GraphClass gc1, GraphClass gc2) {
-        if (gc2.subClassOf(gc1))
-            d.addTrivialEdge(gc1, gc2, tr);
+        if (test(gc1, gc2))
+            apply(d, gc1, gc2);
+    }
+
+
+    /**
+     * Return true iff gc2 is a direct subclass of gc1. subClassOf only
+     * looks at the classes themselves, so this is safe for runParallel.
+     */
+    private boolean test(GraphClass gc1, GraphClass gc2) {
+        return gc2.subClassOf(gc1);
+    }
+
+
+    /** Add the edge gc1->gc2 for which test() returned true */
+    private void apply(DeducerData d, GraphClass gc1, GraphClass gc2) {
+        d.addTrivialEdge(gc1, gc2, tr);
     }
 
 }
@@ -29,6 +29,15 @@ public class RSubHereditary extends RSub<HereditaryClass,GraphClass> {
                 d.newTraceData("hereditariness", d.getEdge(gc3,gc2)));
         }
     }
+
+
+    /** from->to helps for hereditary classes based on from */
+    @Override
+    protected void runEdge(DeducerData d, GraphClass from, GraphClass to,
+            ClassLookup supers, ClassLookup subs) {
+        for (GraphClass gc : supers.withBase(from))
+            runPair(d, gc, to);
+    }
 }
 
 /* EOF */
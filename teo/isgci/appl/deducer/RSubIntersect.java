@@ -47,6 +47,15 @@ public class RSubIntersect extends RSub<IntersectClass,GraphClass> {
         d.addTrivialEdge(gc1, gc2,
                 d.newTraceData("intersect", traces.toArray(new Inclusion[0])));
     }
+
+
+    /** from->to helps for intersections containing from */
+    @Override
+    protected void runEdge(DeducerData d, GraphClass from, GraphClass to,
+            ClassLookup supers, ClassLookup subs) {
+        for (GraphClass gc : supers.withMember(from))
+            runPair(d, gc, to);
+    }
 }
 
 /* EOF */
@@ -28,6 +28,16 @@ public class RSubProbe extends RSub<ProbeClass,ProbeClass> {
                 d.newTraceData("probeclass", d.getEdge(gc3,gc4)));
         }
     }
+
+
+    /** from->to helps for classes based on from and to */
+    @Override
+    protected void runEdge(DeducerData d, GraphClass from, GraphClass to,
+            ClassLookup supers, ClassLookup subs) {
+        for (GraphClass gc1 : supers.withBase(from))
+            for (GraphClass gc2 : subs.withBase(to))
+                runPair(d, gc1, gc2);
+    }
 }
 
 /* EOF */
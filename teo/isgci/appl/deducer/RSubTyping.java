@@ -9,6 +9,7 @@
 package teo.isgci.appl.deducer;
 
 import java.lang.annotation.*;
+import teo.isgci.gc.GraphClass;
 
 /**
  * Gives the expected types for the superclass and subclass when invoking the
@@ -16,8 +17,8 @@ import java.lang.annotation.*;
  */
 @Retention(RetentionPolicy.RUNTIME)
 public @interface RSubTyping {
-    Class superType();
-    Class subType();
+    Class<? extends GraphClass> superType();
+    Class<? extends GraphClass> subType();
 }
 
 /* EOF */
@@ -47,6 +47,15 @@ public class RSubUnion extends RSub<GraphClass,UnionClass> {
         d.addTrivialEdge(gc1, gc2,
                 d.newTraceData("union", traces.toArray(new Inclusion[0])));
     }
+
+
+    /** from->to helps for unions containing to */
+    @Override
+    protected void runEdge(DeducerData d, GraphClass from, GraphClass to,
+            ClassLookup supers, ClassLookup subs) {
+        for (GraphClass gc : subs.withMember(to))
+            runPair(d, from, gc);
+    }
 }
 
 /* EOF */
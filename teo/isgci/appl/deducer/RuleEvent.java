@@ -0,0 +1,60 @@
+/*
+ * Flight recorder event for a rule invocation of the deducer.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.appl.deducer;
+
+import jdk.jfr.*;
+
+/**
+ * An invocation of a rule by a Deducer, with the same counts as RuleStats
+ * records.
+ */
+@Name("teo.isgci.Rule")
+@Label("Deducer Rule")
+@Category({"ISGCI", "Deducer"})
+@Description("An invocation of a rule of the deducer")
+@StackTrace(false)
+class RuleEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Rule")
+    String rule;
+
+    @Label("Confidence")
+    int confidence;
+
+    @Label("Iteration")
+    int iteration;
+
+    @Label("Round")
+    int round;
+
+    @Label("Nodes")
+    @Description("Classes in the graph before the invocation")
+    int nodes;
+
+    @Label("Edges")
+    @Description("Inclusions in the graph before the invocation")
+    int edges;
+
+    @Label("Pairs")
+    @Description("Pairs of classes examined, or -1 if unknown")
+    long pairs;
+
+    @Label("Edges Added")
+    long edgesAdded;
+
+    @Label("Classes Added")
+    long classesAdded;
+
+    @Label("Propers Set")
+    long propersSet;
+}
+
+/* EOF */
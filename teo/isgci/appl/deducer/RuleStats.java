@@ -0,0 +1,205 @@
+/*
+ * Statistics on the rule invocations of the deducer.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.appl.deducer;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Records for every invocation of a rule by a Deducer how long it took, how
+ * many pairs it examined, how many edges, classes and proper flags it added
+ * and how many bytes it allocated, together with the confidence level,
+ * iteration and round in which it ran.
+ * Invocations are measured one at a time between start() and stop().
+ * Allocations are those of the calling thread only, so work done by the
+ * threads of RSubDirect.runParallel() is not included. If the JVM can't
+ * measure allocations, -1 is recorded.
+ */
+public class RuleStats {
+    /** The deducer whose counters we read */
+    private Deducer deducer;
+    /** The measured invocations */
+    private List<Entry> entries;
+    /** For measuring allocations, or null */
+    private com.sun.management.ThreadMXBean threads;
+
+    //---- Values at start()
+    private long nanos, bytes, edges, classes, propers;
+
+    /** One invocation of a rule */
+    private static class Entry {
+        String phase, rule;
+        int confidence, iteration, round;
+        long nanos, pairs, edges, classes, propers, bytes;
+    }
+
+
+    RuleStats(Deducer deducer) {
+        this.deducer = deducer;
+        entries = new ArrayList<Entry>();
+        try {
+            threads = (com.sun.management.ThreadMXBean)
+                    ManagementFactory.getThreadMXBean();
+            if (!threads.isThreadAllocatedMemorySupported())
+                threads = null;
+            else
+                threads.setThreadAllocatedMemoryEnabled(true);
+        } catch (ClassCastException e) {
+            threads = null;
+        } catch (UnsupportedOperationException e) {
+            threads = null;
+        }
+    }
+
+
+    /**
+     * Start measuring an invocation.
+     */
+    public void start() {
+        edges = deducer.edgesAdded;
+        classes = deducer.classesAdded;
+        propers = deducer.propersSet;
+        bytes = allocated();
+        nanos = System.nanoTime();
+    }
+
+
+    /**
+     * Stop measuring the invocation of rule in phase and record it. pairs is
+     * the number of pairs examined, or -1 if unknown.
+     */
+    public void stop(String phase, Object rule, long pairs) {
+        long now = System.nanoTime();
+        Entry e = new Entry();
+
+        e.phase = phase;
+        e.rule = rule instanceof String ?
+                (String) rule : rule.getClass().getSimpleName();
+        e.confidence = deducer.getConfidence();
+        e.iteration = deducer.getIteration();
+        e.round = deducer.getRound();
+        e.nanos = now - nanos;
+        e.pairs = pairs;
+        e.edges = deducer.edgesAdded - edges;
+        e.classes = deducer.classesAdded - classes;
+        e.propers = deducer.propersSet - propers;
+        e.bytes = threads == null ? -1 : allocated() - bytes;
+        entries.add(e);
+    }
+
+
+    private long allocated() {
+        return threads == null ? 0 :
+                threads.getThreadAllocatedBytes(
+                        Thread.currentThread().getId());
+    }
+
+
+    /**
+     * Write the statistics to w as CSV, one line per invocation.
+     */
+    public void writeCSV(PrintWriter w) {
+        w.println("phase,rule,confidence,iteration,round,millis,pairs,"+
+                "edges,classes,propers,bytes");
+        for (Entry e : entries) {
+            w.print(e.phase);
+            w.print(',');
+            w.print(e.rule);
+            w.print(',');
+            w.print(e.confidence);
+            w.print(',');
+            w.print(e.iteration);
+            w.print(',');
+            w.print(e.round);
+            w.print(',');
+            w.print(millis(e.nanos));
+            w.print(',');
+            w.print(e.pairs);
+            w.print(',');
+            w.print(e.edges);
+            w.print(',');
+            w.print(e.classes);
+            w.print(',');
+            w.print(e.propers);
+            w.print(',');
+            w.println(e.bytes);
+        }
+        w.flush();
+    }
+
+
+    /**
+     * Write the statistics to w as JSON: The invocations, and the totals per
+     * rule.
+     */
+    public void writeJSON(PrintWriter w) {
+        w.println("{");
+        w.println("  \"invocations\": [");
+        for (int i = 0; i < entries.size(); i++) {
+            Entry e = entries.get(i);
+            w.print("    {\"phase\": \""+ e.phase +"\", ");
+            w.print("\"rule\": \""+ e.rule +"\", ");
+            w.print("\"confidence\": "+ e.confidence +", ");
+            w.print("\"iteration\": "+ e.iteration +", ");
+            w.print("\"round\": "+ e.round +", ");
+            w.print("\"millis\": "+ millis(e.nanos) +", ");
+            w.print("\"pairs\": "+ e.pairs +", ");
+            w.print("\"edges\": "+ e.edges +", ");
+            w.print("\"classes\": "+ e.classes +", ");
+            w.print("\"propers\": "+ e.propers +", ");
+            w.print("\"bytes\": "+ e.bytes +"}");
+            w.println(i < entries.size()-1 ? "," : "");
+        }
+        w.println("  ],");
+
+        // Totals per rule, in order of first invocation
+        Map<String,Entry> totals = new LinkedHashMap<String,Entry>();
+        Map<String,Integer> counts = new HashMap<String,Integer>();
+        for (Entry e : entries) {
+            Entry t = totals.get(e.rule);
+            if (t == null) {
+                totals.put(e.rule, t = new Entry());
+                counts.put(e.rule, 0);
+            }
+            counts.put(e.rule, counts.get(e.rule) + 1);
+            t.nanos += e.nanos;
+            t.pairs += Math.max(e.pairs, 0);
+            t.edges += e.edges;
+            t.classes += e.classes;
+            t.propers += e.propers;
+            t.bytes += Math.max(e.bytes, 0);
+        }
+
+        w.println("  \"rules\": {");
+        int i = 0;
+        for (Map.Entry<String,Entry> me : totals.entrySet()) {
+            Entry t = me.getValue();
+            w.print("    \""+ me.getKey() +"\": {");
+            w.print("\"invocations\": "+ counts.get(me.getKey()) +", ");
+            w.print("\"millis\": "+ millis(t.nanos) +", ");
+            w.print("\"pairs\": "+ t.pairs +", ");
+            w.print("\"edges\": "+ t.edges +", ");
+            w.print("\"classes\": "+ t.classes +", ");
+            w.print("\"propers\": "+ t.propers +", ");
+            w.print("\"bytes\": "+ t.bytes +"}");
+            w.println(++i < totals.size() ? "," : "");
+        }
+        w.println("  }");
+        w.println("}");
+        w.flush();
+    }
+
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
+
+/* EOF */
@@ -0,0 +1,830 @@
+/*
+ * Saves the deduced inclusions so a later run can continue from them.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.appl.deducer;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+import teo.isgci.gc.*;
+import teo.isgci.relation.*;
+import teo.isgci.grapht.*;
+import teo.isgci.problem.*;
+
+/**
+ * The state of a Deducer after findTrivialPropers(): All classes (including
+ * the AUTO_* ones with their ids, whether they're temporary and the
+ * confidence level on which they were deduced), the transitively closed
+ * inclusions with their confidence and properness, and the traces.
+ * A snapshot can be continued only with the same smallgraphs and rules
+ * (Deducer.RULES_VERSION), and if the input has grown since: Every class
+ * and inclusion of the input of the snapshot must still be there, unchanged.
+ * Inclusions may have become proper or more certain. The additions are then
+ * deduced semi-naively on top of the snapshot, see Deducer.setSnapshot(),
+ * and only the classes and inclusions that were added are checked and
+ * examined for properness, see findAdded().
+ * This deduces the same relations as starting from scratch, but the rules
+ * see the classes and edges in another order. So the traces, and with them
+ * the edges kept by deleteSuperfluousEdges(), which of several equivalent
+ * new classes are temporary and the ids of new AUTO_* classes may differ.
+ * The distributed complexities are stored as well, if the snapshot is
+ * written after distributing them. They are distributed again only on the
+ * nodes around the additions, see distributeComplexities().
+ */
+public class Snapshot {
+    /** Start of a snapshot file, includes the version of the format */
+    private static final int MAGIC = 0x15C6D004;
+
+    // Class flags
+    private static final int INPUT = 1;
+    private static final int VERTEX = 2;
+    private static final int TEMP = 4;
+    private static final int DIRECTED = 8;
+    private static final int SELFCO = 16;
+    private static final int CLIQUEFIXED = 32;
+    private static final int HERED = 64;
+    private static final int HASID = 128;
+
+    /** Deducer.RULES_VERSION of the rules the snapshot was deduced with */
+    private int version;
+    /** Checksum of the smallgraphs the snapshot was deduced with */
+    private long checksum;
+
+    //---- The classes by key. Members are stored before their classes.
+    private int[] ids;
+    private int[] flags;
+    /** The confidence level on which a deduced class was added */
+    private byte[] levels;
+    private String[] types;
+    private String[] names;
+    private String[] hereds;
+    /** Keys of the set members or base of a class */
+    private int[][] members;
+    /** Names of the forbidden smallgraphs of a class */
+    private String[][] forbidden;
+
+    //---- The input inclusions
+    private int[] inputSupers;
+    private int[] inputSubs;
+    private byte[] inputConfidences;
+    private boolean[] inputPropers;
+
+    //---- The edges by number
+    private int[] supers;
+    private int[] subs;
+    private byte[] confidences;
+    private boolean[] propers;
+    private Traces traces;
+    private Traces relTraces;
+    /** The algorithms and complexities on the nodes */
+    private ComplexitySnapshot complexities;
+
+    //---- Set by match()
+    /** The current class for every key */
+    private GraphClass[] classes;
+    /** Input classes that are not in the snapshot */
+    private List<GraphClass> newClasses;
+    /** Input inclusions that are not in the snapshot, or became stronger */
+    private List<Inclusion> newInclusions;
+    /** The confidence of the input inclusions by pair of node ids */
+    private Map<Long,Integer> inputPairs;
+
+    //---- Set by findAdded()
+    /** The nodes that are not in the snapshot */
+    private List<GraphClass> addedClasses;
+    /** The edges that are not in the snapshot, or are new input inclusions */
+    private List<Inclusion> addedEdges;
+
+
+    private Snapshot() {
+    }
+
+
+    /**
+     * Return a checksum of the given file, to detect that a snapshot was
+     * made with other smallgraphs.
+     */
+    public static long checksum(String file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[64*1024];
+        InputStream in = new FileInputStream(file);
+        int n;
+
+        try {
+            while ((n = in.read(buf)) > 0)
+                crc.update(buf, 0, n);
+        } finally {
+            in.close();
+        }
+        return crc.getValue();
+    }
+
+
+    /**
+     * Return the version of the rules this snapshot was deduced with, see
+     * Deducer.RULES_VERSION.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+
+    /**
+     * Return the checksum of the smallgraphs this snapshot was deduced with.
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+
+
+    //----------------------------- Writing --------------------------------
+
+    /**
+     * Write the state of d to file. inputs are the classes and originals the
+     * edges of the input, with originalPropers the indices of those that
+     * were proper in the input. checksum is the checksum of the smallgraphs
+     * file. The complexities must have been distributed on the graph of d.
+     */
+    public static void write(Deducer d, Collection<GraphClass> inputs,
+            List<Inclusion> originals, BitSet originalPropers, long checksum,
+            String file) throws IOException {
+        IndexedGraph<GraphClass,Inclusion> graph = d.graph;
+        Set<GraphClass> inputSet = Collections.newSetFromMap(
+                new IdentityHashMap<GraphClass,Boolean>());
+        inputSet.addAll(inputs);
+        IdentityHashMap<GraphClass,Integer> keys =
+                new IdentityHashMap<GraphClass,Integer>();
+        List<GraphClass> order = new ArrayList<GraphClass>();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), 64*1024));
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(Deducer.RULES_VERSION);
+            out.writeLong(checksum);
+
+            //---- Classes
+            for (GraphClass gc : graph.vertexSet())
+                number(gc, keys, order);
+            out.writeInt(order.size());
+            for (GraphClass gc : order)
+                writeClass(out, d, gc, inputSet, keys);
+
+            //---- Input inclusions
+            out.writeInt(originals.size());
+            for (int i = 0; i < originals.size(); i++) {
+                Inclusion e = originals.get(i);
+                out.writeInt(keys.get(e.getSuper()));
+                out.writeInt(keys.get(e.getSub()));
+                out.writeByte(e.getConfidence());
+                out.writeBoolean(originalPropers.get(i));
+            }
+
+            //---- Edges
+            int[] numbers = new int[graph.getEdgeIDBound()];
+            int n = 0;
+            for (Inclusion e : graph.edgeSet())
+                numbers[graph.getEdgeID(e)] = n++;
+
+            Map<String,Integer> descs = new HashMap<String,Integer>();
+            out.writeInt(graph.edgeSet().size());
+            out.writeBoolean(d.trace);
+            for (Inclusion e : graph.edgeSet()) {
+                out.writeInt(keys.get(graph.getEdgeSource(e)));
+                out.writeInt(keys.get(graph.getEdgeTarget(e)));
+                out.writeByte(e.getConfidence());
+                out.writeBoolean(e.isProper());
+                if (d.trace) {
+                    writeTrace(out, d, d.traceLog.get(e), numbers, descs);
+                    writeTrace(out, d, d.traceRelLog.get(e), numbers, descs);
+                }
+            }
+
+            //---- Complexities
+            ComplexitySnapshot.write(out, keys);
+        } finally {
+            out.close();
+        }
+    }
+
+
+    /**
+     * Give gc and its members (first) a key. The members are kept as they
+     * are, even if they're equal to a node, as they determine the name of gc.
+     */
+    private static void number(GraphClass gc,
+            IdentityHashMap<GraphClass,Integer> keys, List<GraphClass> order) {
+        if (keys.containsKey(gc))
+            return;
+        for (GraphClass m : membersOf(gc))
+            number(m, keys, order);
+        keys.put(gc, order.size());
+        order.add(gc);
+    }
+
+
+    /**
+     * Return the set members or the base of gc.
+     */
+    private static List<GraphClass> membersOf(GraphClass gc) {
+        List<GraphClass> res = new ArrayList<GraphClass>();
+
+        if (gc instanceof SetClass)
+            res.addAll(((SetClass) gc).getSet());
+        else if (gc instanceof DerivedClass)
+            res.add(((DerivedClass) gc).getBase());
+        return res;
+    }
+
+
+    private static void writeClass(DataOutputStream out, Deducer d,
+            GraphClass gc, Set<GraphClass> inputs,
+            IdentityHashMap<GraphClass,Integer> keys) throws IOException {
+        int f = 0;
+        if (d.graph.findVertex(gc) == gc) {
+            f |= VERTEX;
+            if (inputs.contains(gc))
+                f |= INPUT;
+            if (d.deductionTemporaries.contains(gc))
+                f |= TEMP;
+        }
+        if (gc.isDirected())
+            f |= DIRECTED;
+        if (gc.isSelfComplementary())
+            f |= SELFCO;
+        if (gc.isCliqueFixed())
+            f |= CLIQUEFIXED;
+        if (gc.hereditarinessExplicitly())
+            f |= HERED;
+        if (gc.getID() != null)
+            f |= HASID;
+
+        out.writeInt(f);
+        Integer level = d.nodeConfidences.get(gc);
+        out.writeByte(level != null ? level : Inclusion.CONFIDENCE_HIGHEST);
+        if (gc.getID() != null)
+            out.writeInt(gc.getID());
+        out.writeUTF(gc.getClass().getName());
+        out.writeUTF(gc.toString());
+        if (gc.hereditarinessExplicitly())
+            out.writeUTF(gc.getHereditariness().name());
+
+        if (gc instanceof ForbiddenClass) {
+            Set<String> set = ((ForbiddenClass) gc).getSet();
+            out.writeInt(set.size());
+            for (String s : set)
+                out.writeUTF(s);
+        } else {
+            List<GraphClass> ms = membersOf(gc);
+            out.writeInt(ms.size());
+            for (GraphClass m : ms)
+                out.writeInt(keys.get(m));
+        }
+    }
+
+
+    /**
+     * Write td as the index of its description in descs, followed by the
+     * description itself if it is new, and the numbers of its prerequisites.
+     */
+    private static void writeTrace(DataOutputStream out, Deducer d,
+            TraceData td, int[] numbers, Map<String,Integer> descs)
+            throws IOException {
+        if (td == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        Integer desc = descs.get(td.getDesc());
+        if (desc == null) {
+            out.writeInt(descs.size());
+            out.writeUTF(td.getDesc());
+            descs.put(td.getDesc(), descs.size());
+        } else {
+            out.writeInt(desc);
+        }
+
+        Inclusion[] prereqs = td.getPrereqs();
+        out.writeInt(prereqs.length);
+        for (Inclusion e : prereqs)
+            out.writeInt(e != null  &&  d.graph.containsEdge(e) ?
+                    numbers[d.graph.getEdgeID(e)] : -1);
+    }
+
+
+    //----------------------------- Reading --------------------------------
+
+    /**
+     * Read a snapshot from file.
+     */
+    public static Snapshot read(String file) throws IOException {
+        Snapshot s = new Snapshot();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), 64*1024));
+
+        try {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file +" is not a snapshot");
+            s.version = in.readInt();
+            s.checksum = in.readLong();
+
+            //---- Classes
+            int n = in.readInt();
+            s.ids = new int[n];
+            s.flags = new int[n];
+            s.levels = new byte[n];
+            s.types = new String[n];
+            s.names = new String[n];
+            s.hereds = new String[n];
+            s.members = new int[n][];
+            s.forbidden = new String[n][];
+            for (int k = 0; k < n; k++) {
+                s.flags[k] = in.readInt();
+                s.levels[k] = in.readByte();
+                if ((s.flags[k] & HASID) != 0)
+                    s.ids[k] = in.readInt();
+                s.types[k] = in.readUTF();
+                s.names[k] = in.readUTF();
+                if ((s.flags[k] & HERED) != 0)
+                    s.hereds[k] = in.readUTF();
+                int m = in.readInt();
+                if (is(s.types[k], ForbiddenClass.class)) {
+                    s.forbidden[k] = new String[m];
+                    for (int j = 0; j < m; j++)
+                        s.forbidden[k][j] = in.readUTF();
+                } else {
+                    s.members[k] = new int[m];
+                    for (int j = 0; j < m; j++)
+                        s.members[k][j] = in.readInt();
+                }
+            }
+
+            //---- Input inclusions
+            n = in.readInt();
+            s.inputSupers = new int[n];
+            s.inputSubs = new int[n];
+            s.inputConfidences = new byte[n];
+            s.inputPropers = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                s.inputSupers[i] = in.readInt();
+                s.inputSubs[i] = in.readInt();
+                s.inputConfidences[i] = in.readByte();
+                s.inputPropers[i] = in.readBoolean();
+            }
+
+            //---- Edges
+            n = in.readInt();
+            boolean traced = in.readBoolean();
+            s.supers = new int[n];
+            s.subs = new int[n];
+            s.confidences = new byte[n];
+            s.propers = new boolean[n];
+            List<String> descs = new ArrayList<String>();
+            if (traced) {
+                s.traces = new Traces(n, descs);
+                s.relTraces = new Traces(n, descs);
+            }
+            for (int i = 0; i < n; i++) {
+                s.supers[i] = in.readInt();
+                s.subs[i] = in.readInt();
+                s.confidences[i] = in.readByte();
+                s.propers[i] = in.readBoolean();
+                if (traced) {
+                    s.traces.read(in, i);
+                    s.relTraces.read(in, i);
+                }
+            }
+
+            //---- Complexities
+            s.complexities = ComplexitySnapshot.read(in);
+        } finally {
+            in.close();
+        }
+        return s;
+    }
+
+
+    //----------------------------- Matching -------------------------------
+
+    /**
+     * Match the snapshot against the input in graph, on which nothing has
+     * been deduced yet. Returns null if the deductions can be continued from
+     * the snapshot, otherwise the reason why not.
+     */
+    String match(IndexedGraph<GraphClass,Inclusion> graph) {
+        Map<Integer,GraphClass> byID = new HashMap<Integer,GraphClass>();
+        for (GraphClass gc : graph.vertexSet())
+            byID.put(gc.getID(), gc);
+
+        //---- Classes
+        classes = new GraphClass[ids.length];
+        for (int k = 0; k < ids.length; k++) {
+            GraphClass gc = create(k);
+
+            if ((flags[k] & INPUT) != 0) {
+                GraphClass cur = byID.remove(ids[k]);
+                if (cur == null)
+                    return "class "+ ids[k] +" removed";
+                if (!gc.equals(cur)  ||  !names[k].equals(cur.toString())  ||
+                        flags(cur) != flags(gc))
+                    return "class "+ ids[k] +" changed";
+                classes[k] = cur;
+            } else {
+                if ((flags[k] & VERTEX) != 0  &&
+                        graph.findVertex(gc) != null)
+                    return "class "+ names[k] +" is now in the input";
+                classes[k] = gc;
+            }
+        }
+
+        newClasses = new ArrayList<GraphClass>();
+        for (GraphClass gc : graph.vertexSet())
+            if (byID.containsKey(gc.getID()))
+                newClasses.add(gc);
+
+        //---- Input inclusions
+        Set<Inclusion> known = Collections.newSetFromMap(
+                new IdentityHashMap<Inclusion,Boolean>());
+        for (int i = 0; i < inputSupers.length; i++) {
+            Inclusion e = graph.findEdge(classes[inputSupers[i]],
+                    classes[inputSubs[i]]);
+            if (e == null)
+                return "inclusion "+ ids[inputSupers[i]] +" -> "+
+                        ids[inputSubs[i]] +" removed";
+            if (e.getConfidence() < inputConfidences[i]  ||
+                    inputPropers[i]  &&  !e.isProper())
+                return "inclusion "+ e +" weakened";
+            if (e.getConfidence() == inputConfidences[i]  &&
+                    e.isProper() == inputPropers[i])
+                known.add(e);
+        }
+
+        newInclusions = new ArrayList<Inclusion>();
+        inputPairs = new HashMap<Long,Integer>();
+        for (Inclusion e : graph.edgeSet()) {
+            if (!known.contains(e))
+                newInclusions.add(e);
+            inputPairs.put(pair(graph, e.getSuper(), e.getSub()),
+                    e.getConfidence());
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Create the class with the given key from its stored definition.
+     */
+    private GraphClass create(int k) {
+        String type = types[k];
+        GraphClass.Directed dir = (flags[k] & DIRECTED) != 0 ?
+                GraphClass.Directed.DIRECTED : GraphClass.Directed.UNDIRECTED;
+        GraphClass gc;
+
+        if (is(type, BaseClass.class)) {
+            gc = new BaseClass(names[k], dir);
+        } else if (is(type, ForbiddenClass.class)) {
+            // ForbiddenClass adds the smallgraphs to its set in reverse
+            // order, so this keeps the order in which they are written.
+            List<String> set = new ArrayList<String>(
+                    Arrays.asList(forbidden[k]));
+            Collections.reverse(set);
+            gc = new ForbiddenClass(set);
+        } else if (is(type, IntersectClass.class)  ||
+                is(type, UnionClass.class)) {
+            Set<GraphClass> set = new HashSet<GraphClass>();
+            for (int m : members[k])
+                set.add(classes[m]);
+            gc = is(type, IntersectClass.class) ?
+                    new IntersectClass(set, dir) : new UnionClass(set, dir);
+        } else {
+            GraphClass base = classes[members[k][0]];
+            if (is(type, ComplementClass.class))
+                gc = new ComplementClass(base);
+            else if (is(type, IsometricHereditaryClass.class))
+                gc = new IsometricHereditaryClass(base);
+            else if (is(type, ConnectedHereditaryClass.class))
+                gc = new ConnectedHereditaryClass(base);
+            else if (is(type, InducedHereditaryClass.class))
+                gc = new InducedHereditaryClass(base);
+            else if (is(type, ProbeClass.class))
+                gc = new ProbeClass(base);
+            else if (is(type, CliqueClass.class))
+                gc = new CliqueClass(base);
+            else
+                throw new RuntimeException("Unknown graphclass type "+ type);
+        }
+
+        if ((flags[k] & HERED) != 0)
+            gc.setHereditariness(GraphClass.Hered.valueOf(hereds[k]));
+        gc.setSelfComplementary((flags[k] & SELFCO) != 0);
+        gc.setCliqueFixed((flags[k] & CLIQUEFIXED) != 0);
+        if ((flags[k] & HASID) != 0)
+            gc.setID(ids[k]);
+        if (!names[k].equals(gc.toString()))
+            gc.setName(names[k]);
+        return gc;
+    }
+
+
+    /**
+     * Return the ids of from and to in graph packed in a long.
+     */
+    private static long pair(IndexedGraph<GraphClass,Inclusion> graph,
+            GraphClass from, GraphClass to) {
+        return ((long) graph.getVertexID(from) << 32) |
+                graph.getVertexID(to);
+    }
+
+
+    /**
+     * Return true iff type is the name of class c.
+     */
+    private static boolean is(String type, Class<?> c) {
+        return c.getName().equals(type);
+    }
+
+
+    /**
+     * Return the class flags that describe the definition of gc.
+     */
+    private static int flags(GraphClass gc) {
+        return (gc.isDirected() ? DIRECTED : 0) |
+                (gc.isSelfComplementary() ? SELFCO : 0) |
+                (gc.isCliqueFixed() ? CLIQUEFIXED : 0) |
+                (gc.hereditarinessExplicitly() ? HERED : 0) |
+                gc.getHereditariness().ordinal() << 8;
+    }
+
+
+    /**
+     * Return the input classes that are not in the snapshot.
+     */
+    List<GraphClass> getNewClasses() {
+        return newClasses;
+    }
+
+
+    /**
+     * Return the input inclusions that are not in the snapshot, or that
+     * became proper or more certain.
+     */
+    List<Inclusion> getNewInclusions() {
+        return newInclusions;
+    }
+
+
+    /**
+     * Find the nodes and edges that the deductions of d added to the
+     * snapshot. The edges include the input inclusions that became proper or
+     * more certain.
+     */
+    void findAdded(Deducer d) {
+        Set<GraphClass> known = Collections.newSetFromMap(
+                new IdentityHashMap<GraphClass,Boolean>());
+        for (int k = 0; k < ids.length; k++)
+            if ((flags[k] & VERTEX) != 0)
+                known.add(classes[k]);
+        addedClasses = new ArrayList<GraphClass>();
+        for (GraphClass gc : d.graph.vertexSet())
+            if (!known.contains(gc))
+                addedClasses.add(gc);
+
+        BitSet edges = new BitSet(d.graph.getEdgeIDBound());
+        for (int i = 0; i < supers.length; i++) {
+            Inclusion e = d.getEdge(classes[supers[i]], classes[subs[i]]);
+            if (e != null)
+                edges.set(d.graph.getEdgeID(e));
+        }
+        for (Inclusion e : newInclusions) {
+            Inclusion cur = d.getEdge(e.getSuper(), e.getSub());
+            if (cur != null)
+                edges.clear(d.graph.getEdgeID(cur));
+        }
+        addedEdges = new ArrayList<Inclusion>();
+        for (Inclusion e : d.graph.edgeSet())
+            if (!edges.get(d.graph.getEdgeID(e)))
+                addedEdges.add(e);
+    }
+
+
+    /**
+     * Return the nodes that are not in the snapshot, see findAdded().
+     */
+    List<GraphClass> getAddedClasses() {
+        return addedClasses;
+    }
+
+
+    /**
+     * Return the edges that are not in the snapshot or are new input
+     * inclusions, see findAdded().
+     */
+    List<Inclusion> getAddedEdges() {
+        return addedEdges;
+    }
+
+
+    //---------------------------- Restoring -------------------------------
+
+    /**
+     * Add the classes that were deduced on the given confidence level to the
+     * graph of d. On the lowest level, any remaining ones are added as well.
+     */
+    void restoreClasses(Deducer d, int confidence) {
+        for (int k = 0; k < ids.length; k++)
+            if ((flags[k] & (VERTEX|INPUT)) == VERTEX  &&
+                    (levels[k] == confidence  ||
+                    confidence == Inclusion.CONFIDENCE_LOWEST  &&
+                    levels[k] < confidence))
+                d.restoreNode(classes[k], (flags[k] & TEMP) != 0);
+    }
+
+
+    /**
+     * Add the edges with the given confidence that are not in the graph of d
+     * yet, and restore their traces. Edges that are input inclusions of this
+     * confidence are left to d. The edges of the highest confidence are
+     * transitively closed and are added as is through d.restoreEdge(), the
+     * others through d.addTrivialEdges(). Returns the number of edges added.
+     */
+    int restoreEdges(Deducer d, int confidence) {
+        int n = 0;
+        EdgeBatch batch = new EdgeBatch();
+
+        for (int i = 0; i < supers.length; i++) {
+            if (!isRestored(d, i, confidence))
+                continue;
+            GraphClass from = classes[supers[i]];
+            GraphClass to = classes[subs[i]];
+            if (!d.graph.containsVertex(from)  ||
+                    !d.graph.containsVertex(to)  ||  d.containsEdge(from, to))
+                continue;
+            if (confidence == Inclusion.CONFIDENCE_HIGHEST) {
+                d.restoreEdge(from, to);
+                n++;
+            } else {
+                batch.add(from, to, null);
+            }
+        }
+        for (Inclusion e : d.addTrivialEdges(batch))
+            if (e != null)
+                n++;
+
+        if (d.trace  &&  traces != null) {
+            for (int i = 0; i < supers.length; i++) {
+                if (!isRestored(d, i, confidence))
+                    continue;
+                Inclusion e = d.getEdge(classes[supers[i]],classes[subs[i]]);
+                TraceData td = traces.get(i, this, d);
+                if (e != null  &&  e.getConfidence() == confidence  &&
+                        td != null)
+                    d.traceLog.set(e, td);
+            }
+        }
+        return n;
+    }
+
+
+    /**
+     * Return true iff edge i has the given confidence and is not an input
+     * inclusion of this confidence.
+     */
+    private boolean isRestored(Deducer d, int i, int confidence) {
+        if (confidences[i] != confidence)
+            return false;
+        Integer input = inputPairs.get(pair(d.graph,
+                classes[supers[i]], classes[subs[i]]));
+        return input == null  ||  input != confidence;
+    }
+
+
+    /**
+     * Mark the proper inclusions of the snapshot as proper in d.
+     */
+    void restorePropers(Deducer d) {
+        for (int i = 0; i < supers.length; i++) {
+            if (!propers[i])
+                continue;
+            Inclusion e = d.getEdge(classes[supers[i]], classes[subs[i]]);
+            if (e != null)
+                e.setProper(true);
+        }
+    }
+
+
+    /**
+     * Restore the traces of the proper inclusions of the snapshot in d.
+     */
+    void restoreRelationTraces(Deducer d) {
+        if (!d.trace  ||  relTraces == null)
+            return;
+
+        for (int i = 0; i < supers.length; i++) {
+            if (!propers[i])
+                continue;
+            Inclusion e = d.getEdge(classes[supers[i]], classes[subs[i]]);
+            TraceData td = relTraces.get(i, this, d);
+            if (e != null  &&  e.isProper()  &&  td != null)
+                d.traceRelLog.set(e, td);
+        }
+    }
+
+
+    /**
+     * Distribute the complexities on the graph of d, after the deductions
+     * were continued from this snapshot. Only the nodes around the classes
+     * and edges that were added to the snapshot are distributed on, unless
+     * the problems or the algorithms of the input changed otherwise.
+     */
+    public void distributeComplexities(Deducer d) {
+        Set<GraphClass> changed = new LinkedHashSet<GraphClass>(addedClasses);
+        for (Inclusion e : addedEdges) {
+            changed.add(e.getSuper());
+            changed.add(e.getSub());
+        }
+
+        String why = complexities.distribute(classes, d.getSCCMap(),
+                changed);
+        if (why != null) {
+            System.out.println("Distributing from scratch: "+ why);
+            Problem.distributeComplexities(d.getSCCMap());
+        }
+    }
+
+
+    //----------------------------- Traces ---------------------------------
+
+    /**
+     * The traces of the edges, with the prerequisites as edge numbers.
+     */
+    private static class Traces {
+        /** The descriptions, shared between Traces */
+        private List<String> descs;
+        /** Index of the description for every edge, -1 if no trace */
+        private int[] desc;
+        /** Where the prerequisites of every edge start in prereqs */
+        private int[] start;
+        private int[] prereqs;
+        private int size;
+
+        Traces(int n, List<String> descs) {
+            this.descs = descs;
+            desc = new int[n];
+            start = new int[n+1];
+            prereqs = new int[2*n];
+            size = 0;
+        }
+
+
+        /**
+         * Read the trace of edge i, which must be the one following the
+         * previously read edge.
+         */
+        void read(DataInputStream in, int i) throws IOException {
+            desc[i] = in.readInt();
+            start[i] = size;
+            if (desc[i] >= 0) {
+                if (desc[i] == descs.size())
+                    descs.add(in.readUTF());
+                int n = in.readInt();
+                if (size + n > prereqs.length)
+                    prereqs = Arrays.copyOf(prereqs,
+                            Math.max(2*prereqs.length, size + n));
+                for (int j = 0; j < n; j++)
+                    prereqs[size++] = in.readInt();
+            }
+            start[i+1] = size;
+        }
+
+
+        /**
+         * Return the trace of edge i with the prerequisites as they're in
+         * the graph of d now, or null if there is no trace or a
+         * prerequisite is missing.
+         */
+        TraceData get(int i, Snapshot s, Deducer d) {
+            if (desc[i] < 0)
+                return null;
+
+            Inclusion[] is = new Inclusion[start[i+1] - start[i]];
+            for (int j = 0; j < is.length; j++) {
+                int p = prereqs[start[i] + j];
+                if (p < 0)
+                    return null;
+                is[j] = d.getEdge(s.classes[s.supers[p]],
+                        s.classes[s.subs[p]]);
+                if (is[j] == null)
+                    return null;
+            }
+            return new TraceData(descs.get(desc[i]), is);
+        }
+    }
+}
+
+/* EOF */
@@ -0,0 +1,195 @@
+/*
+ * Finds the candidate subclasses for a given class.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.appl.deducer;
+
+import java.util.*;
+import teo.isgci.gc.*;
+
+/**
+ * An index on a list of subs that for a given super gc returns the subs sub
+ * for which sub.subClassOf(gc) may hold. It avoids testing all pairs by
+ * following the cases of the subClassOf implementations, so it must be kept
+ * in sync with them:
+ * <ul>
+ * <li>every class: gc is a union containing sub, or a probe class of sub;
+ * <li>unions: gc is a union containing all members of sub;
+ * <li>intersections: gc is a member of sub, or all members of gc are;
+ * <li>hereditary classes: gc equals the base of sub, or is a hereditary
+ *     class with the same base;
+ * <li>forbidden classes: gc is a forbidden class whose forbidden graphs are
+ *     all forbidden in sub;
+ * <li>clique classes: gc is clique graphs (always tested, there are few).
+ * </ul>
+ * For forbidden classes the candidates are exact: For every forbidden sub
+ * the index stores a bitset of the smallgraphs (from the forbidden sets of
+ * the subs) that it forbids, closed under ForbiddenClass.forbids().
+ * The index is not changed by get(), so it can be used by several threads.
+ */
+class SubClassIndex implements RSub.Candidates {
+    /** The subs we're indexing */
+    private List<GraphClass> subs;
+    /** The positions of the subs equal to a class */
+    private Map<GraphClass,List<Integer> > equal;
+    /** Unions by one of their members */
+    private Map<GraphClass,List<Integer> > unions;
+    /** Intersections by each of their members */
+    private Map<GraphClass,List<Integer> > intersects;
+    /** Hereditary classes by their base */
+    private Map<GraphClass,List<Integer> > hereditaries;
+    /** The positions of the classes in subs */
+    private IdentityHashMap<GraphClass,Integer> positions;
+    /** The subs that are tested against every super */
+    private List<Integer> always;
+    /** The positions of the forbidden subs */
+    private int[] forbidden;
+    /** Bit numbers of the smallgraph names in forbidden sets */
+    private Map<String,Integer> bits;
+    /** For every forbidden sub the bits of the graphs it forbids */
+    private long[][] forbids;
+
+    /**
+     * Create an index on subs.
+     */
+    public SubClassIndex(List<GraphClass> subs) {
+        this.subs = subs;
+        equal = new HashMap<GraphClass,List<Integer> >();
+        unions = new HashMap<GraphClass,List<Integer> >();
+        intersects = new HashMap<GraphClass,List<Integer> >();
+        hereditaries = new HashMap<GraphClass,List<Integer> >();
+        positions = new IdentityHashMap<GraphClass,Integer>();
+        always = new ArrayList<Integer>();
+        bits = new HashMap<String,Integer>();
+        List<Integer> forbiddenList = new ArrayList<Integer>();
+
+        for (int i = 0; i < subs.size(); i++) {
+            GraphClass gc = subs.get(i);
+            positions.put(gc, i);
+            add(equal, gc, i);
+
+            if (gc instanceof UnionClass) {
+                // Any member will do, as all must be in the super
+                add(unions, ((UnionClass) gc).getSet().iterator().next(), i);
+            } else if (gc instanceof IntersectClass) {
+                for (GraphClass m : ((IntersectClass) gc).getSet())
+                    add(intersects, m, i);
+            } else if (gc instanceof HereditaryClass) {
+                add(hereditaries, ((HereditaryClass) gc).getBase(), i);
+            } else if (gc instanceof ForbiddenClass) {
+                forbiddenList.add(i);
+                for (String s : ((ForbiddenClass) gc).getSet())
+                    if (!bits.containsKey(s))
+                        bits.put(s, bits.size());
+            } else if (gc instanceof CliqueClass) {
+                always.add(i);
+            }
+        }
+
+        forbidden = new int[forbiddenList.size()];
+        forbids = new long[forbidden.length][];
+        for (int i = 0; i < forbidden.length; i++) {
+            forbidden[i] = forbiddenList.get(i);
+            ForbiddenClass fc = (ForbiddenClass) subs.get(forbidden[i]);
+            long[] row = new long[(bits.size() + 63) >>> 6];
+            for (Map.Entry<String,Integer> b : bits.entrySet())
+                if (fc.forbids(b.getKey()))
+                    row[b.getValue() >>> 6] |= 1L << b.getValue();
+            forbids[i] = row;
+        }
+    }
+
+
+    /**
+     * Return the subs that may be a subclass of gc, in the order of subs.
+     */
+    public List<GraphClass> get(GraphClass gc) {
+        // Gather the positions in a bitset to sort and unify them
+        BitSet res = new BitSet(subs.size());
+
+        for (int i : always)
+            res.set(i);
+
+        if (gc instanceof UnionClass) {
+            for (GraphClass m : ((UnionClass) gc).getSet()) {
+                set(res, equal.get(m));
+                set(res, unions.get(m));
+            }
+        } else if (gc instanceof IntersectClass) {
+            set(res, intersects.get(
+                    ((IntersectClass) gc).getSet().iterator().next()));
+        } else if (gc instanceof ProbeClass) {
+            Integer i = positions.get(((ProbeClass) gc).getBase());
+            if (i != null)
+                res.set(i);
+        } else if (gc instanceof HereditaryClass) {
+            set(res, hereditaries.get(((HereditaryClass) gc).getBase()));
+        } else if (gc instanceof ForbiddenClass) {
+            // Graphs that no sub forbids explicitly are tested directly
+            long[] need = new long[(bits.size() + 63) >>> 6];
+            List<String> unknown = new ArrayList<String>();
+            for (String s : ((ForbiddenClass) gc).getSet()) {
+                Integer b = bits.get(s);
+                if (b == null)
+                    unknown.add(s);
+                else
+                    need[b >>> 6] |= 1L << b;
+            }
+            for (int i = 0; i < forbidden.length; i++)
+                if (contains(forbids[i], need)  &&  forbidsAll(
+                        (ForbiddenClass) subs.get(forbidden[i]), unknown))
+                    res.set(forbidden[i]);
+        }
+
+        set(res, intersects.get(gc));
+        set(res, hereditaries.get(gc));
+
+        List<GraphClass> result =
+                new ArrayList<GraphClass>(res.cardinality());
+        for (int i = res.nextSetBit(0); i >= 0; i = res.nextSetBit(i+1))
+            result.add(subs.get(i));
+        return result;
+    }
+
+
+    /**
+     * Return true iff all bits of need are set in have.
+     */
+    private static boolean contains(long[] have, long[] need) {
+        for (int i = 0; i < need.length; i++)
+            if ((need[i] & ~have[i]) != 0)
+                return false;
+        return true;
+    }
+
+
+    private static boolean forbidsAll(ForbiddenClass fc,
+            List<String> names) {
+        for (String s : names)
+            if (!fc.forbids(s))
+                return false;
+        return true;
+    }
+
+
+    private static void add(Map<GraphClass,List<Integer> > map,
+            GraphClass key, int i) {
+        List<Integer> l = map.get(key);
+        if (l == null)
+            map.put(key, l = new ArrayList<Integer>());
+        l.add(i);
+    }
+
+
+    private static void set(BitSet bs, List<Integer> l) {
+        if (l != null)
+            for (int i : l)
+                bs.set(i);
+    }
+}
+
+/* EOF */
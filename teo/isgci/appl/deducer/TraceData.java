@@ -48,38 +48,8 @@ class TraceData {
     }
 
 
-    /**
-     * Print the TraceData stored in traceAnn, belonging to e to the given
-     * writer. Dependencies are retrieved recursively and printed indented.
-     */
-    public static void print(PrintWriter writer, Inclusion e,
-            Annotation<GraphClass,Inclusion,TraceData> traceAnn) {
-        print(writer, e, traceAnn, "");
-    }
-
-
-    /**
-     * Print the TraceData stored in traceAnn, belonging to e to the given
-     * writer. Dependencies are retrieved recursively and printed indented.
-     */
-    private static void print(PrintWriter writer, Inclusion edge,
-            Annotation<GraphClass,Inclusion,TraceData> traceAnn,
-            String prefix) {
-        writer.print(prefix);
-        writer.print(edge);
-        writer.print("  ");
-        TraceData td = traceAnn.getEdge(edge);
-        if (td != null) {
-            writer.print(td.desc);
-            writer.println();
-            for (Inclusion e : td.prereqs) {
-                writer.print(prefix+" ");
-                writer.println(e);
-            }
-        } else {
-            writer.print("(no tracedata)");
-            writer.println();
-        }
+    public Inclusion[] getPrereqs() {
+        return prereqs;
     }
 }
 
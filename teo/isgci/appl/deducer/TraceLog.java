@@ -0,0 +1,230 @@
+/*
+ * Compact storage of the traces of the edges of a deducer.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.appl.deducer;
+
+import java.io.*;
+import java.util.*;
+import teo.isgci.gc.*;
+import teo.isgci.grapht.*;
+import teo.isgci.relation.*;
+
+/**
+ * Stores the tracedata of the edges of an IndexedGraph as entries in an
+ * append-only int array: The index of the description, the number of
+ * prerequisites and the ids of the prerequisite edges. Setting the trace of
+ * an edge again appends a new entry. TraceData objects are only created
+ * when a trace is asked for, so the memory used grows with the number of
+ * deductions, not with the number of objects they'd need.
+ */
+class TraceLog {
+    /** Prerequisite id of a null edge */
+    private static final int NONE = -1;
+
+    private IndexedGraph<GraphClass,Inclusion> graph;
+    /** The descriptions and their indices */
+    private ArrayList<String> descs;
+    private HashMap<String,Integer> descIndex;
+    /** Where the entry of every edge id starts in log, -1 if none */
+    private int[] entry;
+    /** The entries */
+    private int[] log;
+    private int size;
+    /** The prerequisites by id, as they may be removed from graph later */
+    private Inclusion[] edges;
+
+
+    public TraceLog(IndexedGraph<GraphClass,Inclusion> graph) {
+        this.graph = graph;
+        descs = new ArrayList<String>();
+        descIndex = new HashMap<String,Integer>();
+        entry = new int[0];
+        edges = new Inclusion[0];
+        log = new int[1024];
+        size = 0;
+    }
+
+
+    /**
+     * Return the index of the description desc, for use with set().
+     */
+    public int getDescIndex(String desc) {
+        Integer i = descIndex.get(desc);
+        if (i == null) {
+            i = descs.size();
+            descs.add(desc);
+            descIndex.put(desc, i);
+        }
+        return i;
+    }
+
+
+    /**
+     * Set the trace of e to td, which may be null. e and the prerequisites
+     * must be in the graph.
+     */
+    public void set(Inclusion e, TraceData td) {
+        int id = graph.getEdgeID(e);
+        if (td == null) {
+            grow(id);
+            entry[id] = -1;
+            return;
+        }
+
+        Inclusion[] prereqs = td.getPrereqs();
+        start(id, getDescIndex(td.getDesc()), prereqs.length);
+        for (Inclusion p : prereqs)
+            add(p == null ? NONE : graph.getEdgeID(p));
+    }
+
+
+    /**
+     * Set the trace of the edge with id e to description desc and the edge
+     * with id p0 (-1 for null) as prerequisite.
+     */
+    public void set(int e, int desc, int p0) {
+        start(e, desc, 1);
+        add(p0);
+    }
+
+
+    /**
+     * Set the trace of the edge with id e to description desc and the edges
+     * with ids p0, p1 (-1 for null) as prerequisites.
+     */
+    public void set(int e, int desc, int p0, int p1) {
+        start(e, desc, 2);
+        add(p0);
+        add(p1);
+    }
+
+
+    /**
+     * Set the trace of the edge with id e to description desc and the edges
+     * with ids p0, p1, p2 (-1 for null) as prerequisites.
+     */
+    public void set(int e, int desc, int p0, int p1, int p2) {
+        start(e, desc, 3);
+        add(p0);
+        add(p1);
+        add(p2);
+    }
+
+
+    /**
+     * Return the trace of e, or null if it has none.
+     */
+    public TraceData get(Inclusion e) {
+        int i = find(e);
+        if (i < 0)
+            return null;
+
+        Inclusion[] prereqs = new Inclusion[log[i+1]];
+        for (int j = 0; j < prereqs.length; j++)
+            prereqs[j] = edge(log[i+2+j]);
+        return new TraceData(descs.get(log[i]), prereqs);
+    }
+
+
+    /**
+     * Return the description of the trace of e, or null if it has none.
+     */
+    public String getDesc(Inclusion e) {
+        int i = find(e);
+        return i < 0 ? null : descs.get(log[i]);
+    }
+
+
+    /**
+     * Print the trace of e to the given writer.
+     */
+    public void print(PrintWriter writer, Inclusion e) {
+        writer.print(e);
+        writer.print("  ");
+        int i = find(e);
+        if (i >= 0) {
+            writer.print(descs.get(log[i]));
+            writer.println();
+            for (int j = 0; j < log[i+1]; j++) {
+                writer.print(" ");
+                writer.println(edge(log[i+2+j]));
+            }
+        } else {
+            writer.print("(no tracedata)");
+            writer.println();
+        }
+    }
+
+
+    /**
+     * Return the number of ints used by the entries.
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Return where the entry of e starts in log, or -1.
+     */
+    private int find(Inclusion e) {
+        int id = graph.getEdgeID(e);
+        return id >= 0  &&  id < entry.length ? entry[id] : -1;
+    }
+
+
+    /**
+     * Return the edge with id, which was recorded as a prerequisite.
+     */
+    private Inclusion edge(int id) {
+        return id == NONE ? null : edges[id];
+    }
+
+
+    /**
+     * Start a new entry for the edge with id e, with room for n
+     * prerequisites.
+     */
+    private void start(int e, int desc, int n) {
+        grow(e);
+        if (size + n + 2 > log.length)
+            log = Arrays.copyOf(log, Math.max(2*log.length, size + n + 2));
+        entry[e] = size;
+        log[size++] = desc;
+        log[size++] = n;
+    }
+
+
+    /**
+     * Add the prerequisite with id to the current entry.
+     */
+    private void add(int id) {
+        if (id >= 0) {
+            grow(id);
+            edges[id] = graph.getEdge(id);
+        }
+        log[size++] = id;
+    }
+
+
+    /**
+     * Make sure entry and edges can hold edge id.
+     */
+    private void grow(int id) {
+        if (id < entry.length)
+            return;
+        int n = Math.max(id + 1, Math.max(graph.getEdgeIDBound(),
+                2*entry.length));
+        int old = entry.length;
+        entry = Arrays.copyOf(entry, n);
+        Arrays.fill(entry, old, n, -1);
+        edges = Arrays.copyOf(edges, n);
+    }
+}
+
+/* EOF */
@@ -41,7 +41,7 @@ public class ForbiddenClass extends GraphClass {
         if (set==null || set.isEmpty())
             throw new IllegalArgumentException("missing graphs");
 
-        if (isgGraph != null) {
+        if (isgIndex != null) {
             Set<String> setnorm = new HashSet<String>();
 
             for (String gc : set) {
@@ -227,6 +227,23 @@ public class ForbiddenClass extends GraphClass {
     }
 
 
+    /**
+     * Return true iff the smallgraph with the given name is forbidden in
+     * this class, that is iff this is a subclass of name-free graphs.
+     * gc.subClassOf(this) for a ForbiddenClass gc holds iff gc forbids all
+     * graphs in getSet().
+     */
+    public boolean forbids(String name) {
+        if (isgSet.contains(name))
+            return true;
+
+        Set<SmallGraph> subSetVec = new ArrayUnenforcedSet<SmallGraph>();
+        for (String s : isgSet)
+            subSetVec.add(names.get(s));
+        return forbids(subSetVec, names.get(name));
+    }
+
+
     /** Return a reference string describing why subClassOf returned true. */
     public String whySubClassOf() {
         return "forbidden";
@@ -296,11 +313,16 @@ public class ForbiddenClass extends GraphClass {
     //----------------------- static deduction stuff -----------------------
     
     /**
-     * isgGraph has a node for every SmallGraph and an edge a->b iff every
+     * isgIndex contains every SmallGraph and b is contained in a iff every
      * graph that contains a as induced subgraph, has b as induced subgraph(s).
      * In other words, b-free implies a-free.
      */
-    static SimpleDirectedGraph<SmallGraph,DefaultEdge> isgGraph;
+    static InducedIndex isgIndex;
+    /**
+     * Version of the relation computed by initRules(). Increase it whenever
+     * initRules() changes what it derives, so stored indexes are recomputed.
+     */
+    public static final int INDEX_VERSION = 1;
     static HashMap<String,SmallGraph> names;  // Maps name/alias to SmallGraph
 
     
@@ -315,18 +337,44 @@ public class ForbiddenClass extends GraphClass {
      */
     public static void initRules(Collection<SmallGraph> smallgraphs,
             Collection<Pair<String,String>> inclusions) {
+        initRules(smallgraphs, inclusions, null);
+    }
 
-        //---- Gather all the names and fill isgGraph and names
-        names = new HashMap<String,SmallGraph>();
-        isgGraph = new SimpleDirectedGraph<SmallGraph,DefaultEdge>(
-                DefaultEdge.class);
 
-        for (SmallGraph gr : smallgraphs) {
+    /**
+     * Like initRules(smallgraphs, inclusions), but use index for the
+     * relations between the smallgraphs if it is not null, has version
+     * INDEX_VERSION and contains all of them, e.g. when it was read with
+     * SmallGraphReader.readInducedIndex(). Otherwise the index is computed.
+     */
+    public static void initRules(Collection<SmallGraph> smallgraphs,
+            Collection<Pair<String,String>> inclusions, InducedIndex index) {
+
+        //---- Gather all the names
+        names = new HashMap<String,SmallGraph>();
+        for (SmallGraph gr : smallgraphs)
             for (String s : gr.getNames())
                 names.put(s, gr);
-            isgGraph.addVertex(gr);
+
+        if (index != null  &&  index.getVersion() == INDEX_VERSION  &&
+                index.size() == smallgraphs.size()) {
+            boolean complete = true;
+            for (SmallGraph gr : smallgraphs)
+                if (index.getID(gr) < 0)
+                    complete = false;
+            if (complete) {
+                isgIndex = index;
+                return;
+            }
         }
 
+        //---- Fill isgGraph
+        SimpleDirectedGraph<SmallGraph,DefaultEdge> isgGraph =
+                new SimpleDirectedGraph<SmallGraph,DefaultEdge>(
+                DefaultEdge.class);
+        for (SmallGraph gr : smallgraphs)
+            isgGraph.addVertex(gr);
+
         //---- Cycle through all the smallgraphs and add edges in isgGraph
         for (SmallGraph gr : smallgraphs) {
             if (gr instanceof Family) {
@@ -383,9 +431,22 @@ public class ForbiddenClass extends GraphClass {
         }
         
         //System.out.println(isgGraph);
-        GAlg.transitiveClosure(isgGraph);
+        BitClosure<SmallGraph,DefaultEdge> closure =
+                GAlg.reachability(isgGraph);
+        isgIndex = new InducedIndex(smallgraphs);
+        isgIndex.setVersion(INDEX_VERSION);
+        for (SmallGraph gr : smallgraphs)
+            for (SmallGraph sub : closure.reachableFrom(gr))
+                isgIndex.add(gr, sub);
+    }
 
-        //System.out.println(isgGraph);
+
+    /**
+     * Return the relations between the smallgraphs as computed or read by
+     * initRules(), or null if initRules() wasn't called.
+     */
+    public static InducedIndex getInducedIndex() {
+        return isgIndex;
     }
 
 
@@ -435,13 +496,13 @@ public class ForbiddenClass extends GraphClass {
             SmallGraph target, List<SmallGraph> witnesses) {
         int i, j;
 
-        if (!isgGraph.containsVertex(target))
+        if (isgIndex.getID(target) < 0)
             System.err.println("Vertex "+ target.getName() +" doesn't exist!");
 
         for (SmallGraph n : graphs) {
-            if (!isgGraph.containsVertex(n))
+            if (isgIndex.getID(n) < 0)
                 System.err.println("Vertex "+ n.getName() +" doesn't exist!");
-            if (target == n || isgGraph.containsEdge(target, n))
+            if (target == n || isgIndex.contains(target, n))
                 return true;
         }
         
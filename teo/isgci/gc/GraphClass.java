@@ -61,8 +61,10 @@ public abstract class GraphClass {
 
     /** hashcode of this graphclass */
     protected int hashcode;
-    /** Did we calculate the hashcode already? */
-    protected boolean havehash;
+    /** Did we calculate the hashcode already? Volatile, so that the
+     * hashcode is safely published to other threads
+     * (RSubDirect.runParallel) */
+    protected volatile boolean havehash;
 
 
     public GraphClass(Directed d) {
@@ -182,10 +184,11 @@ public abstract class GraphClass {
     /**
      * Sets the name of this class to <tt>s</tt>.
      * Used, if automatic construction is not possible or not wanted.
+     * If s is null, the name will be constructed automatically.
      */
     public void setName(String s) {
         name = s;
-        nameExplicit = true;
+        nameExplicit = s != null;
     }
 
 
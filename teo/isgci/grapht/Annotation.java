@@ -10,21 +10,32 @@
 
 package teo.isgci.grapht;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.WeakHashMap;
 import org.jgrapht.Graph;
 import teo.isgci.util.UnaryFunction;
 
 /**
  * Data (D) that is annotated to a node (V) or an edge (E).
+ * For an IndexedGraph the data is stored in arrays indexed by the ids of the
+ * nodes and edges, otherwise in WeakHashMaps. In the first case, the data of
+ * removed nodes and edges is kept until clear() is called, but as ids are
+ * not reused, it is not returned if they are added to the graph again.
  */
 public class Annotation<V, E, D> {
     /** The graph this annotation belongs to */
     private Graph<V,E> graph;
+    /** graph, if it is an IndexedGraph */
+    private IndexedGraph<V,E> indexed;
     /** Annotations for the nodes */
     private WeakHashMap<V,D> nodeData;
     /** Annotations for the edges */
     private WeakHashMap<E,D> edgeData;
+    /** Annotations for the nodes/edges by id (IndexedGraph only) */
+    private Object[] nodeArray, edgeArray;
     /** Creates annotation for vertices */
     private UnaryFunction<V,D> nodeCreator;
     /** Creates annotation for edges */
@@ -45,12 +56,28 @@ public class Annotation<V, E, D> {
     public Annotation(Graph<V,E> g, UnaryFunction<V,D> nodeCreator,
             UnaryFunction<E,D> edgeCreator) {
         graph = g;
-        nodeData = new WeakHashMap<V,D>();
-        edgeData = new WeakHashMap<E,D>();
+        if (g instanceof IndexedGraph)
+            indexed = (IndexedGraph<V,E>) g;
+        clear();
         this.nodeCreator = nodeCreator;
         this.edgeCreator = edgeCreator;
     }
 
+
+    /**
+     * Remove all data.
+     */
+    public void clear() {
+        if (indexed != null) {
+            nodeArray = new Object[indexed.getVertexIDBound()];
+            edgeArray = new Object[indexed.getEdgeIDBound()];
+        } else {
+            nodeData = new WeakHashMap<V,D>();
+            edgeData = new WeakHashMap<E,D>();
+        }
+    }
+
+
     /**
      * Set the node creator.
      */
@@ -71,6 +98,12 @@ public class Annotation<V, E, D> {
      * Return the data attached to node n or null.
      */
     public D getNode(V n) {
+        if (indexed != null) {
+            int id = indexed.getVertexID(n);
+            if (id < 0)
+                throw new IllegalArgumentException();
+            return id < nodeArray.length ? data(nodeArray[id]) : null;
+        }
         if (!graph.containsVertex(n))
             throw new IllegalArgumentException();
         return nodeData.get(n);
@@ -95,6 +128,15 @@ public class Annotation<V, E, D> {
      * Set the data attached to node n.
      */
     public void setNode(V n, D data) {
+        if (indexed != null) {
+            int id = indexed.getVertexID(n);
+            if (id < 0)
+                throw new IllegalArgumentException();
+            if (id >= nodeArray.length)
+                nodeArray = grow(nodeArray, indexed.getVertexIDBound());
+            nodeArray[id] = data;
+            return;
+        }
         if (!graph.containsVertex(n))
             throw new IllegalArgumentException();
         nodeData.put(n, data);
@@ -105,6 +147,12 @@ public class Annotation<V, E, D> {
      * Return the data attached to edge e or null.
      */
     public D getEdge(E e) {
+        if (indexed != null) {
+            int id = indexed.getEdgeID(e);
+            if (id < 0)
+                throw new IllegalArgumentException();
+            return id < edgeArray.length ? data(edgeArray[id]) : null;
+        }
         if (!graph.containsEdge(e))
             throw new IllegalArgumentException();
         return edgeData.get(e);
@@ -129,6 +177,15 @@ public class Annotation<V, E, D> {
      * Set the data attached to edge e.
      */
     public void setEdge(E e, D data) {
+        if (indexed != null) {
+            int id = indexed.getEdgeID(e);
+            if (id < 0)
+                throw new IllegalArgumentException();
+            if (id >= edgeArray.length)
+                edgeArray = grow(edgeArray, indexed.getEdgeIDBound());
+            edgeArray[id] = data;
+            return;
+        }
         if (!graph.containsEdge(e))
             throw new IllegalArgumentException();
         edgeData.put(e, data);
@@ -138,14 +195,43 @@ public class Annotation<V, E, D> {
      * Return the data stored for nodes.
      */
     public Collection<D> nodeValues() {
-        return nodeData.values();
+        if (indexed == null)
+            return nodeData.values();
+
+        List<D> res = new ArrayList<D>();
+        for (int i = 0; i < nodeArray.length; i++)
+            if (nodeArray[i] != null  &&  indexed.getVertex(i) != null)
+                res.add(data(nodeArray[i]));
+        return res;
     }
 
     /**
      * Return the data stored for edges.
      */
     public Collection<D> edgeValues() {
-        return edgeData.values();
+        if (indexed == null)
+            return edgeData.values();
+
+        List<D> res = new ArrayList<D>();
+        for (int i = 0; i < edgeArray.length; i++)
+            if (edgeArray[i] != null  &&  indexed.getEdge(i) != null)
+                res.add(data(edgeArray[i]));
+        return res;
+    }
+
+    /**
+     * Return o, which was stored in nodeArray or edgeArray, as data.
+     */
+    @SuppressWarnings("unchecked")
+    private D data(Object o) {
+        return (D) o;
+    }
+
+    /**
+     * Return a copy of a that can hold at least n elements.
+     */
+    private static Object[] grow(Object[] a, int n) {
+        return Arrays.copyOf(a, Math.max(n, 2*a.length));
     }
 }
 
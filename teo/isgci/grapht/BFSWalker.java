@@ -56,9 +56,11 @@ public class BFSWalker<V,E> extends GraphWalker<V,E> {
 
 
     public void run() {
+        WalkEvent event = beginWalk();
         discover(start);
         while (!q.isEmpty())
             visit(q.remove());
+        endWalk(event);
     }
     
 
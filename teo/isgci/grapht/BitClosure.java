@@ -0,0 +1,352 @@
+/*
+ * Transitive closure of a graph, stored as bitsets over its SCCs.
+ *
+ * $Id$
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.grapht;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import org.jgrapht.DirectedGraph;
+import teo.isgci.util.UnaryFunction;
+
+/**
+ * <p>Calculates the reachability relation of a directed graph. The vertices
+ * are numbered 0..n-1 and the strongly connected components are numbered
+ * 0..k-1 in reverse topological order (sinks first), so every SCC can only
+ * reach SCCs with a smaller or equal number. For every SCC a row of k bits
+ * stores which SCCs it reaches.</p>
+ *
+ * <p>The closure is a snapshot: It is calculated in the constructor and does
+ * not follow later changes of the graph. It can be queried with reaches()
+ * without changing the graph, or written back into the graph with
+ * materialize().</p>
+ */
+public class BitClosure<V,E> {
+    /** The graph we're closing */
+    private DirectedGraph<V,E> graph;
+    /** The vertices by id */
+    private ArrayList<V> vertices;
+    /** The ids of the vertices */
+    private HashMap<V,Integer> ids;
+    /** Only edges for which this returns true are used (null = all) */
+    private UnaryFunction<E,Boolean> filter;
+    /** Out-neighbours per vertex id (CSR: targets[first[i]..first[i+1]-1]) */
+    private int[] first, targets;
+    /** The SCC number of every vertex id */
+    private int[] scc;
+    /** The vertex ids in every SCC */
+    private int[][] members;
+    /** reach[c] has bit d set iff SCC c reaches SCC d */
+    private long[][] reach;
+
+
+    /**
+     * Calculate the closure of g.
+     */
+    public BitClosure(DirectedGraph<V,E> g) {
+        this(g, null);
+    }
+
+
+    /**
+     * Calculate the closure of the spanning subgraph of g that consists of
+     * the edges for which filter returns true. materialize() still adds the
+     * missing edges to g itself.
+     */
+    public BitClosure(DirectedGraph<V,E> g, UnaryFunction<E,Boolean> filter) {
+        graph = g;
+        this.filter = filter;
+        number();
+        calcSCCs();
+        calcReach();
+    }
+
+
+    /**
+     * Return the number of vertices.
+     */
+    public int size() {
+        return vertices.size();
+    }
+
+
+    /**
+     * Return the id of v, or -1 if v was not in the graph when the closure
+     * was calculated.
+     */
+    public int getID(V v) {
+        Integer i = ids.get(v);
+        return i == null ? -1 : i;
+    }
+
+
+    /**
+     * Return the vertex with the given id.
+     */
+    public V getVertex(int id) {
+        return vertices.get(id);
+    }
+
+
+    /**
+     * Return the number of SCCs.
+     */
+    public int getSCCCount() {
+        return members.length;
+    }
+
+
+    /**
+     * Return the number of the SCC that contains v. SCCs are numbered in
+     * reverse topological order.
+     */
+    public int getSCC(V v) {
+        return scc[ids.get(v)];
+    }
+
+
+    /**
+     * Return the vertices in SCC c.
+     */
+    public List<V> getSCCMembers(int c) {
+        ArrayList<V> res = new ArrayList<V>(members[c].length);
+        for (int i : members[c])
+            res.add(vertices.get(i));
+        return res;
+    }
+
+
+    /**
+     * Return true iff there is a path (possibly of length 0) from to.
+     */
+    public boolean reaches(V from, V to) {
+        return sccReaches(scc[ids.get(from)], scc[ids.get(to)]);
+    }
+
+
+    /**
+     * Return true iff SCC c reaches SCC d.
+     */
+    public boolean sccReaches(int c, int d) {
+        return (reach[c][d >>> 6] & (1L << d)) != 0;
+    }
+
+
+    /**
+     * Return true iff there is an SCC x other than c and d such that c
+     * reaches x and x reaches d.
+     */
+    public boolean reachesIndirectly(int c, int d) {
+        // Such an x lies strictly between d and c in reverse topological order
+        long[] row = reach[c];
+        for (int x = nextBit(row, d+1); x >= 0  &&  x < c;
+                x = nextBit(row, x+1))
+            if (sccReaches(x, d))
+                return true;
+        return false;
+    }
+
+
+    /**
+     * Return the vertices that can be reached from v, excluding v itself.
+     */
+    public List<V> reachableFrom(V v) {
+        int id = ids.get(v);
+        long[] row = reach[scc[id]];
+        ArrayList<V> res = new ArrayList<V>();
+
+        for (int c = nextBit(row, 0); c >= 0; c = nextBit(row, c+1))
+            for (int w : members[c])
+                if (w != id)
+                    res.add(vertices.get(w));
+        return res;
+    }
+
+
+    /**
+     * Add an edge v->w to the graph for every pair v!=w such that w can be
+     * reached from v and the graph does not contain v->w yet.
+     */
+    public void materialize() {
+        int n = vertices.size();
+        long[] out = new long[(n + 63) >>> 6];
+
+        for (int v = 0; v < n; v++) {
+            V from = vertices.get(v);
+
+            // Mark the existing out-neighbours of v
+            if (filter == null) {
+                for (int j = first[v]; j < first[v+1]; j++)
+                    out[targets[j] >>> 6] |= 1L << targets[j];
+            } else {
+                for (E e : graph.outgoingEdgesOf(from)) {
+                    int w = ids.get(graph.getEdgeTarget(e));
+                    out[w >>> 6] |= 1L << w;
+                }
+            }
+
+            long[] row = reach[scc[v]];
+            for (int c = nextBit(row, 0); c >= 0; c = nextBit(row, c+1))
+                for (int w : members[c])
+                    if (w != v  &&  (out[w >>> 6] & (1L << w)) == 0)
+                        graph.addEdge(from, vertices.get(w));
+
+            Arrays.fill(out, 0L);
+        }
+    }
+
+
+    /**
+     * Number the vertices and store the graph as integer adjacency lists.
+     */
+    private void number() {
+        int n = graph.vertexSet().size();
+        vertices = new ArrayList<V>(graph.vertexSet());
+        ids = new HashMap<V,Integer>(2*n);
+        for (int i = 0; i < n; i++)
+            ids.put(vertices.get(i), i);
+
+        first = new int[n+1];
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            first[i] = m;
+            if (filter == null) {
+                m += graph.outDegreeOf(vertices.get(i));
+            } else {
+                for (E e : graph.outgoingEdgesOf(vertices.get(i)))
+                    if (filter.execute(e))
+                        m++;
+            }
+        }
+        first[n] = m;
+
+        targets = new int[m];
+        m = 0;
+        for (V v : vertices)
+            for (E e : graph.outgoingEdgesOf(v))
+                if (filter == null  ||  filter.execute(e))
+                    targets[m++] = ids.get(graph.getEdgeTarget(e));
+    }
+
+
+    /**
+     * Calculate the SCCs using an iterative version of Tarjan's algorithm.
+     * Tarjan finds the SCCs in reverse topological order.
+     */
+    private void calcSCCs() {
+        int n = vertices.size();
+        int[] index = new int[n];           // DFS number + 1, 0 = unseen
+        int[] low = new int[n];
+        int[] next = new int[n];            // Next edge to explore
+        int[] stack = new int[n];           // Tarjan's stack
+        int[] call = new int[n];            // DFS recursion stack
+        boolean[] onStack = new boolean[n];
+        int sp = 0, cp = 0, counter = 0;
+        ArrayList<int[]> comps = new ArrayList<int[]>();
+
+        scc = new int[n];
+        for (int root = 0; root < n; root++) {
+            if (index[root] != 0)
+                continue;
+            call[cp++] = root;
+            index[root] = low[root] = ++counter;
+            next[root] = first[root];
+            stack[sp++] = root;
+            onStack[root] = true;
+
+            while (cp > 0) {
+                int v = call[cp-1];
+                if (next[v] < first[v+1]) {
+                    int w = targets[next[v]++];
+                    if (index[w] == 0) {
+                        index[w] = low[w] = ++counter;
+                        next[w] = first[w];
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        call[cp++] = w;
+                    } else if (onStack[w]  &&  index[w] < low[v]) {
+                        low[v] = index[w];
+                    }
+                    continue;
+                }
+
+                // v is finished
+                cp--;
+                if (cp > 0  &&  low[v] < low[call[cp-1]])
+                    low[call[cp-1]] = low[v];
+                if (low[v] != index[v])
+                    continue;
+
+                int size = 0;
+                while (stack[sp-1-size] != v)
+                    size++;
+                size++;
+                int[] comp = new int[size];
+                for (int i = 0; i < size; i++) {
+                    int w = stack[--sp];
+                    onStack[w] = false;
+                    scc[w] = comps.size();
+                    comp[size-1-i] = w;
+                }
+                comps.add(comp);
+            }
+        }
+
+        members = comps.toArray(new int[comps.size()][]);
+    }
+
+
+    /**
+     * Calculate reach for every SCC. Since the SCCs are numbered in reverse
+     * topological order, all successors of c are complete when c is handled.
+     */
+    private void calcReach() {
+        int k = members.length;
+        int words = (k + 63) >>> 6;
+
+        reach = new long[k][];
+        for (int c = 0; c < k; c++) {
+            long[] row = new long[words];
+            row[c >>> 6] |= 1L << c;
+            for (int v : members[c]) {
+                for (int j = first[v]; j < first[v+1]; j++) {
+                    int d = scc[targets[j]];
+                    if (d == c  ||  (row[d >>> 6] & (1L << d)) != 0)
+                        continue;
+                    long[] other = reach[d];
+                    for (int i = 0; i < words; i++)
+                        row[i] |= other[i];
+                }
+            }
+            reach[c] = row;
+        }
+    }
+
+
+    /**
+     * Return the index of the first set bit in row at or after from, or -1.
+     */
+    static int nextBit(long[] row, int from) {
+        int i = from >>> 6;
+        if (i >= row.length)
+            return -1;
+        long word = row[i] & (-1L << from);
+        while (true) {
+            if (word != 0)
+                return (i << 6) + Long.numberOfTrailingZeros(word);
+            if (++i == row.length)
+                return -1;
+            word = row[i];
+        }
+    }
+}
+
+/* EOF */
@@ -43,6 +43,7 @@ public class DFSWalker<V,E> extends GraphWalker<V,E> {
 
 
     public void run() {
+        WalkEvent event = beginWalk();
         WalkerInfo wi;
 
         for (V v : graph.vertexSet()) {
@@ -52,6 +53,7 @@ public class DFSWalker<V,E> extends GraphWalker<V,E> {
                 discover(v);
             }
         }
+        endWalk(event);
     }
 
 
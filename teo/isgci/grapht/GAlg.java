@@ -147,7 +147,16 @@ public class GAlg {
      * Transitively close g.
      */
     public static <V,E> void transitiveClosure(DirectedGraph<V,E> g) {
-        new ClosingDFS(g).run();
+        new BitClosure<V,E>(g).materialize();
+    }
+
+
+    /**
+     * Return the reachability relation of g, without adding any edges to g.
+     * The result does not reflect later changes to g.
+     */
+    public static <V,E> BitClosure<V,E> reachability(DirectedGraph<V,E> g) {
+        return new BitClosure<V,E>(g);
     }
 
 
@@ -214,6 +223,37 @@ public class GAlg {
     }
 
 
+    /**
+     * Return the edges of g that a transitive reduction of its condensation
+     * removes: All edges between two SCCs that are also joined by a path
+     * through a third SCC, and all but the last (in edgeSet() order) of the
+     * edges between the same two SCCs. Edges inside an SCC are never
+     * returned. Deleting the returned edges doesn't change the reachability
+     * and gives the same result as deleting, in edgeSet() order, every edge
+     * between SCCs for which a different path remains.
+     */
+    public static <V,E> List<E> condensationReduction(DirectedGraph<V,E> g) {
+        BitClosure<V,E> closure = new BitClosure<V,E>(g);
+        HashMap<Long,E> keep = new HashMap<Long,E>();
+        List<E> res = new ArrayList<E>();
+
+        for (E e : g.edgeSet()) {
+            int c = closure.getSCC(g.getEdgeSource(e));
+            int d = closure.getSCC(g.getEdgeTarget(e));
+            if (c != d  &&  !closure.reachesIndirectly(c, d))
+                keep.put(((long) c << 32) | d, e);
+        }
+
+        for (E e : g.edgeSet()) {
+            int c = closure.getSCC(g.getEdgeSource(e));
+            int d = closure.getSCC(g.getEdgeTarget(e));
+            if (c != d  &&  keep.get(((long) c << 32) | d) != e)
+                res.add(e);
+        }
+        return res;
+    }
+
+
     public static void main(String[] args) {
         SimpleDirectedGraph<String,DefaultEdge> g =
                 new SimpleDirectedGraph<String,DefaultEdge>(DefaultEdge.class);
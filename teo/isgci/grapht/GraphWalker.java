@@ -69,6 +69,35 @@ public abstract class GraphWalker<V,E> implements Runnable {
     protected WalkerInfo<V,E> getDataEdge(E e) {
         return dynamic ? dataAnn.getOrCreateEdge(e) : dataAnn.getEdge(e);
     }
+
+
+    /**
+     * Start the flight recorder event for a run(). Pass the result to
+     * endWalk() when the run is done.
+     */
+    WalkEvent beginWalk() {
+        WalkEvent event = new WalkEvent();
+        event.begin();
+        return event;
+    }
+
+
+    /**
+     * Finish the flight recorder event for a run() and commit it if it is
+     * recorded.
+     */
+    void endWalk(WalkEvent event) {
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        event.walker = getClass().getName();
+        event.nodes = graph.vertexSet().size();
+        event.edges = graph.edgeSet().size();
+        for (WalkerInfo<V,E> wi : dataAnn.nodeValues())
+            if (wi != null  &&  wi.status != Status.UNSEEN)
+                event.seen++;
+        event.commit();
+    }
 }
 
 /* EOF */
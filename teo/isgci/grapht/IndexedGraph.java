@@ -0,0 +1,911 @@
+/*
+ * A directed graph with dense integer ids for its nodes and edges.
+ *
+ * $Id$
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.grapht;
+
+import java.lang.reflect.Field;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.EdgeFactory;
+import org.jgrapht.WeightedGraph;
+import org.jgrapht.graph.AbstractGraph;
+import org.jgrapht.graph.ClassBasedEdgeFactory;
+
+/**
+ * <p>A directed graph without loops and multiple edges, built for the deducer.
+ * Every node and every edge gets a dense integer id when it is added. Ids are
+ * not reused after a removal, so getVertexIDBound()/getEdgeIDBound() can be
+ * used to size arrays indexed by id.</p>
+ *
+ * <p>Adjacency is stored as int arrays of edge ids and getEdge(src,dest) is
+ * answered from an open addressing table keyed on the pair of node ids, so no
+ * objects are allocated for lookups. Edges are identified by reference (like
+ * Inclusion, which doesn't override equals), nodes by equals().</p>
+ *
+ * <p>Iterators over the sets returned by this graph fail when the graph is
+ * modified during the iteration.</p>
+ */
+public class IndexedGraph<V,E> extends AbstractGraph<V,E>
+        implements DirectedGraph<V,E> {
+
+    /** Source and target fields of jgrapht's IntrusiveEdge (DefaultEdge) */
+    private static final Field SOURCE, TARGET;
+    static {
+        try {
+            Class<?> c = Class.forName("org.jgrapht.graph.IntrusiveEdge");
+            SOURCE = c.getDeclaredField("source");
+            TARGET = c.getDeclaredField("target");
+            SOURCE.setAccessible(true);
+            TARGET.setAccessible(true);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Creates edges for addEdge(src, dest) */
+    private EdgeFactory<V,E> edgeFactory;
+
+    /** The nodes by id, null for removed nodes */
+    private ArrayList<V> vertices;
+    /** The ids of the nodes */
+    private HashMap<V,Integer> vertexIds;
+    /** Outgoing/incoming edge ids per node id */
+    private int[][] outEdges, inEdges;
+    /** Number of used entries in outEdges/inEdges per node id */
+    private int[] outCount, inCount;
+    /** Number of nodes in the graph */
+    private int vertexCount;
+
+    /** The edges by id, null for removed edges */
+    private ArrayList<E> edges;
+    /** Source and target node ids per edge id */
+    private int[] edgeSource, edgeTarget;
+    /** The ids of the edges */
+    private IdentityIndex edgeIds;
+    /** Edge id for every (source id, target id) */
+    private PairIndex pairs;
+    /** Number of edges in the graph */
+    private int edgeCount;
+
+    /** Modification counters for failing iterators, like jgrapht's: Adding
+     * an edge fails iterations over the edges and over the adjacency of its
+     * ends, but not over the nodes. */
+    private int vertexModCount, edgeModCount;
+    private int[] outModCount, inModCount;
+    /** Perform consistency checks? */
+    private boolean checking;
+
+    /** Views */
+    private Set<V> vertexSetView;
+    private Set<E> edgeSetView;
+
+
+    /**
+     * Create a new, empty graph that creates edges of class edgeClass.
+     */
+    public IndexedGraph(Class<? extends E> edgeClass) {
+        this(new ClassBasedEdgeFactory<V,E>(edgeClass));
+    }
+
+
+    /**
+     * Create a new, empty graph that creates edges using ef.
+     */
+    public IndexedGraph(EdgeFactory<V,E> ef) {
+        edgeFactory = ef;
+        vertices = new ArrayList<V>();
+        vertexIds = new HashMap<V,Integer>();
+        outEdges = new int[16][];
+        inEdges = new int[16][];
+        outCount = new int[16];
+        inCount = new int[16];
+        outModCount = new int[16];
+        inModCount = new int[16];
+        edges = new ArrayList<E>();
+        edgeSource = new int[16];
+        edgeTarget = new int[16];
+        edgeIds = new IdentityIndex();
+        pairs = new PairIndex();
+        vertexSetView = new VertexSet();
+        edgeSetView = new EdgeSet();
+        checking = false;
+    }
+
+
+    //------------------------- Id methods -----------------------------------
+
+    /**
+     * Return the id of v, or -1 if v is not in the graph.
+     */
+    public int getVertexID(V v) {
+        Integer id = vertexIds.get(v);
+        return id == null ? -1 : id;
+    }
+
+
+    /**
+     * Return the node with the given id, or null if it has been removed.
+     */
+    public V getVertex(int id) {
+        return vertices.get(id);
+    }
+
+
+    /**
+     * Return a number larger than any node id handed out so far.
+     */
+    public int getVertexIDBound() {
+        return vertices.size();
+    }
+
+
+    /**
+     * Return a number that changes whenever a node or an edge is added or
+     * removed.
+     */
+    public int getModCount() {
+        return vertexModCount + edgeModCount;
+    }
+
+
+    /**
+     * Return the id of e, or -1 if e is not in the graph.
+     */
+    public int getEdgeID(E e) {
+        return edgeIds.get(e);
+    }
+
+
+    /**
+     * Return the edge with the given id, or null if it has been removed.
+     */
+    public E getEdge(int id) {
+        return edges.get(id);
+    }
+
+
+    /**
+     * Return a number larger than any edge id handed out so far.
+     */
+    public int getEdgeIDBound() {
+        return edges.size();
+    }
+
+
+    /**
+     * Return the id of the edge src->dest, or -1 if it doesn't exist.
+     */
+    public int getEdgeID(int src, int dest) {
+        return pairs.get(src, dest);
+    }
+
+
+    /**
+     * Return the ids of the targets of the outgoing edges of the node with
+     * the given id, in the order of outgoingEdgesOf().
+     */
+    public int[] getOutNeighbourIDs(int id) {
+        int[] res = new int[outCount[id]];
+        for (int i = 0; i < res.length; i++)
+            res[i] = edgeTarget[outEdges[id][i]];
+        return res;
+    }
+
+
+    /**
+     * Return the ids of the sources of the incoming edges of the node with
+     * the given id, in the order of incomingEdgesOf().
+     */
+    public int[] getInNeighbourIDs(int id) {
+        int[] res = new int[inCount[id]];
+        for (int i = 0; i < res.length; i++)
+            res[i] = edgeSource[inEdges[id][i]];
+        return res;
+    }
+
+
+    //------------------------- Lookup methods -------------------------------
+
+    /**
+     * Find the node equal to v and return it or null if it doesn't exist.
+     */
+    public V findVertex(V v) {
+        Integer id = vertexIds.get(v);
+        return id == null ? null : vertices.get(id);
+    }
+
+
+    /**
+     * Find the given edge and return it or null if it doesn't exist.
+     */
+    public E findEdge(V source, V target) {
+        Integer src = vertexIds.get(source);
+        Integer dest = vertexIds.get(target);
+        if (src == null  ||  dest == null)
+            return null;
+        int id = pairs.get(src, dest);
+        return id < 0 ? null : edges.get(id);
+    }
+
+
+    //------------------------- Graph methods --------------------------------
+
+    public EdgeFactory<V,E> getEdgeFactory() {
+        return edgeFactory;
+    }
+
+
+    public Set<V> vertexSet() {
+        return vertexSetView;
+    }
+
+
+    public Set<E> edgeSet() {
+        return edgeSetView;
+    }
+
+
+    public boolean containsVertex(V v) {
+        return vertexIds.containsKey(v);
+    }
+
+
+    public boolean containsEdge(E e) {
+        return edgeIds.get(e) >= 0;
+    }
+
+
+    public boolean containsEdge(V source, V target) {
+        return findEdge(source, target) != null;
+    }
+
+
+    public E getEdge(V source, V target) {
+        return findEdge(source, target);
+    }
+
+
+    public Set<E> getAllEdges(V source, V target) {
+        if (!containsVertex(source)  ||  !containsVertex(target))
+            return null;
+        E e = findEdge(source, target);
+        return e == null ? Collections.<E>emptySet() :
+                Collections.singleton(e);
+    }
+
+
+    public V getEdgeSource(E e) {
+        return vertices.get(edgeSource[idOf(e)]);
+    }
+
+
+    public V getEdgeTarget(E e) {
+        return vertices.get(edgeTarget[idOf(e)]);
+    }
+
+
+    public double getEdgeWeight(E e) {
+        return WeightedGraph.DEFAULT_EDGE_WEIGHT;
+    }
+
+
+    public int outDegreeOf(V v) {
+        return outCount[vertexIdOf(v)];
+    }
+
+
+    public int inDegreeOf(V v) {
+        return inCount[vertexIdOf(v)];
+    }
+
+
+    public Set<E> outgoingEdgesOf(V v) {
+        return new AdjacencySet(vertexIdOf(v), true);
+    }
+
+
+    public Set<E> incomingEdgesOf(V v) {
+        return new AdjacencySet(vertexIdOf(v), false);
+    }
+
+
+    public Set<E> edgesOf(V v) {
+        int id = vertexIdOf(v);
+        ArrayList<E> res = new ArrayList<E>(outCount[id] + inCount[id]);
+        for (int i = 0; i < outCount[id]; i++)
+            res.add(edges.get(outEdges[id][i]));
+        for (int i = 0; i < inCount[id]; i++)
+            res.add(edges.get(inEdges[id][i]));
+        return new UnmodifiableListSet<E>(res);
+    }
+
+
+    public boolean addVertex(V v) {
+        if (v == null)
+            throw new NullPointerException();
+        if (vertexIds.containsKey(v))
+            return false;
+
+        int id = vertices.size();
+        if (id == outCount.length) {
+            int n = 2*id;
+            outEdges = Arrays.copyOf(outEdges, n);
+            inEdges = Arrays.copyOf(inEdges, n);
+            outCount = Arrays.copyOf(outCount, n);
+            inCount = Arrays.copyOf(inCount, n);
+            outModCount = Arrays.copyOf(outModCount, n);
+            inModCount = Arrays.copyOf(inModCount, n);
+        }
+        vertices.add(v);
+        vertexIds.put(v, id);
+        outEdges[id] = new int[4];
+        inEdges[id] = new int[4];
+        vertexCount++;
+        vertexModCount++;
+
+        if (checking  &&  (vertexIds.size() != vertexCount  ||
+                    findVertex(v) != v))
+            throw new RuntimeException("Error adding node "+ v);
+        return true;
+    }
+
+
+    public boolean removeVertex(V v) {
+        Integer id = vertexIds.get(v);
+        if (id == null)
+            return false;
+
+        while (outCount[id] > 0)
+            removeEdgeID(outEdges[id][outCount[id]-1]);
+        while (inCount[id] > 0)
+            removeEdgeID(inEdges[id][inCount[id]-1]);
+        vertexIds.remove(v);
+        vertices.set(id, null);
+        outEdges[id] = null;
+        inEdges[id] = null;
+        vertexCount--;
+        vertexModCount++;
+
+        if (checking  &&  (vertexIds.size() != vertexCount  ||
+                    containsVertex(v)))
+            throw new RuntimeException("Error removing node "+ v);
+        return true;
+    }
+
+
+    public E addEdge(V source, V target) {
+        int src = vertexIdOf(source);
+        int dest = vertexIdOf(target);
+        if (src == dest)
+            throw new IllegalArgumentException("loops not allowed");
+        if (pairs.get(src, dest) >= 0)
+            return null;
+
+        E e = edgeFactory.createEdge(source, target);
+        addEdgeID(e, src, dest);
+        return e;
+    }
+
+
+    public boolean addEdge(V source, V target, E e) {
+        if (e == null)
+            throw new NullPointerException();
+        if (containsEdge(e))
+            return false;
+        int src = vertexIdOf(source);
+        int dest = vertexIdOf(target);
+        if (src == dest)
+            throw new IllegalArgumentException("loops not allowed");
+        if (pairs.get(src, dest) >= 0)
+            return false;
+
+        addEdgeID(e, src, dest);
+        return true;
+    }
+
+
+    public E removeEdge(V source, V target) {
+        E e = findEdge(source, target);
+        if (e != null)
+            removeEdgeID(edgeIds.get(e));
+        return e;
+    }
+
+
+    public boolean removeEdge(E e) {
+        int id = edgeIds.get(e);
+        if (id < 0)
+            return false;
+        removeEdgeID(id);
+        return true;
+    }
+
+
+    //------------------------- checking methods -----------------------------
+
+    /**
+     * Set the checking flag and return the old value. If set, every
+     * modification checks the affected node or edge.
+     */
+    public boolean setChecking(boolean c) {
+        boolean old = checking;
+        checking = c;
+        return old;
+    }
+
+
+    /**
+     * Check whether the ids, the adjacency arrays and the pair table are
+     * consistent. Throw an exception if not.
+     */
+    public void check() {
+        int nodes = 0, out = 0, in = 0, edgesFound = 0;
+
+        for (int v = 0; v < vertices.size(); v++) {
+            if (vertices.get(v) == null)
+                continue;
+            nodes++;
+            if (vertexIds.get(vertices.get(v)) != v)
+                throw new RuntimeException("Wrong id for node "+
+                        vertices.get(v));
+            for (int i = 0; i < outCount[v]; i++)
+                if (edgeSource[outEdges[v][i]] != v)
+                    throw new RuntimeException("Wrong outgoing edge "+
+                            edges.get(outEdges[v][i]));
+            for (int i = 0; i < inCount[v]; i++)
+                if (edgeTarget[inEdges[v][i]] != v)
+                    throw new RuntimeException("Wrong incoming edge "+
+                            edges.get(inEdges[v][i]));
+            out += outCount[v];
+            in += inCount[v];
+        }
+        if (nodes != vertexCount  ||  nodes != vertexIds.size())
+            throw new RuntimeException("Graph has "+ vertexCount +
+                    " nodes, but "+ nodes +" are stored");
+
+        for (int e = 0; e < edges.size(); e++) {
+            if (edges.get(e) == null)
+                continue;
+            edgesFound++;
+            if (edgeIds.get(edges.get(e)) != e  ||
+                    pairs.get(edgeSource[e], edgeTarget[e]) != e)
+                throw new RuntimeException("Finding "+ edges.get(e) +
+                        " returns wrong id");
+        }
+        if (edgesFound != edgeCount  ||  out != edgeCount  ||
+                in != edgeCount  ||  pairs.size() != edgeCount)
+            throw new RuntimeException("Graph has "+ edgeCount +
+                    " edges, but "+ edgesFound +" are stored");
+    }
+
+
+    //------------------------- Private methods ------------------------------
+
+    /**
+     * Return the id of v, throwing an exception if v is not in the graph.
+     */
+    private int vertexIdOf(V v) {
+        Integer id = vertexIds.get(v);
+        if (id == null) {
+            if (v == null)
+                throw new NullPointerException();
+            throw new IllegalArgumentException("no such vertex in graph");
+        }
+        return id;
+    }
+
+
+    /**
+     * Return the id of e, throwing an exception if e is not in the graph.
+     */
+    private int idOf(E e) {
+        int id = edgeIds.get(e);
+        if (id < 0)
+            throw new IllegalArgumentException("no such edge in graph");
+        return id;
+    }
+
+
+    /**
+     * Add the new edge e from src to dest.
+     */
+    private void addEdgeID(E e, int src, int dest) {
+        int id = edges.size();
+        if (id == edgeSource.length) {
+            edgeSource = Arrays.copyOf(edgeSource, 2*id);
+            edgeTarget = Arrays.copyOf(edgeTarget, 2*id);
+        }
+        edges.add(e);
+        edgeSource[id] = src;
+        edgeTarget[id] = dest;
+        edgeIds.put(e, id);
+        pairs.put(src, dest, id);
+
+        if (outCount[src] == outEdges[src].length)
+            outEdges[src] = Arrays.copyOf(outEdges[src], 2*outCount[src]);
+        outEdges[src][outCount[src]++] = id;
+        if (inCount[dest] == inEdges[dest].length)
+            inEdges[dest] = Arrays.copyOf(inEdges[dest], 2*inCount[dest]);
+        inEdges[dest][inCount[dest]++] = id;
+
+        if (SOURCE.getDeclaringClass().isInstance(e)) {
+            try {
+                SOURCE.set(e, vertices.get(src));
+                TARGET.set(e, vertices.get(dest));
+            } catch (IllegalAccessException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        edgeCount++;
+        edgeModCount++;
+        outModCount[src]++;
+        inModCount[dest]++;
+
+        if (checking  &&  (pairs.size() != edgeCount  ||
+                    edgeIds.get(e) != id  ||  pairs.get(src, dest) != id))
+            throw new RuntimeException("Error adding edge "+ e);
+    }
+
+
+    /**
+     * Remove the edge with the given id.
+     */
+    private void removeEdgeID(int id) {
+        int src = edgeSource[id];
+        int dest = edgeTarget[id];
+
+        removeFrom(outEdges[src], outCount[src]--, id);
+        removeFrom(inEdges[dest], inCount[dest]--, id);
+        E e = edges.get(id);
+        pairs.remove(src, dest);
+        edgeIds.remove(e);
+        edges.set(id, null);
+        edgeCount--;
+        edgeModCount++;
+        outModCount[src]++;
+        inModCount[dest]++;
+
+        if (checking  &&  (pairs.size() != edgeCount  ||
+                    edgeIds.get(e) >= 0  ||  pairs.get(src, dest) >= 0))
+            throw new RuntimeException("Error removing edge "+ e);
+    }
+
+
+    /**
+     * Remove x from the first count elements of a, keeping the order.
+     */
+    private static void removeFrom(int[] a, int count, int x) {
+        int i = 0;
+        while (a[i] != x)
+            i++;
+        System.arraycopy(a, i+1, a, i, count-i-1);
+    }
+
+
+    //------------------------- Views ----------------------------------------
+
+    /**
+     * Iterates over a range of ids, skipping removed ones.
+     */
+    private abstract class IdIterator<T> implements Iterator<T> {
+        private final int expectedModCount = modCount();
+        private int next;
+
+        IdIterator() {
+            next = advance(0);
+        }
+
+        /** Return the modification counter for the iterated objects */
+        abstract int modCount();
+        /** Return the number of ids */
+        abstract int bound();
+        /** Return the object with the given id or null */
+        abstract T get(int i);
+
+        private int advance(int i) {
+            while (i < bound()  &&  get(i) == null)
+                i++;
+            return i;
+        }
+
+        public boolean hasNext() {
+            return next < bound();
+        }
+
+        public T next() {
+            if (modCount() != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (next >= bound())
+                throw new NoSuchElementException();
+            T res = get(next);
+            next = advance(next+1);
+            return res;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+
+    private class VertexSet extends AbstractSet<V> {
+        public Iterator<V> iterator() {
+            return new IdIterator<V>() {
+                int modCount() { return vertexModCount; }
+                int bound() { return vertices.size(); }
+                V get(int i) { return vertices.get(i); }
+            };
+        }
+
+        public int size() {
+            return vertexCount;
+        }
+
+        public boolean contains(Object o) {
+            return vertexIds.containsKey(o);
+        }
+    }
+
+
+    private class EdgeSet extends AbstractSet<E> {
+        public Iterator<E> iterator() {
+            return new IdIterator<E>() {
+                int modCount() { return edgeModCount; }
+                int bound() { return edges.size(); }
+                E get(int i) { return edges.get(i); }
+            };
+        }
+
+        public int size() {
+            return edgeCount;
+        }
+
+        public boolean contains(Object o) {
+            return edgeIds.get(o) >= 0;
+        }
+    }
+
+
+    /**
+     * The outgoing or incoming edges of a node.
+     */
+    private class AdjacencySet extends AbstractSet<E> {
+        private final int v;
+        private final boolean out;
+
+        AdjacencySet(int v, boolean out) {
+            this.v = v;
+            this.out = out;
+        }
+
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private final int expectedModCount = modCount();
+                private final int[] adj = out ? outEdges[v] : inEdges[v];
+                private final int count = size();
+                private int i = 0;
+
+                public boolean hasNext() {
+                    return i < count;
+                }
+
+                public E next() {
+                    if (modCount() != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    if (i >= count)
+                        throw new NoSuchElementException();
+                    return edges.get(adj[i++]);
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        private int modCount() {
+            return out ? outModCount[v] : inModCount[v];
+        }
+
+        public int size() {
+            return out ? outCount[v] : inCount[v];
+        }
+
+        public boolean contains(Object o) {
+            int id = edgeIds.get(o);
+            return id >= 0  &&  (out ? edgeSource[id] : edgeTarget[id]) == v;
+        }
+    }
+
+
+    /**
+     * An unmodifiable set backed by a list without duplicates.
+     */
+    private static class UnmodifiableListSet<T> extends AbstractSet<T> {
+        private final ArrayList<T> list;
+
+        UnmodifiableListSet(ArrayList<T> list) {
+            this.list = list;
+        }
+
+        public Iterator<T> iterator() {
+            return Collections.unmodifiableList(list).iterator();
+        }
+
+        public int size() {
+            return list.size();
+        }
+    }
+
+
+    //------------------------- Hash tables ----------------------------------
+
+    /**
+     * Maps objects (by reference) to non-negative ints, using open
+     * addressing with linear probing.
+     */
+    private static class IdentityIndex {
+        private Object[] keys = new Object[64];
+        private int[] vals = new int[64];
+        private int size;
+
+        private int slot(Object k) {
+            int h = System.identityHashCode(k) * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & (keys.length-1);
+        }
+
+        /** Return the value for k or -1 */
+        int get(Object k) {
+            if (k == null)
+                return -1;
+            for (int i = slot(k); keys[i] != null; i = (i+1)&(keys.length-1))
+                if (keys[i] == k)
+                    return vals[i];
+            return -1;
+        }
+
+        void put(Object k, int v) {
+            if (2*(size+1) > keys.length)
+                rehash();
+            int i = slot(k);
+            while (keys[i] != null)
+                i = (i+1) & (keys.length-1);
+            keys[i] = k;
+            vals[i] = v;
+            size++;
+        }
+
+        void remove(Object k) {
+            int mask = keys.length-1;
+            int i = slot(k);
+            while (keys[i] != k) {
+                if (keys[i] == null)
+                    return;
+                i = (i+1) & mask;
+            }
+            // Shift back following entries that would become unreachable
+            for (int j = (i+1) & mask; keys[j] != null; j = (j+1) & mask) {
+                int s = slot(keys[j]);
+                if (i <= j ? (s <= i  ||  s > j) : (s <= i  &&  s > j)) {
+                    keys[i] = keys[j];
+                    vals[i] = vals[j];
+                    i = j;
+                }
+            }
+            keys[i] = null;
+            size--;
+        }
+
+        private void rehash() {
+            Object[] oldKeys = keys;
+            int[] oldVals = vals;
+            keys = new Object[2*oldKeys.length];
+            vals = new int[2*oldKeys.length];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++)
+                if (oldKeys[i] != null)
+                    put(oldKeys[i], oldVals[i]);
+        }
+    }
+
+
+    /**
+     * Maps pairs of non-negative ints to non-negative ints, using open
+     * addressing with linear probing.
+     */
+    private static class PairIndex {
+        private static final long EMPTY = -1L;
+        private long[] keys;
+        private int[] vals;
+        private int size;
+
+        PairIndex() {
+            keys = new long[64];
+            vals = new int[64];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        private int slot(long k) {
+            return (int) ((k * 0x9E3779B97F4A7C15L) >>> 32) & (keys.length-1);
+        }
+
+        int size() {
+            return size;
+        }
+
+        /** Return the value for (a,b) or -1 */
+        int get(int a, int b) {
+            long k = ((long) a << 32) | b;
+            for (int i = slot(k); keys[i] != EMPTY; i = (i+1)&(keys.length-1))
+                if (keys[i] == k)
+                    return vals[i];
+            return -1;
+        }
+
+        void put(int a, int b, int v) {
+            if (2*(size+1) > keys.length)
+                rehash();
+            insert(((long) a << 32) | b, v);
+        }
+
+        private void insert(long k, int v) {
+            int i = slot(k);
+            while (keys[i] != EMPTY)
+                i = (i+1) & (keys.length-1);
+            keys[i] = k;
+            vals[i] = v;
+            size++;
+        }
+
+        void remove(int a, int b) {
+            long k = ((long) a << 32) | b;
+            int mask = keys.length-1;
+            int i = slot(k);
+            while (keys[i] != k) {
+                if (keys[i] == EMPTY)
+                    return;
+                i = (i+1) & mask;
+            }
+            // Shift back following entries that would become unreachable
+            for (int j = (i+1) & mask; keys[j] != EMPTY; j = (j+1) & mask) {
+                int s = slot(keys[j]);
+                if (i <= j ? (s <= i  ||  s > j) : (s <= i  &&  s > j)) {
+                    keys[i] = keys[j];
+                    vals[i] = vals[j];
+                    i = j;
+                }
+            }
+            keys[i] = EMPTY;
+            size--;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldVals = vals;
+            keys = new long[2*oldKeys.length];
+            vals = new int[2*oldKeys.length];
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++)
+                if (oldKeys[i] != EMPTY)
+                    insert(oldKeys[i], oldVals[i]);
+        }
+    }
+}
+
+/* EOF */
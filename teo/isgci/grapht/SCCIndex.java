@@ -0,0 +1,170 @@
+/*
+ * The strongly connected components of a transitively closed IndexedGraph.
+ *
+ * $Id$
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.grapht;
+
+import java.util.*;
+
+/**
+ * Keeps the strongly connected components of an IndexedGraph in a
+ * union-find structure over the node ids, so they needn't be recomputed
+ * every time they're needed.
+ * The graph must be transitively closed whenever the SCCs are asked for. In
+ * a closed graph two nodes are in the same SCC iff there are edges in both
+ * directions between them, so when an edge is added, edgeAdded() only has
+ * to look whether the reverse edge exists. As SCCs then only merge, edges
+ * may only be removed if the SCCs remain the same. Nodes may be added and
+ * removed freely.
+ */
+public class SCCIndex<V,E> {
+    private IndexedGraph<V,E> graph;
+    /** Union-find parent per node id */
+    private int[] parent;
+    /** Number of merges so far */
+    private int merges;
+    /** The SCCs as returned by getMap(), and the state they're valid for */
+    private Map<V,Set<V> > map;
+    private int mapMerges, mapBound, mapSize;
+
+
+    /**
+     * Create an index for the current SCCs of graph.
+     */
+    public SCCIndex(IndexedGraph<V,E> graph) {
+        this.graph = graph;
+        parent = new int[0];
+        merges = 0;
+        map = null;
+        for (Set<V> scc : GAlg.calcSCCList(graph)) {
+            int first = -1;
+            for (V v : scc) {
+                if (first < 0)
+                    first = graph.getVertexID(v);
+                else
+                    union(first, graph.getVertexID(v));
+            }
+        }
+    }
+
+
+    /**
+     * Update the index after the edge from -> to was added.
+     */
+    public void edgeAdded(V from, V to) {
+        int f = graph.getVertexID(from);
+        int t = graph.getVertexID(to);
+        if (graph.getEdgeID(t, f) >= 0)
+            union(f, t);
+    }
+
+
+    /**
+     * Return true iff v and w are in the same SCC.
+     */
+    public boolean equivalent(V v, V w) {
+        return find(graph.getVertexID(v)) == find(graph.getVertexID(w));
+    }
+
+
+    /**
+     * Return the SCC of v as an unmodifiable set.
+     */
+    public Set<V> get(V v) {
+        return getMap().get(v);
+    }
+
+
+    /**
+     * Return a map from the nodes to their SCCs, like GAlg.calcSCCMap().
+     * In the values of this map, every SCC exists precisely once as an
+     * unmodifiable set. The map is reused until the SCCs change.
+     */
+    public Map<V,Set<V> > getMap() {
+        int bound = graph.getVertexIDBound();
+        int size = graph.vertexSet().size();
+        if (map != null  &&  mapMerges == merges  &&  mapBound == bound  &&
+                mapSize == size)
+            return map;
+
+        HashMap<Integer,Set<V> > sccs = new HashMap<Integer,Set<V> >();
+        for (int i = 0; i < bound; i++) {
+            V v = graph.getVertex(i);
+            if (v == null)
+                continue;
+            int root = find(i);
+            Set<V> scc = sccs.get(root);
+            if (scc == null) {
+                scc = new HashSet<V>();
+                sccs.put(root, scc);
+            }
+            scc.add(v);
+        }
+
+        map = new HashMap<V,Set<V> >(2*size);
+        for (Set<V> scc : sccs.values()) {
+            Set<V> s = Collections.unmodifiableSet(scc);
+            for (V v : scc)
+                map.put(v, s);
+        }
+        mapMerges = merges;
+        mapBound = bound;
+        mapSize = size;
+        return map;
+    }
+
+
+    /**
+     * Return the representative of the SCC of the node with id i.
+     */
+    private int find(int i) {
+        if (i >= parent.length)
+            grow(i);
+        int root = i;
+        while (parent[root] != root)
+            root = parent[root];
+        while (parent[i] != root) {
+            int next = parent[i];
+            parent[i] = root;
+            i = next;
+        }
+        return root;
+    }
+
+
+    /**
+     * Merge the SCCs of the nodes with ids i and j.
+     */
+    private void union(int i, int j) {
+        int ri = find(i);
+        int rj = find(j);
+        if (ri == rj)
+            return;
+        // Keep the lowest id as representative
+        if (ri < rj)
+            parent[rj] = ri;
+        else
+            parent[ri] = rj;
+        merges++;
+    }
+
+
+    /**
+     * Make room for the node with id i; new nodes are an SCC by themselves.
+     */
+    private void grow(int i) {
+        int old = parent.length;
+        parent = Arrays.copyOf(parent,
+                Math.max(i + 1, Math.max(graph.getVertexIDBound(), 2*old)));
+        for (int k = old; k < parent.length; k++)
+            parent[k] = k;
+    }
+}
+
+/* EOF */
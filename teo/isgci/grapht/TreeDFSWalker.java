@@ -31,8 +31,10 @@ public class TreeDFSWalker<V,E> extends UDFSWalker<V,E> {
     
 
     public void run() {
+        WalkEvent event = beginWalk();
         getDataNode(start).parent = null;
         discover(start);
+        endWalk(event);
     }
 
    
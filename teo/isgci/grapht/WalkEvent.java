@@ -0,0 +1,40 @@
+/*
+ * Flight recorder event for a run of a GraphWalker.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.grapht;
+
+import jdk.jfr.*;
+
+/**
+ * A run() of a GraphWalker. Walks are many and mostly short, so by default
+ * only the ones that take at least a millisecond are recorded.
+ */
+@Name("teo.isgci.GraphWalk")
+@Label("Graph Walk")
+@Category({"ISGCI", "Graph"})
+@Description("A run of a GraphWalker")
+@Threshold("1 ms")
+@StackTrace(false)
+class WalkEvent extends Event {
+    @Label("Walker")
+    String walker;
+
+    @Label("Nodes")
+    @Description("Nodes in the graph")
+    int nodes;
+
+    @Label("Edges")
+    @Description("Edges in the graph")
+    int edges;
+
+    @Label("Seen")
+    @Description("Nodes seen or finished according to the walker's info")
+    int seen;
+}
+
+/* EOF */
@@ -41,7 +41,7 @@ public class Cliquewidth extends Problem {
     protected void distributeChildren() {
         Complexity c;
 
-        for (GraphClass n : graph.vertexSet()) {
+        for (GraphClass n : nodes()) {
             for (Reduction r : children) {
                 c = r.fromChild(
                         r.getChild().getProgeniallyDerivedComplexity(n) );
@@ -65,7 +65,7 @@ public class Cliquewidth extends Problem {
         boolean ok;
         Complexity c;
 
-        for (GraphClass n : graph.vertexSet()) {
+        for (GraphClass n : nodes()) {
             if ( !(n instanceof ProbeClass) ||
                     getDerivedComplexity(n).betterOrEqual(Complexity.P) )
                 continue;
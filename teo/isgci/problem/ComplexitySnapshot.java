@@ -0,0 +1,573 @@
+/*
+ * Saves the distributed complexities so a later run can continue from them.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.problem;
+
+import java.io.*;
+import java.util.*;
+import org.jgrapht.DirectedGraph;
+import teo.isgci.gc.*;
+import teo.isgci.grapht.*;
+import teo.isgci.relation.*;
+import teo.isgci.ref.*;
+
+/**
+ * The algorithms and complexities of all problems on all nodes after
+ * Problem.distributeComplexities(). The nodes are identified by keys that
+ * the caller assigns, see teo.isgci.appl.deducer.Snapshot.
+ * For every algorithm on a node, the step in which it was added is stored,
+ * so the complexities can be distributed again on some of the nodes only,
+ * see distribute(). The algorithms are stored by kind: Those of the input are
+ * matched against the current input, the others are created again.
+ */
+public class ComplexitySnapshot {
+    // Kinds of algorithms
+    private static final int INPUT = 0;
+    private static final int COMPLEMENT = 1;
+    private static final int FROMPARENT = 2;
+    private static final int FROMCHILD = 3;
+    private static final int CREATED = 4;
+
+    //---- The problems, to detect that they changed
+    private String[] problemNames;
+    private String[] complementNames;
+    /** Per problem, the names of the parents and children */
+    private String[][] parentNames;
+    private String[][] childNames;
+    /** Per problem, the complexities of the reductions from the parents */
+    private byte[][] reductionComplexities;
+
+    //---- The algorithms by number
+    private byte[] kinds;
+    private int[] algoProblems;
+    private byte[] algoComplexities;
+    /** The node key of INPUT/CREATED, the reduction of FROMPARENT/CHILD */
+    private int[] algoArgs;
+    /** The signature of INPUT, the explanation of CREATED */
+    private String[] algoTexts;
+
+    //---- Per problem, the nodes that have algorithms
+    private int[][] nodeKeys;
+    /** The complexity per step, by ordinal */
+    private byte[][][] complexities;
+    /** The numbers of the algorithms */
+    private int[][][] nodeAlgos;
+    /** The step in which each algorithm was added */
+    private byte[][][] nodeSteps;
+
+
+    private ComplexitySnapshot() {
+    }
+
+
+    //----------------------------- Writing --------------------------------
+
+    /**
+     * Write the algorithms and complexities of the problems that were
+     * distributed to out. keys gives the key of every node.
+     */
+    public static void write(DataOutputStream out,
+            Map<GraphClass,Integer> keys) throws IOException {
+        List<Problem> problems = Problem.getProblems();
+
+        out.writeInt(problems.size());
+        for (Problem p : problems) {
+            out.writeUTF(p.getName());
+            out.writeUTF(p.complement == null ? "" : p.complement.getName());
+            out.writeInt(p.parents.size());
+            for (Reduction r : p.parents) {
+                out.writeUTF(r.getParent().getName());
+                out.writeByte(r.getComplexity().ordinal());
+            }
+            out.writeInt(p.children.size());
+            for (Reduction r : p.children)
+                out.writeUTF(r.getChild().getName());
+        }
+        if (problems.isEmpty())
+            return;
+
+        //---- Number the algorithms: input first, so they're known by node
+        DirectedGraph<GraphClass,Inclusion> graph = problems.get(0).graph;
+        IdentityHashMap<Algorithm,Integer> numbers =
+                new IdentityHashMap<Algorithm,Integer>();
+        List<Algorithm> algos = new ArrayList<Algorithm>();
+        List<Integer> inputKeys = new ArrayList<Integer>();
+        for (Problem p : problems) {
+            for (GraphClass n : graph.vertexSet()) {
+                ProblemOnNode pon = p.algoAnn.getNode(n);
+                if (pon == null)
+                    continue;
+                for (Map.Entry<Algorithm,Integer> e : pon.algos.entrySet()) {
+                    Algorithm a = e.getKey();
+                    if (e.getValue() < 0  &&  !numbers.containsKey(a)) {
+                        numbers.put(a, algos.size());
+                        algos.add(a);
+                        inputKeys.add(keys.get(n));
+                    }
+                }
+            }
+        }
+        int inputs = algos.size();
+        for (Problem p : problems) {
+            for (GraphClass n : graph.vertexSet()) {
+                ProblemOnNode pon = p.algoAnn.getNode(n);
+                if (pon == null)
+                    continue;
+                for (Algorithm a : pon.algos.keySet()) {
+                    if (!numbers.containsKey(a)) {
+                        numbers.put(a, algos.size());
+                        algos.add(a);
+                    }
+                }
+            }
+        }
+
+        out.writeInt(algos.size());
+        for (int i = 0; i < algos.size(); i++) {
+            Algorithm a = algos.get(i);
+            Problem p = a.getProblem();
+            out.writeInt(problems.indexOf(p));
+            out.writeByte(a.getComplexity().ordinal());
+            if (i < inputs) {
+                out.writeByte(INPUT);
+                out.writeInt(inputKeys.get(i));
+                out.writeUTF(signature(a));
+            } else if (p.coAlgos != null  &&  p.coAlgos.contains(a)) {
+                out.writeByte(COMPLEMENT);
+            } else if (indexOf(p.parents, a, true) >= 0) {
+                out.writeByte(FROMPARENT);
+                out.writeInt(indexOf(p.parents, a, true));
+            } else if (indexOf(p.children, a, false) >= 0) {
+                out.writeByte(FROMCHILD);
+                out.writeInt(indexOf(p.children, a, false));
+            } else if (a.getGraphClass() != null  &&
+                    Problem.getWhy(a) != null) {
+                out.writeByte(CREATED);
+                out.writeInt(keys.get(a.getGraphClass()));
+                out.writeUTF(Problem.getWhy(a));
+            } else {
+                throw new IOException("Unknown kind of algorithm "+ a);
+            }
+        }
+
+        //---- The algorithms and complexities on the nodes
+        for (Problem p : problems) {
+            List<GraphClass> nodes = new ArrayList<GraphClass>();
+            for (GraphClass n : graph.vertexSet())
+                if (p.algoAnn.getNode(n) != null)
+                    nodes.add(n);
+            out.writeInt(nodes.size());
+            for (GraphClass n : nodes) {
+                ProblemOnNode pon = p.algoAnn.getNode(n);
+                out.writeInt(keys.get(n));
+                for (Complexity c : pon.complexity)
+                    out.writeByte(c.ordinal());
+                out.writeInt(pon.algos.size());
+                for (Map.Entry<Algorithm,Integer> e : pon.algos.entrySet()) {
+                    out.writeInt(numbers.get(e.getKey()));
+                    out.writeByte(e.getValue());
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Return the index of the reduction in rs whose child (if child) or
+     * parent algorithms contain a, or -1.
+     */
+    private static int indexOf(List<Reduction> rs, Algorithm a,
+            boolean child) {
+        for (int i = 0; i < rs.size(); i++) {
+            Reduction r = rs.get(i);
+            if ((child ? r.childAlgos : r.parentAlgos).contains(a))
+                return i;
+        }
+        return -1;
+    }
+
+
+    /**
+     * Return a string that identifies the input algorithm a on its node.
+     */
+    private static String signature(Algorithm a) {
+        StringBuilder s = new StringBuilder(a.getComplexity().name());
+        s.append('|').append(a.getTimeBounds());
+        if (a.getRefs() != null) {
+            for (Object o : a.getRefs()) {
+                if (o instanceof Ref) {
+                    s.append("|R").append(((Ref) o).getLabel());
+                } else {
+                    Note n = (Note) o;
+                    s.append("|N").append(n.getName()).append('=').append(n);
+                }
+            }
+        }
+        return s.toString();
+    }
+
+
+    //----------------------------- Reading --------------------------------
+
+    /**
+     * Read the algorithms and complexities written by write() from in.
+     */
+    public static ComplexitySnapshot read(DataInputStream in)
+            throws IOException {
+        ComplexitySnapshot s = new ComplexitySnapshot();
+
+        int n = in.readInt();
+        s.problemNames = new String[n];
+        s.complementNames = new String[n];
+        s.parentNames = new String[n][];
+        s.childNames = new String[n][];
+        s.reductionComplexities = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            s.problemNames[i] = in.readUTF();
+            s.complementNames[i] = in.readUTF();
+            int m = in.readInt();
+            s.parentNames[i] = new String[m];
+            s.reductionComplexities[i] = new byte[m];
+            for (int j = 0; j < m; j++) {
+                s.parentNames[i][j] = in.readUTF();
+                s.reductionComplexities[i][j] = in.readByte();
+            }
+            m = in.readInt();
+            s.childNames[i] = new String[m];
+            for (int j = 0; j < m; j++)
+                s.childNames[i][j] = in.readUTF();
+        }
+        s.nodeKeys = new int[n][];
+        s.complexities = new byte[n][][];
+        s.nodeAlgos = new int[n][][];
+        s.nodeSteps = new byte[n][][];
+        if (n == 0)
+            return s;
+
+        n = in.readInt();
+        s.kinds = new byte[n];
+        s.algoProblems = new int[n];
+        s.algoComplexities = new byte[n];
+        s.algoArgs = new int[n];
+        s.algoTexts = new String[n];
+        for (int i = 0; i < n; i++) {
+            s.algoProblems[i] = in.readInt();
+            s.algoComplexities[i] = in.readByte();
+            s.kinds[i] = in.readByte();
+            if (s.kinds[i] != COMPLEMENT)
+                s.algoArgs[i] = in.readInt();
+            if (s.kinds[i] == INPUT  ||  s.kinds[i] == CREATED)
+                s.algoTexts[i] = in.readUTF();
+        }
+
+        for (int i = 0; i < s.problemNames.length; i++) {
+            n = in.readInt();
+            s.nodeKeys[i] = new int[n];
+            s.complexities[i] = new byte[n][Problem.STEPS];
+            s.nodeAlgos[i] = new int[n][];
+            s.nodeSteps[i] = new byte[n][];
+            for (int j = 0; j < n; j++) {
+                s.nodeKeys[i][j] = in.readInt();
+                in.readFully(s.complexities[i][j]);
+                int m = in.readInt();
+                s.nodeAlgos[i][j] = new int[m];
+                s.nodeSteps[i][j] = new byte[m];
+                for (int k = 0; k < m; k++) {
+                    s.nodeAlgos[i][j][k] = in.readInt();
+                    s.nodeSteps[i][j][k] = in.readByte();
+                }
+            }
+        }
+        return s;
+    }
+
+
+    //--------------------------- Distributing -----------------------------
+
+    /**
+     * Restore the algorithms and complexities on the nodes, with classes[k]
+     * the node for key k, and distribute the complexities again on the nodes
+     * that may be affected by what was added since the snapshot: The nodes
+     * in changed (new nodes and the ends of new edges), the nodes that got
+     * new input algorithms and, repeatedly, the nodes that depend on a node
+     * whose algorithms or complexities became different from the snapshot.
+     * Return null on success, otherwise why the snapshot can't be used, in
+     * which case nothing was changed.
+     */
+    public String distribute(GraphClass[] classes,
+            Map<GraphClass,Set<GraphClass> > scc,
+            Collection<GraphClass> changed) {
+        List<Problem> problems = Problem.getProblems();
+        String why = matchProblems(problems);
+        if (why != null)
+            return why;
+        if (problems.isEmpty())
+            return null;
+
+        DirectedGraph<GraphClass,Inclusion> graph = problems.get(0).graph;
+        Set<GraphClass> seeds = new LinkedHashSet<GraphClass>(changed);
+
+        //---- The input, which is reset on the nodes that are distributed on
+        List<Map<GraphClass,ProblemOnNode> > inputs =
+                new ArrayList<Map<GraphClass,ProblemOnNode> >();
+        for (Problem p : problems) {
+            Map<GraphClass,ProblemOnNode> in =
+                    new IdentityHashMap<GraphClass,ProblemOnNode>();
+            for (GraphClass n : graph.vertexSet()) {
+                ProblemOnNode pon = p.algoAnn.getNode(n);
+                if (pon != null)
+                    in.put(n, new ProblemOnNode(pon));
+            }
+            inputs.add(in);
+        }
+
+        //---- Match the input algorithms by signature. The nodes with new
+        // ones are distributed on.
+        Algorithm[] algos = new Algorithm[kinds.length];
+        Set<Algorithm> matched = Collections.newSetFromMap(
+                new IdentityHashMap<Algorithm,Boolean>());
+        for (int i = 0; i < kinds.length; i++) {
+            if (kinds[i] != INPUT)
+                continue;
+            ProblemOnNode pon =
+                    inputs.get(algoProblems[i]).get(classes[algoArgs[i]]);
+            if (pon != null) {
+                for (Algorithm a : pon.algos.keySet()) {
+                    if (!matched.contains(a)  &&
+                            signature(a).equals(algoTexts[i])) {
+                        algos[i] = a;
+                        matched.add(a);
+                        break;
+                    }
+                }
+            }
+            if (algos[i] == null)
+                return "algorithm "+ algoTexts[i] +" on "+
+                        classes[algoArgs[i]] +" is no longer in the input";
+        }
+        for (Map<GraphClass,ProblemOnNode> in : inputs)
+            for (Map.Entry<GraphClass,ProblemOnNode> e : in.entrySet())
+                if (!matched.containsAll(e.getValue().algos.keySet()))
+                    seeds.add(e.getKey());
+
+        //---- Create the other algorithms
+        for (int i = 0; i < kinds.length; i++) {
+            Problem p = problems.get(algoProblems[i]);
+            Complexity c = Complexity.values()[algoComplexities[i]];
+            switch (kinds[i]) {
+                case COMPLEMENT:
+                    algos[i] = p.getComplementAlgo(c);
+                    break;
+                case FROMPARENT:
+                    algos[i] = p.parents.get(algoArgs[i]).getChildAlgo(c);
+                    break;
+                case FROMCHILD:
+                    algos[i] = p.children.get(algoArgs[i]).getParentAlgo(c);
+                    break;
+                case CREATED:
+                    algos[i] = p.restoreNodeAlgo(classes[algoArgs[i]], c,
+                            algoTexts[i]);
+                    break;
+            }
+        }
+
+        //---- Restore the algorithms and complexities on the nodes
+        List<Map<GraphClass,ProblemOnNode> > stored =
+                new ArrayList<Map<GraphClass,ProblemOnNode> >();
+        for (int i = 0; i < problems.size(); i++) {
+            Problem p = problems.get(i);
+            Map<GraphClass,ProblemOnNode> st =
+                    new IdentityHashMap<GraphClass,ProblemOnNode>();
+            for (int j = 0; j < nodeKeys[i].length; j++) {
+                GraphClass n = classes[nodeKeys[i][j]];
+                ProblemOnNode pon = new ProblemOnNode(p, n);
+                for (int k = 0; k < pon.complexity.length; k++)
+                    pon.complexity[k] =
+                            Complexity.values()[complexities[i][j][k]];
+                for (int k = 0; k < nodeAlgos[i][j].length; k++)
+                    pon.algos.put(algos[nodeAlgos[i][j][k]],
+                            (int) nodeSteps[i][j][k]);
+                st.put(n, pon);
+                p.algoAnn.setNode(n, new ProblemOnNode(pon));
+            }
+            stored.add(st);
+        }
+
+        //---- Distribute on the affected nodes until no other nodes depend
+        // on a node that became different from the snapshot.
+        Map<GraphClass,List<GraphClass> > dependents = dependents(graph);
+        Set<GraphClass> nodes = Collections.newSetFromMap(
+                new IdentityHashMap<GraphClass,Boolean>());
+        List<GraphClass> todo = new ArrayList<GraphClass>(seeds);
+        int rounds = 0;
+        while (addClosed(todo, nodes, scc, dependents)) {
+            rounds++;
+            List<GraphClass> ordered = new ArrayList<GraphClass>();
+            for (GraphClass n : graph.vertexSet())
+                if (nodes.contains(n))
+                    ordered.add(n);
+
+            for (int i = 0; i < problems.size(); i++) {
+                for (GraphClass n : ordered) {
+                    ProblemOnNode in = inputs.get(i).get(n);
+                    problems.get(i).algoAnn.setNode(n,
+                            in == null ? null : new ProblemOnNode(in));
+                }
+            }
+            Problem.distributeComplexities(scc, ordered);
+
+            todo.clear();
+            for (GraphClass n : ordered) {
+                for (int i = 0; i < problems.size(); i++) {
+                    if (!same(problems.get(i).algoAnn.getNode(n),
+                            stored.get(i).get(n))) {
+                        todo.add(n);
+                        for (GraphClass m : GAlg.inNeighboursOf(graph, n))
+                            todo.add(m);
+                        for (GraphClass m : GAlg.outNeighboursOf(graph, n))
+                            todo.add(m);
+                        List<GraphClass> ds = dependents.get(n);
+                        if (ds != null)
+                            todo.addAll(ds);
+                        break;
+                    }
+                }
+            }
+        }
+        Problem.setDistributed();
+        System.out.println("Distributed complexities on "+ nodes.size() +
+                " nodes in "+ rounds +" rounds");
+        return null;
+    }
+
+
+    /**
+     * Return null if problems are the problems of this snapshot, otherwise
+     * how they differ.
+     */
+    private String matchProblems(List<Problem> problems) {
+        if (problems.size() != problemNames.length)
+            return "the number of problems changed";
+        for (int i = 0; i < problemNames.length; i++) {
+            Problem p = problems.get(i);
+            if (!p.getName().equals(problemNames[i])  ||
+                    !complementNames[i].equals(p.complement == null ?
+                        "" : p.complement.getName())  ||
+                    p.parents.size() != parentNames[i].length  ||
+                    p.children.size() != childNames[i].length)
+                return "problem "+ problemNames[i] +" changed";
+            for (int j = 0; j < parentNames[i].length; j++) {
+                Reduction r = p.parents.get(j);
+                if (!r.getParent().getName().equals(parentNames[i][j])  ||
+                        r.getComplexity().ordinal() !=
+                            reductionComplexities[i][j])
+                    return "problem "+ problemNames[i] +" changed";
+            }
+            for (int j = 0; j < childNames[i].length; j++)
+                if (!p.children.get(j).getChild().getName().equals(
+                        childNames[i][j]))
+                    return "problem "+ problemNames[i] +" changed";
+        }
+        return null;
+    }
+
+
+    /**
+     * Return the nodes whose complexities are deduced from those of n,
+     * besides the super- and subclasses of n: The classes derived from n and
+     * the sets that contain n, and the base of a complement class.
+     */
+    private static Map<GraphClass,List<GraphClass> > dependents(
+            DirectedGraph<GraphClass,Inclusion> graph) {
+        // Members may be equal to a node without being the node itself
+        Map<GraphClass,GraphClass> nodes = new HashMap<GraphClass,GraphClass>();
+        for (GraphClass n : graph.vertexSet())
+            nodes.put(n, n);
+
+        Map<GraphClass,List<GraphClass> > res =
+                new IdentityHashMap<GraphClass,List<GraphClass> >();
+        for (GraphClass n : graph.vertexSet()) {
+            List<GraphClass> members = new ArrayList<GraphClass>();
+            if (n instanceof DerivedClass)
+                members.add(((DerivedClass) n).getBase());
+            else if (n instanceof SetClass)
+                members.addAll(((SetClass) n).getSet());
+            for (GraphClass m : members) {
+                GraphClass node = nodes.get(m);
+                if (node == null)
+                    continue;
+                addDependent(res, node, n);
+                if (n instanceof ComplementClass)
+                    addDependent(res, n, node);
+            }
+        }
+        return res;
+    }
+
+
+    private static void addDependent(Map<GraphClass,List<GraphClass> > res,
+            GraphClass n, GraphClass dependent) {
+        List<GraphClass> l = res.get(n);
+        if (l == null) {
+            l = new ArrayList<GraphClass>();
+            res.put(n, l);
+        }
+        l.add(dependent);
+    }
+
+
+    /**
+     * Add the nodes in todo to nodes, with their SCCs and their complements
+     * and bases. Return true iff nodes grew.
+     */
+    private static boolean addClosed(List<GraphClass> todo,
+            Set<GraphClass> nodes, Map<GraphClass,Set<GraphClass> > scc,
+            Map<GraphClass,List<GraphClass> > dependents) {
+        boolean grown = false;
+
+        while (!todo.isEmpty()) {
+            GraphClass n = todo.remove(todo.size() - 1);
+            if (!nodes.add(n))
+                continue;
+            grown = true;
+            todo.addAll(scc.get(n));
+            List<GraphClass> ds = dependents.get(n);
+            if (ds == null)
+                continue;
+            for (GraphClass d : ds)
+                if (isComplement(d, n)  ||  isComplement(n, d))
+                    todo.add(d);
+        }
+        return grown;
+    }
+
+
+    /**
+     * Return true iff co is the complement of n.
+     */
+    private static boolean isComplement(GraphClass co, GraphClass n) {
+        return co instanceof ComplementClass  &&
+                ((ComplementClass) co).getBase().equals(n);
+    }
+
+
+    /**
+     * Return true iff pon and stored have the same algorithms and
+     * complexities, where null stands for none.
+     */
+    private static boolean same(ProblemOnNode pon, ProblemOnNode stored) {
+        if (pon == null  ||  stored == null) {
+            ProblemOnNode other = pon == null ? stored : pon;
+            return other == null  ||  other.sameAs(
+                    new ProblemOnNode(other.problem, other.node));
+        }
+        return pon.sameAs(stored);
+    }
+}
+
+/* EOF */
@@ -0,0 +1,43 @@
+/*
+ * Flight recorder event for a step of distributing complexities.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.problem;
+
+import jdk.jfr.*;
+
+/**
+ * A call of one of the distribute methods of a Problem by
+ * Problem.distributeComplexities().
+ */
+@Name("teo.isgci.Distribute")
+@Label("Distribute Complexities")
+@Category({"ISGCI", "Problems"})
+@Description("A step of distributing the complexities of a problem")
+@StackTrace(false)
+class DistributeEvent extends Event {
+    @Label("Problem")
+    String problem;
+
+    @Label("Method")
+    @Description("The distribute method that was called")
+    String method;
+
+    @Label("Step")
+    @Description("The deduction step the complexities are derived in")
+    int step;
+
+    @Label("Nodes")
+    @Description("Classes in the graph")
+    int nodes;
+
+    @Label("Algorithms Added")
+    @Description("Algorithms added to classes, including duplicates")
+    long algorithms;
+}
+
+/* EOF */
@@ -15,7 +15,10 @@ import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Set;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import org.jgrapht.DirectedGraph;
 import teo.isgci.grapht.*;
 import teo.isgci.gc.*;
@@ -49,8 +52,12 @@ public class Problem {
     protected Problem complement;
     /** The algorithms (node independent) that solve depending on co-G. */
     protected List<Algorithm> coAlgos;
+    /** The algorithms created on a node while distributing, by node */
+    protected HashMap<GraphClass,List<Algorithm> > nodeAlgos;
     /** References for this problem */
     List refs;
+    /** Number of calls of addAlgo(), for the flight recorder */
+    private long algoAdditions;
 
     protected Problem(String name, DirectedGraph<GraphClass,Inclusion> g) {
         this(name, g, null, null);
@@ -76,6 +83,7 @@ public class Problem {
         this.algoAnn = deducing ?
                 new Annotation<GraphClass,Inclusion,ProblemOnNode>(g) : null;
         this.coAlgos = null;
+        this.nodeAlgos = new HashMap<GraphClass,List<Algorithm> >();
     }
 
     public String getName() {
@@ -292,7 +300,8 @@ public class Problem {
             algoAnn.setNode(n, pon);
         }
 
-        pon.addAlgo(a, Problem.currentStep);
+        pon.addAlgo(a, distributing ? Problem.currentStep : -1);
+        algoAdditions++;
     }
 
     /**
@@ -321,12 +330,71 @@ public class Problem {
      * Create a new algorithm for this problem on a node n with a simple
      * explanation (Note text), add it to node n and return it.
      * n may be null.
+     * While distributing, an algorithm that was created before on n with the
+     * same complexity and explanation is reused, so distributing again on
+     * some nodes (see ComplexitySnapshot) yields the same algorithms.
      */
     public Algorithm createAlgo(GraphClass n, Complexity complexity,
             String why) {
-        List refs = new ArrayList();
+        if (n == null  ||  !distributing)
+            return createAlgo(n, complexity, null, noteRefs(why));
+
+        List<Algorithm> l = nodeAlgos.get(n);
+        if (l == null) {
+            l = new ArrayList<Algorithm>();
+            nodeAlgos.put(n, l);
+        }
+        for (Algorithm a : l) {
+            if (a.getComplexity() == complexity  &&  why.equals(getWhy(a))) {
+                addAlgo(n, a);
+                return a;
+            }
+        }
+        Algorithm a = createAlgo(n, complexity, null, noteRefs(why));
+        l.add(a);
+        return a;
+    }
+
+
+    /**
+     * Add an algorithm for this problem on n, with the given complexity and
+     * explanation, to the algorithms created while distributing.
+     */
+    Algorithm restoreNodeAlgo(GraphClass n, Complexity complexity,
+            String why) {
+        Algorithm a = new SimpleAlgorithm(this, n, complexity, null,
+                noteRefs(why));
+        List<Algorithm> l = nodeAlgos.get(n);
+        if (l == null) {
+            l = new ArrayList<Algorithm>();
+            nodeAlgos.put(n, l);
+        }
+        l.add(a);
+        return a;
+    }
+
+
+    /**
+     * Return the references of an algorithm with a simple explanation.
+     */
+    private static List<Object> noteRefs(String why) {
+        List<Object> refs = new ArrayList<Object>();
         refs.add(new Note(why, null));
-        return createAlgo(n, complexity, null, refs);
+        return refs;
+    }
+
+
+    /**
+     * Return the explanation of an algorithm created with createAlgo(n,
+     * complexity, why), or null if a has another kind of references.
+     */
+    static String getWhy(Algorithm a) {
+        List<?> refs = a.getRefs();
+        if (refs == null  ||  refs.size() != 1  ||
+                !(refs.get(0) instanceof Note))
+            return null;
+        Note note = (Note) refs.get(0);
+        return note.getName() == null ? note.toString() : null;
     }
 
 
@@ -334,7 +402,7 @@ public class Problem {
      * Get the algorithms for this problem that work on node n or null if there
      * are none.
      */
-    protected HashSet<Algorithm> getAlgoSet(GraphClass n) {
+    protected Set<Algorithm> getAlgoSet(GraphClass n) {
         if (algoAnn == null)
             return null;
 
@@ -348,7 +416,7 @@ public class Problem {
      * node. Never returns null.
      */
     public Iterator<Algorithm> getAlgos(GraphClass n) {
-        HashSet<Algorithm> hash = getAlgoSet(n);
+        Set<Algorithm> hash = getAlgoSet(n);
         if (hash == null)
             hash = new HashSet<Algorithm>();
         return hash.iterator();
@@ -359,38 +427,96 @@ public class Problem {
 
 
     /**
-     * Distribute the Algorithms for this problem over all nodes.
+     * Distribute the Algorithms for this problem over all nodes: Every node
+     * gets the algorithms that its super/sub/equivalent nodes had before
+     * this step, if these distribute down/up/to equivalent nodes.
      * initAlgo/addAlgo must have been called for all problems.
      * Assumes the graph is transitively closed!
-     * @param gc2node maps GraphClass to Node in g
      */
     protected void distributeAlgorithms() {
-        Complexity c;
-        Map<GraphClass,Set<GraphClass> > scc = GAlg.calcSCCMap(graph);
+        if (recomputed != null) {
+            pullAlgorithms();
+            return;
+        }
 
         //---- Add every set of algorithms to the super/subnodes' set. ----
         for (GraphClass n : graph.vertexSet()) {
-            HashSet algos = getAlgoSet(n);
-            if (algos != null) {
-                c = getDerivedComplexity(n);
-                if (c.distributesUp())
-                    distribute(algos, GAlg.inNeighboursOf(graph, n));
-                else if (c.distributesDown())
-                    distribute(algos, GAlg.outNeighboursOf(graph, n));
-                else if (c.distributesEqual())
-                    distribute(algos, scc.get(n));
-            }
+            ProblemOnNode pon = algoAnn.getNode(n);
+            if (pon == null)
+                continue;
+            Complexity c = pon.getComplexityBefore(currentStep);
+            if (c.distributesUp())
+                distribute(pon.getAlgosBefore(currentStep),
+                        GAlg.inNeighboursOf(graph, n));
+            else if (c.distributesDown())
+                distribute(pon.getAlgosBefore(currentStep),
+                        GAlg.outNeighboursOf(graph, n));
+            else if (c.distributesEqual())
+                distribute(pon.getAlgosBefore(currentStep), sccs.get(n));
         }
     }
 
 
+    /**
+     * Like distributeAlgorithms(), but let only the nodes in nodes() get
+     * the algorithms from their super/sub/equivalent nodes.
+     */
+    private void pullAlgorithms() {
+        Map<GraphClass,List<Algorithm> > down =
+                new IdentityHashMap<GraphClass,List<Algorithm> >();
+        Map<GraphClass,List<Algorithm> > up =
+                new IdentityHashMap<GraphClass,List<Algorithm> >();
+        Map<GraphClass,List<Algorithm> > equal =
+                new IdentityHashMap<GraphClass,List<Algorithm> >();
+
+        for (GraphClass n : graph.vertexSet()) {
+            ProblemOnNode pon = algoAnn.getNode(n);
+            if (pon == null)
+                continue;
+            Complexity c = pon.getComplexityBefore(currentStep);
+            if (c.distributesUp())
+                up.put(n, pon.getAlgosBefore(currentStep));
+            else if (c.distributesDown())
+                down.put(n, pon.getAlgosBefore(currentStep));
+            else if (c.distributesEqual())
+                equal.put(n, pon.getAlgosBefore(currentStep));
+        }
+
+        for (GraphClass n : nodes()) {
+            distribute(n, neighbours(n, true), down);
+            distribute(n, neighbours(n, false), up);
+            distribute(n, sccs.get(n), equal);
+        }
+    }
+
+
+    /**
+     * Return the in- (if in) or out-neighbours of n. For an IndexedGraph
+     * they are looked up by id, which is much faster than via the edges.
+     */
+    private Iterable<GraphClass> neighbours(GraphClass n, boolean in) {
+        if (!(graph instanceof IndexedGraph))
+            return in ? GAlg.inNeighboursOf(graph, n) :
+                    GAlg.outNeighboursOf(graph, n);
+
+        IndexedGraph<GraphClass,Inclusion> g =
+                (IndexedGraph<GraphClass,Inclusion>) graph;
+        int id = g.getVertexID(n);
+        int[] ids = in ? g.getInNeighbourIDs(id) : g.getOutNeighbourIDs(id);
+        List<GraphClass> res = new ArrayList<GraphClass>(ids.length);
+        for (int i : ids)
+            res.add(g.getVertex(i));
+        return res;
+    }
+
+
     /**
      * Distribute the algorithms for the parents to this problem.
      */
     protected void distributeParents() {
         Complexity c;
 
-        for (GraphClass n: graph.vertexSet()) {
+        for (GraphClass n : nodes()) {
             for (Reduction r : parents) {
                 c = r.fromParent(
                         r.getParent().getParentallyDerivedComplexity(n) );
@@ -407,7 +533,7 @@ public class Problem {
     protected void distributeChildren() {
         Complexity c;
 
-        for (GraphClass n : graph.vertexSet()) {
+        for (GraphClass n : nodes()) {
             for (Reduction r : children) {
                 c = r.fromChild(
                         r.getChild().getProgeniallyDerivedComplexity(n) );
@@ -434,7 +560,7 @@ public class Problem {
         GraphClass con;
         Complexity nc, conc;
 
-        for (GraphClass n : graph.vertexSet()) {
+        for (GraphClass n : nodes()) {
             if (!(n instanceof ComplementClass))
                 continue;
             con = ((ComplementClass) n).getBase();
@@ -468,7 +594,7 @@ public class Problem {
         boolean ok;
         Complexity c;
 
-        for (GraphClass n: graph.vertexSet()) {
+        for (GraphClass n : nodes()) {
             if ( !(n instanceof UnionClass) ||
                     getDerivedComplexity(n).betterOrEqual(Complexity.P) )
                 continue;
@@ -510,12 +636,39 @@ public class Problem {
     /**
      * Adds the algorithms in algos to the classes in nodes.
      */
-    protected void distribute(HashSet algos, Iterable<GraphClass> nodes) {
+    protected void distribute(List<Algorithm> algos,
+            Iterable<GraphClass> nodes) {
         for (GraphClass n : nodes) {
             addAlgos(n, algos.iterator());
         }
     }
 
+
+    /**
+     * Adds the algorithms of the nodes in froms, as given by algos, to n.
+     */
+    protected void distribute(GraphClass n, Iterable<GraphClass> froms,
+            Map<GraphClass,List<Algorithm> > algos) {
+        // Many of the nodes have the same algorithms, add each only once
+        Set<Algorithm> res = Collections.newSetFromMap(
+                new IdentityHashMap<Algorithm,Boolean>());
+        for (GraphClass from : froms) {
+            List<Algorithm> l = algos.get(from);
+            if (l != null  &&  from != n)
+                res.addAll(l);
+        }
+        addAlgos(n, res.iterator());
+    }
+
+
+    /**
+     * Return the nodes on which the current step distributes: All nodes, or
+     * only those given to distributeComplexities(scc, nodes).
+     */
+    protected Iterable<GraphClass> nodes() {
+        return recomputed == null ? graph.vertexSet() : recomputed;
+    }
+
     //--------------------- Derived algorithms ---------------------------
 
     /**
@@ -562,11 +715,22 @@ public class Problem {
     */
     static final int STEPS = 4*3 + 1;
     /** The current step */
-    private static int currentStep;
+    static int currentStep;
     /** Whether we are doing deductions */
     private static boolean deducing;
     /** The problems */
     private static List<Problem> problems;
+    /** The SCCs of the graph while distributing complexities */
+    protected static Map<GraphClass,Set<GraphClass> > sccs;
+    /** Whether we are distributing complexities */
+    private static boolean distributing;
+    /** The nodes to distribute on, null for all */
+    private static List<GraphClass> recomputed;
+    /** The distribute methods, for run() */
+    private enum Method {
+        ALGORITHMS, PARENTS, CHILDREN, COMPLEMENT, UPUNION, DOWNINTERSECT,
+        SPECIAL
+    }
 
 
     /**
@@ -585,38 +749,133 @@ public class Problem {
      */
     private static void distributeComplexitiesBasic() {
         for (Problem p : problems)
-            p.distributeAlgorithms();
+            p.run(Method.ALGORITHMS);
         currentStep++;
 
         for (Problem p : problems) {
-            p.distributeParents();
-            p.distributeChildren();
+            p.run(Method.PARENTS);
+            p.run(Method.CHILDREN);
         }
         currentStep++;
 
         for (Problem p : problems) {
-            p.distributeUpUnion();
-            p.distributeDownIntersect();
-            p.distributeSpecial();
+            p.run(Method.UPUNION);
+            p.run(Method.DOWNINTERSECT);
+            p.run(Method.SPECIAL);
         }
         currentStep++;
     }
 
 
+    /**
+     * Call the given distribute method, as a DistributeEvent for the flight
+     * recorder.
+     */
+    private void run(Method method) {
+        DistributeEvent event = new DistributeEvent();
+        long additions = algoAdditions;
+        event.begin();
+        switch (method) {
+            case ALGORITHMS:
+                distributeAlgorithms();
+                break;
+            case PARENTS:
+                distributeParents();
+                break;
+            case CHILDREN:
+                distributeChildren();
+                break;
+            case COMPLEMENT:
+                distributeComplement();
+                break;
+            case UPUNION:
+                distributeUpUnion();
+                break;
+            case DOWNINTERSECT:
+                distributeDownIntersect();
+                break;
+            case SPECIAL:
+                distributeSpecial();
+                break;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.problem = name;
+            event.method = method.name();
+            event.step = currentStep;
+            event.nodes = graph.vertexSet().size();
+            event.algorithms = algoAdditions - additions;
+            event.commit();
+        }
+    }
+
+
     /**
      * Distribute/deduce the algorithms and complexities.
      * @param gc2node maps GraphClass to Node in g
      */
     public static void distributeComplexities() {
+        distributeComplexities(problems.isEmpty() ? null :
+                GAlg.calcSCCMap(problems.get(0).graph));
+    }
+
+
+    /**
+     * Distribute/deduce the algorithms and complexities, using scc (as
+     * returned by GAlg.calcSCCMap()) for the SCCs of the graph, which
+     * doesn't change meanwhile.
+     */
+    public static void distributeComplexities(
+            Map<GraphClass,Set<GraphClass> > scc) {
+        sccs = scc;
+        distributing = true;
+        currentStep = 0;
         distributeComplexitiesBasic();
         distributeComplexitiesBasic();
 
         for (Problem p : problems)
-            p.distributeComplement();
+            p.run(Method.COMPLEMENT);
         currentStep++;
 
         distributeComplexitiesBasic();
         distributeComplexitiesBasic();
+        distributing = false;
+        sccs = null;
+    }
+
+
+    /**
+     * Distribute/deduce the algorithms and complexities again on the given
+     * nodes only, which must be in the same order as in the graph. The other
+     * nodes must have the algorithms and complexities of all steps already,
+     * and nodes must contain the SCC, complement and base of each of its
+     * complement classes.
+     */
+    static void distributeComplexities(Map<GraphClass,Set<GraphClass> > scc,
+            List<GraphClass> nodes) {
+        recomputed = nodes;
+        try {
+            distributeComplexities(scc);
+        } finally {
+            recomputed = null;
+        }
+    }
+
+
+    /**
+     * Return the problems that are being deduced.
+     */
+    static List<Problem> getProblems() {
+        return problems;
+    }
+
+
+    /**
+     * Mark the complexities as completely distributed, without distributing
+     * them, when they have been restored.
+     */
+    static void setDistributed() {
+        currentStep = STEPS;
     }
 }
 
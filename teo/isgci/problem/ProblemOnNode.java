@@ -10,7 +10,12 @@
 
 package teo.isgci.problem;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import teo.isgci.gc.GraphClass;
 
 /**
@@ -23,8 +28,9 @@ public class ProblemOnNode {
     protected Problem problem;
     /** The node */
     protected GraphClass node;
-    /** The algorithms */
-    protected HashSet<Algorithm> algos;
+    /** The algorithms, with the step in which they were added (-1 for the
+     * algorithms that were added before the deductions started) */
+    protected HashMap<Algorithm,Integer> algos;
     /** The complexities, as deduced in the different steps. */
     protected Complexity[] complexity;
 
@@ -34,13 +40,24 @@ public class ProblemOnNode {
                     " not applicable to "+ n.getID());
         problem = p;
         node = n;
-        algos = new HashSet<Algorithm>();
+        algos = new HashMap<Algorithm,Integer>();
         complexity = new Complexity[STEPS];
         for (int i = 0; i < complexity.length; i++)
             complexity[i] = Complexity.UNKNOWN;
     }
 
 
+    /**
+     * Create a copy of pon.
+     */
+    ProblemOnNode(ProblemOnNode pon) {
+        problem = pon.problem;
+        node = pon.node;
+        algos = new HashMap<Algorithm,Integer>(pon.algos);
+        complexity = pon.complexity.clone();
+    }
+
+
     /**
      * Update the complexity of this at the given step by distilling it with
      * c.
@@ -62,15 +79,39 @@ public class ProblemOnNode {
 
 
     /**
-     * Add an algorithm at the given deduction step.
+     * Return the complexity before the given step, that is, at the end of
+     * the previous step or as given before the deductions started.
+     */
+    Complexity getComplexityBefore(int step) {
+        if (step > 0)
+            return complexity[step-1];
+
+        Complexity c = Complexity.UNKNOWN;
+        for (Map.Entry<Algorithm,Integer> e : algos.entrySet()) {
+            if (e.getValue() < 0) {
+                try {
+                    c = e.getKey().getComplexity().distil(c);
+                } catch (ComplexityClashException ex) {
+                    // Reported when the algorithm was added
+                }
+            }
+        }
+        return c;
+    }
+
+
+    /**
+     * Add an algorithm at the given deduction step, or -1 if the deductions
+     * haven't started yet.
      */
     void addAlgo(Algorithm a, int step) {
-        algos.add(a);
+        if (!algos.containsKey(a))
+            algos.put(a, step);
         try {
-            updateComplexity(a.getComplexity(), step);
+            updateComplexity(a.getComplexity(), Math.max(step, 0));
         } catch (ComplexityClashException e) {
             System.err.println("Complexity clash for "+ problem.getName() +
-                    " on "+ node + " "+ a +" and "+ algos);
+                    " on "+ node + " "+ a +" and "+ algos.keySet());
         }
 
     }
@@ -79,8 +120,30 @@ public class ProblemOnNode {
     /**
      * Return the algorithms defined on this node.
      */
-    HashSet<Algorithm> getAlgoSet() {
-        return algos;
+    Set<Algorithm> getAlgoSet() {
+        return algos.keySet();
+    }
+
+
+    /**
+     * Return the algorithms that were added before the given step.
+     */
+    List<Algorithm> getAlgosBefore(int step) {
+        List<Algorithm> res = new ArrayList<Algorithm>();
+        for (Map.Entry<Algorithm,Integer> e : algos.entrySet())
+            if (e.getValue() < step)
+                res.add(e.getKey());
+        return res;
+    }
+
+
+    /**
+     * Return true iff this has the same algorithms, added in the same steps,
+     * and the same complexities as pon.
+     */
+    boolean sameAs(ProblemOnNode pon) {
+        return algos.equals(pon.algos)  &&
+                Arrays.equals(complexity, pon.complexity);
     }
 
 }
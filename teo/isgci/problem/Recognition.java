@@ -12,7 +12,8 @@ package teo.isgci.problem;
 
 import java.util.Map;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.List;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import org.jgrapht.DirectedGraph;
 import teo.isgci.grapht.*;
@@ -23,12 +24,9 @@ import teo.isgci.relation.*;
  * Stores information about recognizing a graph.
  */
 public class Recognition extends Problem {
-    /** Whether the first distribution of algorithms has been done */
-    boolean firstDistributeDone;
 
     public Recognition(String name, DirectedGraph<GraphClass,Inclusion> g) {
         super(name, g);
-        firstDistributeDone = false;
     }
 
 
@@ -40,11 +38,11 @@ public class Recognition extends Problem {
      * Assumes the graph g is transitively closed!
      */
     protected void distributeAlgorithms() {
-        Map<GraphClass,Set<GraphClass> > scc = GAlg.calcSCCMap(graph);
+        Map<GraphClass,Set<GraphClass> > scc = sccs;
 
-        //---- Assert finite ForbiddenClass polynomial
-        if (!firstDistributeDone) {
-            for (GraphClass n : graph.vertexSet()) {
+        //---- Assert finite ForbiddenClass polynomial in the first step
+        if (currentStep == 0) {
+            for (GraphClass n : nodes()) {
                 if (n instanceof ForbiddenClass  &&
                         ((ForbiddenClass) n).isFinite()) {
                     createAlgo(n, Complexity.P,
@@ -57,17 +55,19 @@ public class Recognition extends Problem {
         // way around
         /*for (int repeat = 0; repeat < 2; repeat++)*/ {
             //---- Add every set of algorithms to the equivalent nodes' set.
+            Map<GraphClass,List<Algorithm> > algos =
+                    new IdentityHashMap<GraphClass,List<Algorithm> >();
             for (GraphClass n : graph.vertexSet()) {
-                HashSet h = getAlgoSet(n);
-                if (h != null) {
-                    distribute(h, scc.get(n));
-                }
+                ProblemOnNode pon = algoAnn.getNode(n);
+                if (pon != null)
+                    algos.put(n, pon.getAlgosBefore(currentStep + 1));
             }
+            for (GraphClass n : nodes())
+                distribute(n, scc.get(n), algos);
 
             /*distributeUpUnion(gc2node);
             distributeDownIntersect(gc2node);*/
         }
-        firstDistributeDone = true;
     }
 
 
@@ -84,7 +84,7 @@ public class Recognition extends Problem {
         boolean ok, linear;
         Complexity c;
 
-        for (GraphClass n : graph.vertexSet()) {
+        for (GraphClass n : nodes()) {
             if ( !(n instanceof UnionClass) ||
                     getDerivedComplexity(n).betterOrEqual(Complexity.LINEAR) )
                 continue;
@@ -125,7 +125,7 @@ public class Recognition extends Problem {
         boolean ok, linear;
         Complexity c;
 
-        for (GraphClass n : graph.vertexSet()) {
+        for (GraphClass n : nodes()) {
             if ( !(n instanceof IntersectClass) ||
                     getDerivedComplexity(n).betterOrEqual(Complexity.LINEAR) )
                 continue;
@@ -0,0 +1,337 @@
+/*
+ * Canonical form of a graph.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.smallgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes a canonical form of a graph: a string that is equal for two
+ * graphs iff they are isomorphic.
+ * This is done in the way of nauty (McKay): the nodes are partitioned into
+ * cells by equitable refinement, i.e. nodes stay in the same cell only if
+ * they have the same number of neighbours in every cell. If some cell has
+ * more than one node, every node of the first smallest such cell is in
+ * turn individualized into a cell of its own and the partition is refined
+ * again. Every discrete partition reached this way orders the nodes; the
+ * canonical form is the largest adjacency matrix among these orderings.
+ * Two orderings that give the same matrix define an automorphism; nodes
+ * that an automorphism fixing the individualized nodes maps onto nodes
+ * already tried, aren't tried again, and if an ordering equals the first
+ * one found, the search jumps back to where it left the first path.
+ */
+class CanonicalForm {
+    private final Graph g;
+    private final int n;
+    /** Number of longs in a certificate */
+    private final int words;
+
+    /** Best and first leaf: ordering and matrix */
+    private int[] best, first;
+    private long[] bestCert, firstCert;
+    /** Found automorphisms */
+    private final List<int[]> autos;
+    /** Individualized nodes on the path to the current tree node */
+    private final int[] path;
+    /** Individualized nodes on the path to the first leaf */
+    private int[] firstPath;
+    /** When >= 0, backtrack up to this depth */
+    private int jumpTo;
+
+
+    private CanonicalForm(Graph g) {
+        this.g = g;
+        n = g.countNodes();
+        words = (n*(n-1)/2 + 63) >>> 6;
+        autos = new ArrayList<int[]>();
+        path = new int[n];
+    }
+
+
+    /**
+     * Return the canonical form of g, or null if g is the bottom graph.
+     */
+    static String compute(Graph g) {
+        if (g.getBottom())
+            return null;
+        return new CanonicalForm(g).compute();
+    }
+
+
+    private String compute() {
+        int[] cells = new int[n];          // Cell start per position
+        int[] nodes = new int[n];          // Node per position
+        for (int i = 0; i < n; i++)
+            nodes[i] = i;
+        refine(nodes, cells, -1);
+        jumpTo = -1;
+        search(nodes, cells, 0);
+
+        StringBuilder s = new StringBuilder();
+        s.append(n).append(':');
+        if (bestCert != null)
+            for (long w : bestCert)
+                s.append(Long.toHexString(w)).append('.');
+        return s.toString();
+    }
+
+
+    /**
+     * Search the tree below the partition given by nodes and cells, which
+     * is reached by individualizing path[0..depth-1].
+     */
+    private void search(int[] nodes, int[] cells, int depth) {
+        //---- Find the target cell: the first smallest non-singleton
+        int target = -1, targetSize = Integer.MAX_VALUE;
+        for (int i = 0; i < n; ) {
+            int e = cellEnd(cells, i);
+            if (e - i > 1  &&  e - i < targetSize) {
+                target = i;
+                targetSize = e - i;
+            }
+            i = e;
+        }
+        if (target < 0) {
+            leaf(nodes, depth);
+            return;
+        }
+
+        int[] tried = new int[targetSize];
+        int ntried = 0;
+        for (int k = target; k < target + targetSize; k++) {
+            int v = nodes[k];
+            if (inOrbit(v, depth, tried, ntried))
+                continue;
+            tried[ntried++] = v;
+
+            int[] nodes2 = nodes.clone();
+            int[] cells2 = cells.clone();
+            // Move v to the front of the cell and split it off.
+            nodes2[k] = nodes2[target];
+            nodes2[target] = v;
+            for (int i = target+1; i < target + targetSize; i++)
+                cells2[i] = target+1;
+            refine(nodes2, cells2, target);
+
+            path[depth] = v;
+            search(nodes2, cells2, depth+1);
+            if (jumpTo >= 0) {
+                if (jumpTo < depth)
+                    return;
+                jumpTo = -1;
+            }
+        }
+    }
+
+
+    /**
+     * Return whether v is in the orbit of one of the ntried nodes in tried
+     * under the automorphisms found so far that fix path[0..depth-1].
+     */
+    private boolean inOrbit(int v, int depth, int[] tried, int ntried) {
+        if (ntried == 0)
+            return false;
+        List<int[]> fixing = new ArrayList<int[]>();
+        for (int[] a : autos) {
+            boolean fixes = true;
+            for (int i = 0; i < depth  &&  fixes; i++)
+                fixes = a[path[i]] == path[i];
+            if (fixes)
+                fixing.add(a);
+        }
+        if (fixing.isEmpty())
+            return false;
+
+        boolean[] orbit = new boolean[n];
+        int[] todo = new int[n];
+        int top = 0;
+        orbit[v] = true;
+        todo[top++] = v;
+        while (top > 0) {
+            int x = todo[--top];
+            for (int[] a : fixing)
+                if (!orbit[a[x]]) {
+                    orbit[a[x]] = true;
+                    todo[top++] = a[x];
+                }
+        }
+        for (int i = 0; i < ntried; i++)
+            if (orbit[tried[i]])
+                return true;
+        return false;
+    }
+
+
+    /**
+     * Handle the leaf with the discrete partition nodes.
+     */
+    private void leaf(int[] nodes, int depth) {
+        long[] cert = certificate(nodes);
+        if (first == null) {
+            first = best = nodes;
+            firstCert = bestCert = cert;
+            firstPath = path.clone();
+            return;
+        }
+
+        if (Arrays.equals(cert, firstCert)) {
+            //---- Back to where we left the first path
+            autos.add(automorphism(first, nodes));
+            jumpTo = 0;
+            while (jumpTo < depth  &&  path[jumpTo] == firstPath[jumpTo])
+                jumpTo++;
+            return;
+        }
+        int c = compare(cert, bestCert);
+        if (c == 0) {
+            autos.add(automorphism(best, nodes));
+        } else if (c > 0) {
+            best = nodes;
+            bestCert = cert;
+        }
+    }
+
+
+    /**
+     * Return the automorphism that maps the nodes in order a to those in
+     * order b.
+     */
+    private int[] automorphism(int[] a, int[] b) {
+        int[] res = new int[n];
+        for (int i = 0; i < n; i++)
+            res[a[i]] = b[i];
+        return res;
+    }
+
+
+    /**
+     * Return the upper triangle of the adjacency matrix of g with its nodes
+     * in the given order.
+     */
+    private long[] certificate(int[] nodes) {
+        long[] res = new long[words];
+        int bit = 0;
+        for (int i = 0; i < n; i++)
+            for (int j = i+1; j < n; j++, bit++)
+                if (g.getEdge(nodes[i], nodes[j]))
+                    res[bit >>> 6] |= 1L << (63 - (bit & 63));
+        return res;
+    }
+
+
+    /** Compare two certificates as unsigned numbers */
+    private static int compare(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++)
+            if (a[i] != b[i])
+                return Long.compareUnsigned(a[i], b[i]);
+        return 0;
+    }
+
+
+    /**
+     * Return the first position after the cell that starts at position i.
+     */
+    private int cellEnd(int[] cells, int i) {
+        int e = i+1;
+        while (e < n  &&  cells[e] == i)
+            e++;
+        return e;
+    }
+
+
+    /**
+     * Refine the partition given by nodes and cells until it is equitable.
+     * The cell starting at position changed was just split off, so it is
+     * the first splitter to use (all cells are when changed is -1); other
+     * splitters follow when they split.
+     * Cells are split into parts in order of increasing number of
+     * neighbours in the splitter, so the result depends only on the
+     * structure of the graph and not on its numbering.
+     */
+    private void refine(int[] nodes, int[] cells, int changed) {
+        boolean[] splitter = new boolean[n];   // Per cell start
+        int todo = 0;
+        if (changed >= 0) {
+            splitter[changed] = true;
+            todo++;
+        } else {
+            for (int i = 0; i < n; i = cellEnd(cells, i)) {
+                splitter[i] = true;
+                todo++;
+            }
+        }
+
+        int[] count = new int[n];
+        while (todo > 0) {
+            //---- Take the first splitter in position order
+            int s = 0;
+            while (!splitter[s])
+                s++;
+            splitter[s] = false;
+            todo--;
+            int se = cellEnd(cells, s);
+
+            Arrays.fill(count, 0);
+            for (int i = s; i < se; i++) {
+                long[] row = g.neighbours(nodes[i]);
+                for (int k = 0; k < row.length; k++)
+                    for (long bits = row[k]; bits != 0; bits &= bits - 1)
+                        count[(k << 6) + Long.numberOfTrailingZeros(bits)]++;
+            }
+
+            for (int c = 0; c < n; ) {
+                int ce = cellEnd(cells, c);
+                if (ce - c > 1)
+                    todo += split(nodes, cells, c, ce, count, splitter);
+                c = ce;
+            }
+        }
+    }
+
+
+    /**
+     * Split the cell from c to ce by count, in order of increasing count.
+     * The new parts become splitters. Return the number of new splitters.
+     */
+    private int split(int[] nodes, int[] cells, int c, int ce, int[] count,
+            boolean[] splitter) {
+        boolean same = true;
+        for (int i = c+1; i < ce  &&  same; i++)
+            same = count[nodes[i]] == count[nodes[c]];
+        if (same)
+            return 0;
+
+        //---- Insertion sort by count, the cell is small
+        for (int i = c+1; i < ce; i++) {
+            int x = nodes[i];
+            int j = i-1;
+            while (j >= c  &&  count[nodes[j]] > count[x]) {
+                nodes[j+1] = nodes[j];
+                j--;
+            }
+            nodes[j+1] = x;
+        }
+
+        int added = 0;
+        int start = c;
+        for (int i = c; i < ce; i++) {
+            if (i > c  &&  count[nodes[i]] != count[nodes[i-1]])
+                start = i;
+            cells[i] = start;
+            if (start == i  &&  !splitter[i]) {
+                splitter[i] = true;
+                added++;
+            }
+        }
+        return added;
+    }
+}
+
+/* EOF */
@@ -13,10 +13,16 @@ package teo.isgci.smallgraph;
 import java.util.Vector;
 
 public class Graph extends SmallGraph{
-    private boolean matrix[][];
+    /**
+     * The adjacency matrix as bitsets: node w is a neighbour of v iff bit
+     * w%64 of rows[v][w/64] is set. A graph of at most 64 nodes uses one
+     * long per row.
+     */
+    private long rows[][];
+    private int deg[];  // degree of every node
     private int cnt;    // number of used nodes
     private int Ecnt;   // number of edges
-    private int size;   // size of matrix and KomponentenVektor
+    private int size;   // size of rows and KomponentenVektor
     private int Komponenten;    // Anzahl von Zusammenhangskomponenten
     private int KomponentenVektor[];
     private boolean Komponenten_isKanonisch;
@@ -39,6 +45,11 @@ public class Graph extends SmallGraph{
         copyFrom(g);
     }
 
+    /** Returns the number of longs needed for a row of n nodes. */
+    private static int words(int n){
+        return (n + 63) >>> 6;
+    }
+
     /**
      * Set the nodecount of this to n. Any previous nodes/edges are lost!
      */
@@ -49,14 +60,11 @@ public class Graph extends SmallGraph{
         Komponenten = n;    /* noch gibt es keine Kanten */
         Komponenten_isKanonisch = false;
         is_bottom = false;
-        matrix=new boolean[size][size];
+        rows=new long[size][words(size)];
+        deg=new int[size];
         KomponentenVektor = new int[size];
-        int i,j;
-        for(i=0;i<size;i++) {
+        for(int i=0;i<size;i++)
             KomponentenVektor[i] = i;
-            for(j=0;j<size;j++)
-                matrix[i][j]=false;
-        }
     }
     
     /** Copy the contents of gs into this. */
@@ -73,20 +81,17 @@ public class Graph extends SmallGraph{
         Ecnt=g.Ecnt;
         Komponenten = g.Komponenten;
         Komponenten_isKanonisch = g.Komponenten_isKanonisch;
-        matrix=new boolean[size][size];
-        KomponentenVektor = new int[size];
-        int i,j;
-        for(i=0;i<size;i++) {
-            KomponentenVektor[i] = g.KomponentenVektor[i];
-            for(j=0;j<size;j++)
-                matrix[i][j]=g.matrix[i][j];
-        }
+        rows=new long[size][];
+        for(int i=0;i<size;i++)
+            rows[i] = g.rows[i].clone();
+        deg = g.deg.clone();
+        KomponentenVektor = g.KomponentenVektor.clone();
     }
 
     public Graph(Graph g, boolean mask[]){
         super();
 
-        int i;
+        int i, j, k, l;
 
         cnt = 0;
         for (i = 0; i < g.cnt; i++)
@@ -94,12 +99,10 @@ public class Graph extends SmallGraph{
                 cnt++;
 
         size = cnt;
-
-        matrix = new boolean[size][size];
+        rows = new long[size][words(size)];
+        deg = new int[size];
         KomponentenVektor = new int[size];
 
-        int j, k, l;
-
         k = -1;
         for (i = 0; i < g.cnt; i++) {
             if (mask[i])
@@ -114,15 +117,17 @@ public class Graph extends SmallGraph{
                 else
                     continue;
 
-                matrix[k][l] = g.matrix[i][j];
+                if (g.getEdge(i, j)) {
+                    rows[k][l >>> 6] |= 1L << l;
+                    deg[k]++;
+                }
             }
         }
 
         Ecnt = 0;
-        for (i = 0; i < cnt - 1; i++)
-            for (j = i + 1; j < cnt; j++)
-                if (matrix[i][j])
-                    Ecnt++;
+        for (i = 0; i < cnt; i++)
+            Ecnt += deg[i];
+        Ecnt /= 2;
 
         updateKomponentenVektor();
     }
@@ -132,13 +137,23 @@ public class Graph extends SmallGraph{
         copyFrom(complement);
 
         //---- Then complement it.
-        for(int i=0;i<cnt;i++)
-            for(int j=0;j<cnt;j++)
-                if(i!=j) matrix[i][j] = !matrix[i][j];
+        for(int i=0;i<cnt;i++) {
+            long[] row = rows[i];
+            for(int k=0;k<row.length;k++)
+                row[k] = ~row[k] & usedBits(k);
+            row[i >>> 6] &= ~(1L << i);
+            deg[i] = cnt-1 - deg[i];
+        }
         Ecnt=(((cnt-1)*cnt)/2) - Ecnt;
         updateKomponentenVektor();
     }
 
+    /** Returns the bits of the used nodes in word k of a row. */
+    private long usedBits(int k){
+        int n = cnt - (k << 6);
+        return n >= 64 ? -1L : n <= 0 ? 0L : (1L << n) - 1;
+    }
+
     public boolean getBottom(){
         return is_bottom;
     }
@@ -163,37 +178,42 @@ public class Graph extends SmallGraph{
     /** Returns the degree of the node at index <tt>v</tt> */
     public int degree(int v){
         if(v<0 || v>=cnt) return -1; // illegal argument
-        int i,n=0;
-        for(i=0;i<cnt;i++){
-            if(matrix[v][i]) n++;
-            // matrix[v][v] is always false
-        }
-        return n;
+        return deg[v];
     }
 
     /** Returns the degree of the node at index <tt>v</tt> in the subgraph
      * induced by <tt>mask<tt>*/
     public int degree(int v, boolean mask[]){
         if(v<0 || v>=cnt || ! mask[v]) return -1; // illegal argument
-        int i,n=0;
-        for(i=0;i<cnt;i++){
-            if(matrix[v][i] && mask[i]) n++;
-            // matrix[v][v] is always false
-        }
+        int n=0;
+        long[] row = rows[v];
+        for (int k = 0; k < row.length; k++)
+            for (long bits = row[k]; bits != 0; bits &= bits - 1)
+                if (mask[(k << 6) + Long.numberOfTrailingZeros(bits)])
+                    n++;
         return n;
     }
     
     /** Returns an array with all adjacent nodes of <tt>v</tt>. */
     public int[] adjList(int v){
-        int i,n=degree(v);
+        int n=degree(v);
         if(n<0) return null;
         int list[]=new int[n];
         n=0;
-        for(i=0;i<cnt;i++){
-            if(matrix[v][i]) list[n++]=i;
-        }
+        long[] row = rows[v];
+        for (int k = 0; k < row.length; k++)
+            for (long bits = row[k]; bits != 0; bits &= bits - 1)
+                list[n++] = (k << 6) + Long.numberOfTrailingZeros(bits);
         return list;
     }
+
+    /**
+     * Returns the neighbours of <tt>v</tt> as a bitset, as described for
+     * rows. This is not a copy, so it must not be modified.
+     */
+    long[] neighbours(int v){
+        return rows[v];
+    }
     
     /** Adds a node to the graph. */
     public void addNode(){
@@ -201,9 +221,7 @@ public class Graph extends SmallGraph{
         if(cnt==size) increment();
         cnt++;
         j = -1; /* größte Zahl im KomponentenVektor in j speichern */
-        for(i=0;i<cnt;i++){
-            matrix[i][cnt-1]=false;
-            matrix[cnt-1][i]=false;
+        for(i=0;i<cnt-1;i++){
             if (KomponentenVektor[i] > j)
                 j = KomponentenVektor[i];
         }
@@ -215,21 +233,20 @@ public class Graph extends SmallGraph{
     /** Increases the size of the matrix by 10. */
     private void increment(){
         size+=10;
-        boolean newMatrix[][]=new boolean[size][size];
+        long newRows[][]=new long[size][words(size)];
+        int newDeg[]=new int[size];
         int newKomponentenVektor[]=new int[size];
-        int i,j;
+        int i;
         for(i=0;i<size;i++){
-            if (i<cnt)
+            if (i<cnt) {
                 newKomponentenVektor[i] = KomponentenVektor[i];
-            else
+                newDeg[i] = deg[i];
+                System.arraycopy(rows[i], 0, newRows[i], 0, rows[i].length);
+            } else
                 newKomponentenVektor[i] = -1;
-
-            for(j=0;j<size;j++){
-                if(i<cnt && j<cnt) newMatrix[i][j]=matrix[i][j];
-                else newMatrix[i][j]=false;
-            }
         }
-        matrix=newMatrix;
+        rows=newRows;
+        deg=newDeg;
         KomponentenVektor=newKomponentenVektor;
     }
     
@@ -237,11 +254,15 @@ public class Graph extends SmallGraph{
     public void addEdge(int a,int b){
         if(a==b) return;
         if(a<0 || b<0 || a>=cnt || b>=cnt) return;
-        if (matrix[a][b] || matrix[b][a])
+        if (getEdge(a,b))
             System.err.println("Edge \""+a+" - "+b+
             "\" already exists in graph "+this.getName()+"!");
-        matrix[a][b]=true;
-        matrix[b][a]=true;
+        else {
+            deg[a]++;
+            deg[b]++;
+        }
+        rows[a][b >>> 6] |= 1L << b;
+        rows[b][a >>> 6] |= 1L << a;
         Ecnt++;
 
         /* Test, ob die neue Kante zwei Zusammenhangskomponenten verbindet */
@@ -262,20 +283,25 @@ public class Graph extends SmallGraph{
     
     /** Removes a node and all its adjacent edges from the graph. */
     public void delNode(int v){
-        int i,j;
+        int i;
 
-        /* Die Anzahl der Kanten im Graphen aktualisieren */
-        for (i=0;i<cnt;i++)
-            if (matrix[i][v])
-                Ecnt--;
+        /* Die Anzahl der Kanten und die Grade aktualisieren */
+        Ecnt -= deg[v];
+        long[] row = rows[v];
+        for (int k = 0; k < row.length; k++)
+            for (long bits = row[k]; bits != 0; bits &= bits - 1)
+                deg[(k << 6) + Long.numberOfTrailingZeros(bits)]--;
 
         /* Die Adjazenzmatrix aktualisieren */
-        for(i=v+1;i<cnt;i++)
-            for(j=0;j<cnt;j++)
-                matrix[i-1][j]=matrix[i][j];
-        for(i=0;i<cnt;i++)
-            for(j=v+1;j<cnt;j++)
-                matrix[i][j-1]=matrix[i][j];
+        for(i=v+1;i<cnt;i++) {
+            rows[i-1]=rows[i];
+            deg[i-1]=deg[i];
+        }
+        rows[cnt-1]=row;
+        java.util.Arrays.fill(row, 0L);
+        deg[cnt-1]=0;
+        for(i=0;i<cnt-1;i++)
+            deleteBit(rows[i], v);
 
         /* KomponentenVektor verschieben */
         for (i = v + 1; i < cnt; i++)
@@ -287,11 +313,26 @@ public class Graph extends SmallGraph{
         /* KomponentenVektor aktualisieren */
         updateKomponentenVektor();
     }
+
+    /** Removes bit v from row, shifting the higher bits down by one. */
+    private static void deleteBit(long[] row, int v){
+        int k = v >>> 6;
+        long low = row[k] & ((1L << v) - 1);
+        row[k] = low | ((row[k] >>> 1) & ~((1L << v) - 1));
+        for (k++; k < row.length; k++) {
+            row[k-1] |= row[k] << 63;
+            row[k] >>>= 1;
+        }
+    }
     
     /** Removes the edge between the two given nodes. */
     public void delEdge(int a,int b){
-        matrix[a][b]=false;
-        matrix[b][a]=false;
+        if (getEdge(a,b)) {
+            deg[a]--;
+            deg[b]--;
+        }
+        rows[a][b >>> 6] &= ~(1L << b);
+        rows[b][a >>> 6] &= ~(1L << a);
         Ecnt--;
         updateKomponentenVektor();
     }
@@ -305,9 +346,13 @@ public class Graph extends SmallGraph{
            KomponentenVektor[i] = i;
 
         for (i = 0; i < cnt; i++) {
-            for (j = 0; j < cnt; j++) {
-                if (matrix[i][j] && KomponentenVektor[i] !=
-                        KomponentenVektor[j]) {
+            long[] row = rows[i];
+            for (k = 0; k < row.length; k++) {
+                for (long bits = row[k]; bits != 0; bits &= bits - 1) {
+                    j = (k << 6) + Long.numberOfTrailingZeros(bits);
+                    if (KomponentenVektor[i] == KomponentenVektor[j])
+                        continue;
+
                     int x, y;
 
                     x = java.lang.Math.min(KomponentenVektor[i],
@@ -315,9 +360,9 @@ public class Graph extends SmallGraph{
                     y = java.lang.Math.max(KomponentenVektor[i],
                             KomponentenVektor[j]);
 
-                    for (k = 0; k < cnt; k++)
-                        if (KomponentenVektor[k] == y)
-                            KomponentenVektor[k] = x;
+                    for (int l = 0; l < cnt; l++)
+                        if (KomponentenVektor[l] == y)
+                            KomponentenVektor[l] = x;
 
                     Komponenten--;
                 }
@@ -374,7 +419,7 @@ loop:       while (true) {
     
     /** Returns <tt>true</tt> if there is an edge between the given nodes. */
     public boolean getEdge(int a,int b){
-        return matrix[a][b];
+        return (rows[a][b >>> 6] & (1L << b)) != 0;
     }
     
     /**
@@ -389,321 +434,23 @@ loop:       while (true) {
         s += namesToString() + "\n";
         for(i=0;i<cnt;i++)
             for(j=0;j<i;j++)
-                if(matrix[i][j])
+                if(getEdge(i,j))
                     s+=(j+" - "+i+"\n");
         return s;
     }
     
     // --------------------------------------------------------------
     public boolean isIsomorphic(Graph g){
-        final boolean DEBUG = false;
-
-        if (DEBUG) {
-            System.err.print("isIsomorphic(" + this.getName() + ", " +
-                    g.getName() + ")\n");
-        }
-
         /* check if one of both is the bottom-graph*/
-        if (g.is_bottom || is_bottom) {
-            if (DEBUG) {
-                System.err.print("    sind nicht isomorph\n");
-            }
-            return false;
-        }
-
-        /* check if number of nodes and edges are equal */
-        if(cnt!=g.cnt || countEdges()!=g.countEdges()) {
-            if (DEBUG) {
-                System.err.print("    sind nicht isomorph\n");
-            }
-            return false;
-        }
-
-        if (Komponenten != g.Komponenten) {
-            if (DEBUG) {
-                Permutation perm=new Permutation(cnt);
-                System.err.print("    0 potentielle Graphenisomorphismen\n");
-                System.err.print("    " + perm.fac(cnt)
-                        + " Permutationen der Knotenmenge\n");
-                System.err.print("    0 getestete Graphenisomorphismen\n");
-                System.err.print("    " + perm.fac(cnt)
-                        + " getestet (alter Algorithmus)\n");
-                System.err.print("    sind nicht isomorph\n");
-            }
+        if (g.is_bottom || is_bottom)
             return false;
-        }
-
-        int i;
-        int j;
-        boolean darf[][] = new boolean[cnt][cnt];
-        boolean mask[][] = new boolean[2][cnt];
-
-        for (i=0; i<cnt; i++) {
-            mask[0][i] = true;
-            mask[1][i] = true;
-            for (j=0; j<cnt; j++)
-                darf[i][j] = true;
-        }
 
-        if (!isIsomorphicIntern(g,darf,mask)) {
-            if (DEBUG) {
-                Permutation perm=new Permutation(cnt);
-                System.err.print("    0 potentielle Graphenisomorphismen\n");
-                System.err.print("    " + perm.fac(cnt)
-                        + " Permutationen der Knotenmenge\n");
-                System.err.print("    0 getestete Graphenisomorphismen\n");
-                System.err.print("    " + perm.fac(cnt)
-                        + " getestet (alter Algorithmus)\n");
-                System.err.print("    sind nicht isomorph\n");
-            }
+        /* check if number of nodes, edges and components are equal */
+        if(cnt!=g.cnt || Ecnt!=g.Ecnt || Komponenten != g.Komponenten)
             return false;
-        }
-
-        /* so wird das bestimmt besser optimiert */
-        if (DEBUG) {
-            Permutation perm=new Permutation(cnt,darf);
-            int anzahl = 0;
-
-            System.err.print("    " + perm.count()
-                    + " potentielle Graphenisomorphismen\n");
-            System.err.print("    " + perm.fac(cnt)
-                    + " Permutationen der Knotenmenge\n");
-
-            perm.first();
-            do {
-                anzahl++;
-                if (check(g,perm.get())) {
-                    System.err.print("    " + anzahl
-                            + " getestete Graphenisomorphismen\n");
-
-            Permutation p = new Permutation(cnt);
-            int x[] = perm.get();
-
-
-            anzahl = 1;
-            while (!permeq(x, p.get())) {
-                p.next();
-                anzahl++;
-            }
-
-
-                    System.err.print("    " + anzahl +
-                            " getest (alter Algorithmus)\n");
-
-                    System.err.print("    are isomorphic\n");
-                    return true;
-                }
-            } while (perm.next());
-
-            System.err.print("    " + anzahl +
-                    " getestete Graphenisomorphismen\n");
-            System.err.print("    are not isomorphic\n");
-
-        } else {
-            Permutation perm=new Permutation(cnt,darf);
-            do {
-                if (check(g,perm.get()))
-                    return true;
-            } while (perm.next());
-        }
-
-        return false;
-    }
-
-    private boolean permeq(int a[], int b[]){
-        for (int i = 0; i < cnt; i++)
-            if (a[i] != b[i])
-                return false;
-
-        return true;
-    }
-
-    /** Rekursive Hilfsfunktion zur Bestimmung von <tt>darf<tt>.
-     * Die Matrix <tt>darf</tt> enthält an der Stell i,j eine 1, wenn der
-     * Knoten i in <tt>this<tt> den gleichen Grad hat wie der Knoten j in
-     * <tt>g<tt>. In mask ist hierbei gespeichert welcher Teil des Graphen
-     * bearbeitet werden soll. In mask[0] beschreibt hierbei <tt>this<tt> und
-     * mask[1] <tt>g<tt>.*/
-    private boolean isIsomorphicIntern(Graph g,
-                        boolean darf[][], boolean mask[][]){
-        int i, j;
-        boolean KnotenMitGrad[][][] = new boolean[cnt][2][cnt];
-        int Grad[][] = new int[2][cnt];
-        boolean changed = false;
-
-        /* initialisiere KnotenMitGrad */
-        for (i=0; i < cnt; i++) {
-            for (j=0; j < cnt ; j++) {
-                KnotenMitGrad[j][0][i] = false;
-                KnotenMitGrad[j][1][i] = false;
-            }
-        }
-
-        /* Speichere in Grad[0][i] den Grad des Knoten i im Graph this und
-         * setze KnotenMitGrad[x][0][y] auf true, wenn im Graphen this der
-         * Knoten y den Grad x hat. Analog für den Graphen g wenn der Index 1
-         * gewählt ist. Das ganze aber nur dann, wenn in der jeweiligen Maske
-         * das Flag für den entsprechenden Knoten gesetzt ist. */
-        for (i=0; i < cnt; i++) {
-            int h;
-
-            if (mask[0][i]) {
-                h = degree(i,mask[0]);
-                Grad[0][i] = h;
-                KnotenMitGrad[h][0][i] = true;
-            }
-
-            if (mask[1][i]) {
-                h = g.degree(i,mask[1]);
-                Grad[1][i] = h;
-                KnotenMitGrad[h][1][i] = true;
-            }
-        }
-
-        /* jetzt darf[][] bearbeiten */
-        for (i = 0; i < cnt; i++)
-            if (mask[0][i]) 
-                for (j = 0; j < cnt; j++) 
-                    /* Gradzahlen vergleichen */
-                    if (mask[1][j] && darf[i][j] && Grad[0][i] != Grad[1][j]) {
-                        changed = true;
-                        darf[i][j] = false;
-                    }
-
-        if (!changed)
-            return true;    /* nix passiert */
-
-        for (i=0;i<cnt;i++) { /* cnt - 1 ist maximal möglicher Grad */
-            int differenz = 0;
-            int anzahl = 0;
-
-            for (j=0; j<cnt; j++) {
-                if (KnotenMitGrad[i][0][j]) {
-                    differenz++;
-                    anzahl++;
-                }
-                if (KnotenMitGrad[i][1][j])
-                    differenz--;
-            }
-
-            if (differenz != 0)
-                return false;
-
-            if (anzahl > 1
-                    && !isIsomorphicIntern2(g, darf, mask, KnotenMitGrad[i]))
-                return false;
-        }
-
-        for (i = 0; i < cnt; i++) {
-            /* untersuchen, ob es Knoten gibt, für die es keine
-             * Positionsmöglichkeiten gibt */
-            if (mask[0][i]) { /* nur wenn in diesen Durchlauf eventuell */
-                /*angefaßt */
-                boolean ziel = false;;
-                for (j = 0; j < cnt; j++) {
-                    if (darf[i][j]) {
-                        ziel = true;
-                        break;
-                    }
-                }
-                if (! ziel) 
-                    return false;
-            }
-
-            /* untersuchen, ob es Knoten gibt, für die es keine Quelle gibt */
-            if (mask[1][i]) { /* nur wenn in diesen Durchlauf eventuell */
-                /*angefaßt */
-                boolean quelle = false;;
-                for (j = 0; j < cnt; j++) {
-                    if (darf[j][i]) {
-                        quelle = true;
-                        break;
-                    }
-                }
-                if (! quelle)
-                    return false;
-            }
-        }
-
-        return true;
-    }
-
-    private boolean isIsomorphicIntern2(Graph g,
-                    boolean darf[][],
-                    boolean maskAlt[][],
-                    boolean maskNeu[][]){
-        int i,j;
-        int SummeGradNachbarn[][] = new int[2][cnt];
-        int grad = 0;        /* sonst nörgelt der Compiler */
-
-        for (i = 0; i < cnt; i++)
-            if (maskNeu[0][i]) {
-                grad = degree(i);
-                break;
-            }
-
-        for (i = 0; i < cnt; i++) {
-            if (maskNeu[0][i]) {
-                int s = 0;
-                for (j = 0; j < cnt; j++) {
-                    if (maskAlt[0][j] && matrix[i][j])
-                        s += degree(j);
-                }
-                SummeGradNachbarn[0][i] = s;
-            }
-
-            if (maskNeu[1][i]) {
-                int s = 0;
-                for (j = 0; j < cnt; j++) {
-                    if (maskAlt[1][j] && g.matrix[i][j])
-                        s += g.degree(j);
-                }
-                SummeGradNachbarn[1][i] = s;
-            }
-        }
-
-        for (i = 0; i < cnt; i++)
-            if (maskNeu[0][i])
-                for (j = 0; j < cnt; j++)
-                    if (maskNeu[1][j]
-                            && SummeGradNachbarn[0][i] !=
-                                     SummeGradNachbarn[1][j]) {
-                        darf[i][j] = false;
-                    }
-
-        for (i = 0; i < cnt; i++) {
-            /* untersuchen, ob es Knoten gibt, für die es keine
-             * Positionsmöglichkeiten gibt */
-            if (maskNeu[0][i]) { /* nur wenn in diesen Durchlauf */
-                    /*eventuell angefaßt */
-                boolean ziel = false;;
-                for (j = 0; j < cnt; j++) {
-                    if (darf[i][j]) {
-                        ziel = true;
-                        break;
-                    }
-                }
-                if (! ziel) 
-                    return false;
-            }
-
-            /* untersuchen, ob es Knoten gibt, für die es keine Quelle gibt */
-            if (maskNeu[1][i]) { /* nur wenn in diesen Durchlauf */
-                            /*eventuell angefaßt */
-                boolean quelle = false;;
-                for (j = 0; j < cnt; j++) {
-                    if (darf[j][i]) {
-                        quelle = true;
-                        break;
-                    }
-                }
-                if (! quelle)
-                    return false;
-            }
-        }
-
-        return (grad > 1) ? isIsomorphicIntern(g,darf,maskNeu) : true;
 
+        /* an induced subgraph with as many nodes is the graph itself */
+        return new VF2Matcher(this, g).match();
     }
 
     /* liefert true, wenn g ein von this induzierter Teilgraph ist */
@@ -725,7 +472,7 @@ loop:       while (true) {
             case 2:
                 for (i = 0; i < cnt; i++)
                     for (j = i + 1; j < cnt; j++)
-                        if (matrix[i][j] == g.matrix[0][1])
+                        if (getEdge(i,j) == g.getEdge(0,1))
                             return true;
                 return false;
 
@@ -734,11 +481,11 @@ loop:       while (true) {
                 if (g.countEdges() == 3) {
                     for (i = 0; i < cnt; i++)
                         for (j = 0; j < cnt; j++) {
-                            if (!matrix[i][j])
+                            if (!getEdge(i,j))
                                 continue;
 
                             for (k = j + 1; k < cnt; k++)
-                                if (matrix[i][k] && matrix[j][k])
+                                if (getEdge(i,k) && getEdge(j,k))
                                     /* K3: i - j  - k - i */
                                     return true;
                         }
@@ -749,11 +496,11 @@ loop:       while (true) {
                 else if (g.countEdges() == 2) {
                     for (i = 0; i < cnt; i++)
                         for (j = 0; j < cnt; j++) {
-                            if (!matrix[i][j])
+                            if (!getEdge(i,j))
                                 continue;
 
                             for (k = j + 1; k < cnt; k++)
-                                if (matrix[i][k] && !matrix[j][k])
+                                if (getEdge(i,k) && !getEdge(j,k))
                                     /* P2: k - i - j */
                                     return true;
                         }
@@ -764,11 +511,11 @@ loop:       while (true) {
                 else if (g.countEdges() == 1) {
                     for (i = 0; i < cnt; i++)
                         for (j = 0; j < cnt; j++) {
-                            if (matrix[i][j])
+                            if (getEdge(i,j))
                                 continue;
 
                             for (k = j + 1; k < cnt; k++)
-                                if (matrix[i][k] && !matrix[j][k])
+                                if (getEdge(i,k) && !getEdge(j,k))
                                     /* co-P2: i - k, j */
                                     return true;
                         }
@@ -779,11 +526,11 @@ loop:       while (true) {
                 else /*if (g.countEdges() == 0) */{
                     for (i = 0; i < cnt; i++)
                         for (j = 0; j < cnt; j++) {
-                            if (matrix[i][j])
+                            if (getEdge(i,j))
                                 continue;
 
                             for (k = j + 1; k < cnt; k++)
-                                if (!matrix[i][k] && !matrix[j][k])
+                                if (!getEdge(i,k) && !getEdge(j,k))
                                     /* co-K3: i, j, k */
                                     return true;
                         }
@@ -795,40 +542,26 @@ loop:       while (true) {
             return isIsomorphic(g);
 
         /* jetzt haben wir g als Graphen mit einer Knotenzahl g.m
-         * von 4 <= g.m < this.m
-         * 
-         * nun systematisch alle induzierten Teilgraphen dieser Größe erzeugen
-         * und überprüfen ob g isomorph zu einem dieser Graphen ist. */
-
-        //throw new Error("PermutationMask needed");
-        PermutationMask p = new PermutationMask(cnt, g.cnt);
-
-        p.first();
-        do {
-            Graph g1 = new Graph(this, p.get());
-
-            if (g1.isIsomorphic(g))
-                return true;
-        } while (p.next());
+         * von 4 <= g.m < this.m */
+        return g.isInducedSubgraphOf(this);
+    }
 
-        return false;
+    /**
+     * Returns a string that is equal for two graphs iff they are
+     * isomorphic, or <tt>null</tt> for the bottom graph.
+     */
+    public String getCanonicalForm(){
+        return CanonicalForm.compute(this);
     }
 
     /**
-     * Checks whether the matrices of <tt>this</tt> and <tt>g</tt>
-     * are equal if the nodes of <tt>g</tt> are reordered
-     * according to the permutation given by <tt>perm</tt>.
-     * If the result is true, <tt>perm</tt> contains a mapping
-     * that is needed for isomorphism (by definition).
+     * Returns <tt>true</tt> if <tt>this</tt> is an induced subgraph of
+     * <tt>g</tt>, using the VF2 algorithm.
      */
-    private boolean check(Graph g, int perm[]){
-        // this.cnt==g.cnt is checked before
-        int i,j;
-        for(i=0;i<cnt;i++)
-            for(j=i+1;j<cnt;j++)
-                if(matrix[i][j] != g.matrix[perm[i]][perm[j]])
-                    return false;
-        return true;
+    public boolean isInducedSubgraphOf(Graph g){
+        if (is_bottom || g.is_bottom)
+            return false;
+        return new VF2Matcher(this, g).match();
     }
 
     public int getComponents(){
@@ -883,9 +616,8 @@ loop:       while (true) {
             ret[pos] = true;
             grad[pos] = 0;
 
-            for (int i = 0; i < cnt; i++)
-                if (matrix[i][pos])
-                    grad[i]--;
+            for (int i : adjList(pos))
+                grad[i]--;
 
         }
 
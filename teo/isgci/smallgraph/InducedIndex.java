@@ -0,0 +1,194 @@
+/*
+ * Which smallgraphs are induced subgraphs of which.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.smallgraph;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The transitively closed induced subgraph relation between the
+ * smallgraphs of a catalogue: sub is in the set of sup iff every graph that
+ * contains sup as induced subgraph contains sub as well. The smallgraphs are
+ * numbered 0..n-1 and the set of every smallgraph is stored as a row of n
+ * bits, so containment is a lookup.
+ * An index can be written to a file and read back for the same catalogue,
+ * see SmallGraphReader.readInducedIndex(). The smallgraphs are identified
+ * in the file by their names. The file records a checksum of the catalogue
+ * and the version of the code that computed the relation, so an index for
+ * other smallgraphs or from older code isn't used by mistake.
+ */
+public class InducedIndex {
+    /** Start of an index file, includes the version of the format */
+    private static final int MAGIC = 0x15C61D02;
+
+    /** The smallgraphs by id */
+    private final List<SmallGraph> graphs;
+    /** The ids of the smallgraphs */
+    private final IdentityHashMap<SmallGraph,Integer> ids;
+    /** rows[i] has bit j set iff graph j is an induced subgraph of i */
+    private final long[][] rows;
+    /** Version of the code that computed the relation */
+    private int version;
+    /** Checksum of the catalogue the index was made for */
+    private long checksum;
+
+
+    /**
+     * Create an index for the given smallgraphs, without any containments.
+     */
+    public InducedIndex(Collection<SmallGraph> smallgraphs) {
+        graphs = new ArrayList<SmallGraph>(smallgraphs);
+        ids = new IdentityHashMap<SmallGraph,Integer>();
+        for (int i = 0; i < graphs.size(); i++)
+            ids.put(graphs.get(i), i);
+        rows = new long[graphs.size()][(graphs.size() + 63) >>> 6];
+    }
+
+
+    /** Return the number of smallgraphs in the index */
+    public int size() {
+        return graphs.size();
+    }
+
+
+    /** Return the id of g, or -1 if g is not in the index */
+    public int getID(SmallGraph g) {
+        Integer id = ids.get(g);
+        return id == null ? -1 : id;
+    }
+
+
+    /** Return the smallgraph with the given id */
+    public SmallGraph getGraph(int id) {
+        return graphs.get(id);
+    }
+
+
+    /**
+     * Record that sub is an induced subgraph of sup. The caller is
+     * responsible for closing the relation transitively.
+     */
+    public void add(SmallGraph sup, SmallGraph sub) {
+        int j = ids.get(sub);
+        rows[ids.get(sup)][j >>> 6] |= 1L << j;
+    }
+
+
+    /**
+     * Return true iff sub is an induced subgraph of sup. A smallgraph is
+     * contained in itself only if the catalogue says so, e.g. via a cycle
+     * of inclusions.
+     */
+    public boolean contains(SmallGraph sup, SmallGraph sub) {
+        Integer i = ids.get(sup), j = ids.get(sub);
+        if (i == null  ||  j == null)
+            return false;
+        return (rows[i][j >>> 6] & (1L << j)) != 0;
+    }
+
+
+    /**
+     * Return the ids of the induced subgraphs of sup, or null if sup is not
+     * in the index.
+     */
+    public BitSet getSubgraphs(SmallGraph sup) {
+        Integer i = ids.get(sup);
+        return i == null ? null : BitSet.valueOf(rows[i]);
+    }
+
+
+    /** Return the version of the code that computed the relation */
+    public int getVersion() {
+        return version;
+    }
+
+
+    /** Set the version of the code that computes the relation */
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+
+    /** Return the checksum of the catalogue the index was made for */
+    public long getChecksum() {
+        return checksum;
+    }
+
+
+    /** Set the checksum of the catalogue the index is made for */
+    public void setChecksum(long checksum) {
+        this.checksum = checksum;
+    }
+
+
+    /**
+     * Write the index to file.
+     */
+    public void write(String file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), 64*1024));
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(version);
+            out.writeLong(checksum);
+            out.writeInt(graphs.size());
+            for (SmallGraph g : graphs)
+                out.writeUTF(g.getName());
+            for (long[] row : rows)
+                for (long w : row)
+                    out.writeLong(w);
+        } finally {
+            out.close();
+        }
+    }
+
+
+    /**
+     * Read an index from file, looking up the smallgraphs by name in names.
+     * Return null if the index was computed by another version of the code
+     * or for a catalogue with a different checksum, or contains smallgraphs
+     * that are not in names.
+     */
+    public static InducedIndex read(String file, Map<String,SmallGraph> names,
+            int version, long checksum) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), 64*1024));
+
+        try {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file +" is not an induced index");
+            if (in.readInt() != version  ||  in.readLong() != checksum)
+                return null;
+
+            int n = in.readInt();
+            List<SmallGraph> gs = new ArrayList<SmallGraph>(n);
+            for (int i = 0; i < n; i++) {
+                SmallGraph g = names.get(in.readUTF());
+                if (g == null)
+                    return null;
+                gs.add(g);
+            }
+
+            InducedIndex index = new InducedIndex(gs);
+            if (index.ids.size() != n)             // Duplicate names
+                return null;
+            index.version = version;
+            index.checksum = checksum;
+            for (long[] row : index.rows)
+                for (int k = 0; k < row.length; k++)
+                    row[k] = in.readLong();
+            return index;
+        } finally {
+            in.close();
+        }
+    }
+}
+
+/* EOF */
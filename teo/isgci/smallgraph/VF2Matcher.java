@@ -0,0 +1,260 @@
+/*
+ * VF2 matcher for induced subgraphs.
+ *
+ * This file is part of the Information System on Graph Classes and their
+ * Inclusions (ISGCI) at http://www.graphclasses.org.
+ * Email: isgci@graphclasses.org
+ */
+
+package teo.isgci.smallgraph;
+
+import java.util.Arrays;
+
+/**
+ * Decides whether a small graph is an induced subgraph of a large graph,
+ * by the state space search of VF2 (Cordella et al.) with the node order of
+ * VF2++.
+ * Instead of checking the VF2 feasibility rules for every candidate pair,
+ * every unmatched node of the small graph keeps the set of nodes of the
+ * large graph it can still be mapped to. Matching u to v leaves only the
+ * neighbours of v as candidates for the neighbours of u and only the
+ * non-neighbours of v for the non-neighbours of u, so a dead end is found
+ * as soon as a candidate set becomes empty. The next node to match is the
+ * one with the fewest candidates, ties broken by the VF2++ order: breadth
+ * first from a node of maximum degree, preferring nodes with many
+ * neighbours that come earlier in the order.
+ * The highly symmetric, dense graphs generated by the HMT grammars make
+ * plain VF2 enumerate millions of states before failing; these candidate
+ * sets cut that down to a few.
+ */
+class VF2Matcher {
+    /** The graphs */
+    private final Graph small, large;
+    private final int ns, nl;
+    /** Number of longs in a set of nodes of large */
+    private final int words;
+    /** The nodes of large */
+    private final long[] all;
+    /** The neighbours of the nodes of large, shared with large */
+    private final long[][] rows;
+    /** Degrees */
+    private final int[] smallDeg, largeDeg;
+    /** Position of the nodes of small in the VF2++ order */
+    private final int[] rank;
+
+    /** The candidates for the nodes of small, per depth */
+    private final long[][][] cand;
+    /** Mapping small -> large, -1 when unmatched */
+    private final int[] core;
+    /** Scratch set for refine */
+    private final long[] union;
+
+
+    /**
+     * Create a matcher that tests whether small is an induced subgraph of
+     * large.
+     */
+    VF2Matcher(Graph small, Graph large) {
+        this.small = small;
+        this.large = large;
+        ns = small.countNodes();
+        nl = large.countNodes();
+        words = (nl + 63) >>> 6;
+
+        all = new long[words];
+        rows = new long[nl][];
+        largeDeg = new int[nl];
+        for (int v = 0; v < nl; v++) {
+            all[v >>> 6] |= 1L << v;
+            largeDeg[v] = large.degree(v);
+            rows[v] = large.neighbours(v);
+        }
+        smallDeg = new int[ns];
+        for (int u = 0; u < ns; u++)
+            smallDeg[u] = small.degree(u);
+
+        rank = new int[ns];
+        cand = new long[ns+1][ns][words];
+        core = new int[ns];
+        union = new long[words];
+    }
+
+
+    /**
+     * Return true iff small is an induced subgraph of large.
+     */
+    boolean match() {
+        if (!feasible())
+            return false;
+        if (ns == 0)
+            return true;
+
+        makeOrder();
+        Arrays.fill(core, -1);
+        //---- Initial candidates: enough neighbours and non-neighbours
+        for (int u = 0; u < ns; u++)
+            for (int v = 0; v < nl; v++)
+                if (smallDeg[u] <= largeDeg[v]  &&
+                        ns - smallDeg[u] <= nl - largeDeg[v])
+                    cand[0][u][v >>> 6] |= 1L << v;
+        return match(0);
+    }
+
+
+    /**
+     * Cheap necessary conditions: small doesn't have more nodes or edges
+     * than large, and the degree sequences of small and its complement are
+     * dominated by those of large and its complement.
+     */
+    private boolean feasible() {
+        if (ns > nl  ||  small.countEdges() > large.countEdges())
+            return false;
+        if (ns*(ns-1)/2 - small.countEdges() >
+                nl*(nl-1)/2 - large.countEdges())
+            return false;
+
+        int[] ds = smallDeg.clone();
+        int[] dl = largeDeg.clone();
+        Arrays.sort(ds);
+        Arrays.sort(dl);
+        // i-th largest degrees and i-th smallest degrees
+        for (int i = 1; i <= ns; i++) {
+            if (ds[ns-i] > dl[nl-i])
+                return false;
+            if (ns-1 - ds[i-1] > nl-1 - dl[i-1])
+                return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Fill rank with the VF2++ order: breadth first from a node of maximum
+     * degree, taking next the node with the most neighbours in the order so
+     * far and then the highest degree.
+     */
+    private void makeOrder() {
+        int[] order = new int[ns];
+        boolean[] done = new boolean[ns];
+        int[] conn = new int[ns];         // Neighbours in order
+        int n = 0;
+
+        while (n < ns) {
+            //---- Start a new component
+            int root = -1;
+            for (int i = 0; i < ns; i++)
+                if (!done[i]  &&  (root < 0  ||  smallDeg[i] > smallDeg[root]))
+                    root = i;
+            int start = n;
+            order[n++] = root;
+            done[root] = true;
+            addConn(root, conn);
+
+            //---- Add the nodes of its component
+            for (int level = start; level < n; level++) {
+                while (true) {
+                    int best = -1;
+                    for (int w = 0; w < ns; w++)
+                        if (!done[w]  &&  small.getEdge(order[level], w)  &&
+                                (best < 0  ||  conn[w] > conn[best]  ||
+                                conn[w] == conn[best]  &&
+                                smallDeg[w] > smallDeg[best]))
+                            best = w;
+                    if (best < 0)
+                        break;
+                    order[n++] = best;
+                    done[best] = true;
+                    addConn(best, conn);
+                }
+            }
+        }
+
+        for (int i = 0; i < ns; i++)
+            rank[order[i]] = i;
+    }
+
+
+    /** Count u as an ordered neighbour for its neighbours */
+    private void addConn(int u, int[] conn) {
+        for (int w = 0; w < ns; w++)
+            if (small.getEdge(u, w))
+                conn[w]++;
+    }
+
+
+    /**
+     * Extend the current mapping of depth nodes of small.
+     */
+    private boolean match(int depth) {
+        if (depth == ns)
+            return true;
+
+        //---- Take the unmatched node with the fewest candidates
+        int u = -1, best = Integer.MAX_VALUE;
+        for (int w = 0; w < ns; w++) {
+            if (core[w] >= 0)
+                continue;
+            int c = count(cand[depth][w]);
+            if (c < best  ||  c == best  &&  rank[w] < rank[u]) {
+                u = w;
+                best = c;
+            }
+        }
+
+        long[] cu = cand[depth][u];
+        for (int k = 0; k < words; k++) {
+            for (long bits = cu[k]; bits != 0; bits &= bits - 1) {
+                int v = (k << 6) + Long.numberOfTrailingZeros(bits);
+                core[u] = v;
+                if (refine(depth, u, v)  &&  match(depth+1))
+                    return true;
+            }
+        }
+        core[u] = -1;
+        return false;
+    }
+
+
+    /**
+     * Compute the candidates at depth+1 after mapping u to v at depth.
+     * Return false if some unmatched node is left without candidates or if
+     * there are too few candidates altogether.
+     */
+    private boolean refine(int depth, int u, int v) {
+        Arrays.fill(union, 0L);
+        long[] row = rows[v];
+        int vw = v >>> 6;
+        long vbit = 1L << v;
+
+        for (int w = 0; w < ns; w++) {
+            if (core[w] >= 0)
+                continue;
+            long[] from = cand[depth][w];
+            long[] to = cand[depth+1][w];
+            boolean adj = small.getEdge(u, w);
+            long any = 0;
+            for (int k = 0; k < words; k++) {
+                long x = adj ? from[k] & row[k] : from[k] & ~row[k] & all[k];
+                if (k == vw)
+                    x &= ~vbit;
+                to[k] = x;
+                union[k] |= x;
+                any |= x;
+            }
+            if (any == 0)
+                return false;
+        }
+        return count(union) >= ns - depth - 1;
+    }
+
+
+    /** Return the number of nodes in set */
+    private static int count(long[] set) {
+        int res = 0;
+        for (long x : set)
+            res += Long.bitCount(x);
+        return res;
+    }
+}
+
+/* EOF */
@@ -39,6 +39,8 @@ public class ISGCIWriter {
     public static final int MODE_SAGE = 1;
     /** Write information for the web pages */
     public static final int MODE_WEB = 2;
+    /** Write the input of the deductions, like masterdata.xml */
+    public static final int MODE_DATA = 3;
 
 
     /**
@@ -199,7 +201,12 @@ public class ISGCIWriter {
                     writer.characters("\n");
                 }
                 // Hereditariness, Complements, references and notes
-                if (mode == MODE_WEB) {
+                if (mode == MODE_DATA) {
+                    writeHereditariness(gc);
+                    writeCliqueFixed(gc);
+                    writeRefs(gc.getRefs());
+                    writer.characters("\n");
+                } else if (mode == MODE_WEB) {
                     writeHereditariness(gc);
                     writeCliqueFixed(gc);
                     writer.characters("\n");
@@ -376,7 +383,9 @@ public class ISGCIWriter {
     private void writeComplexities(GraphClass n, Collection<Problem> problems)
             throws SAXException {
         for (Problem p : problems) {
-            if (mode != MODE_WEB  ||  p.validFor(n))
+            if (mode == MODE_DATA)
+                writeAlgorithms(p, p.getAlgos(n));
+            else if (mode != MODE_WEB  ||  p.validFor(n))
                 writeComplexity(p, p.getDerivedComplexity(n),
                         p.getAlgos(n));
         }
@@ -420,7 +429,7 @@ public class ISGCIWriter {
             if (a.getTimeBounds() != null)
                 atts.addAttribute(Tags.BOUNDS, a.getTimeBounds());
             writer.startElement("", Tags.ALGO, "", atts);
-                if (a.getGraphClass() != null)
+                if (a.getGraphClass() != null  &&  mode != MODE_DATA)
                     writer.dataElement(Tags.GCREF, a.getGraphClass().getID().toString());//intID
                 writeRefs(a.getRefs());
             writer.endElement(Tags.ALGO);
@@ -468,14 +477,21 @@ public class ISGCIWriter {
                 atts.addAttribute(Tags.DIRTYPE, Tags.DIRECTED);
             else if (p.forUndirected()  &&  !p.forDirected())
                 atts.addAttribute(Tags.DIRTYPE, Tags.UNDIRECTED);
+            if (mode == MODE_DATA  &&  p.getComplement() != null)
+                atts.addAttribute(Tags.PROBLEM_COMPLEMENT,
+                        p.getComplement().getName());
             writer.startElement("", Tags.PROBLEM_DEF, "", atts);
             atts.clear();
+            if (mode == MODE_DATA)
+                writeReductions(p.getReductions());
             if (p.isSparse())
                 writer.emptyElement(Tags.PROBLEM_SPARSE);
             writer.characters("\n");
             if (mode == MODE_WEB) {
                 writeReductions(p.getReductions());
                 writeRefs(p.getRefs());
+            } else if (mode == MODE_DATA) {
+                writeRefs(p.getRefs());
             }
             writer.endElement(Tags.PROBLEM_DEF);
             writer.characters("\n");
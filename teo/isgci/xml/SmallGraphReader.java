@@ -11,6 +11,7 @@
 package teo.isgci.xml;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.util.Iterator;
 import java.util.Collection;
@@ -20,7 +21,8 @@ import java.util.ArrayDeque;
 import java.util.NoSuchElementException;
 import java.util.Vector;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Collections;
 
 import org.xml.sax.XMLReader;
@@ -49,7 +51,7 @@ public class SmallGraphReader extends DefaultHandler {
     private int[] extension;
     /** Wrappers to complete */
     private ArrayList<Wrapper> todo;
-    /** Maps name/alias to SmallGraph */
+    /** Maps name/alias to SmallGraph, in the order they were read */
     private HashMap<String,SmallGraph> graphs;
     /** Maps names to grammars */
     private HashMap<String,HMTGrammar> grammars;
@@ -62,7 +64,7 @@ public class SmallGraphReader extends DefaultHandler {
     
     public SmallGraphReader() {
         super();
-        graphs = new HashMap<String,SmallGraph>();
+        graphs = new LinkedHashMap<String,SmallGraph>();
         grammars = new HashMap<String,HMTGrammar>();
         current = new ArrayDeque<Wrapper>();
         todo = new ArrayList<Wrapper>();
@@ -72,10 +74,10 @@ public class SmallGraphReader extends DefaultHandler {
     }
         
 
-    /** Return the parsed graphsets */
+    /** Return the parsed graphsets, in the order they were read */
     public Collection<SmallGraph> getGraphs() {
         return Collections.unmodifiableSet(
-                new HashSet<SmallGraph>(graphs.values()));
+                new LinkedHashSet<SmallGraph>(graphs.values()));
     }
 
     
@@ -90,6 +92,19 @@ public class SmallGraphReader extends DefaultHandler {
         return inclusions;
     }
 
+
+    /**
+     * Read the induced subgraph index in file for the parsed smallgraphs.
+     * Return null if it was computed by another version of the code or made
+     * for other smallgraphs, that is, if version or checksum (of the
+     * smallgraphs file) is different or a smallgraph in the index isn't
+     * known.
+     */
+    public InducedIndex readInducedIndex(String file, int version,
+            long checksum) throws IOException {
+        return InducedIndex.read(file, graphs, version, checksum);
+    }
+
     
     ////////////////////////////////////////////////////////////////////
     // Event handlers.